@@ -3,10 +3,15 @@ package com.saghar.jsonicdb.cli;
 import com.saghar.jsonicdb.core.Database;
 import com.saghar.jsonicdb.parser.Command;
 import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.parser.StatementCache;
 import com.saghar.jsonicdb.util.JsonicException;
 
+import java.io.BufferedWriter;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 
@@ -15,9 +20,16 @@ public final class ConsoleRunner {
     }
 
     public static void run(InputStream in, PrintStream out, PrintStream err, boolean prompt) {
-        Database db = new Database();
-        CommandParser parser = new CommandParser();
+        run(in, out, err, prompt, new Database());
+    }
+
+    public static void run(InputStream in, PrintStream out, PrintStream err, boolean prompt, Database db) {
+        run(in, out, err, prompt, db, new CommandParser(new StatementCache()));
+    }
 
+    public static void run(InputStream in, PrintStream out, PrintStream err, boolean prompt, Database db, CommandParser parser) {
+        // results are streamed through one buffer and flushed per command, so large tables print as they go
+        Writer results = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()), 1 << 16);
         try (Scanner sc = new Scanner(in)) {
             while (true) {
                 if (prompt) out.print("> ");
@@ -33,8 +45,11 @@ public final class ConsoleRunner {
 
                 try {
                     Command cmd = parser.parse(line);
-                    String result = cmd.execute(db);
-                    if (result != null && !result.isBlank()) out.println(result);
+                    try {
+                        cmd.execute(db, results);
+                    } finally {
+                        results.flush();
+                    }
                 } catch (JsonicException ex) {
                     err.println("Error" + " " + ex.getMessage());
                 } catch (Exception ex) {
@@ -1,7 +1,45 @@
 package com.saghar.jsonicdb.cli;
 
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.Durability;
+import com.saghar.jsonicdb.core.ScanSettings;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.parser.StatementCache;
+
+import java.nio.file.Path;
+
 public final class Main {
     public static void main(String[] args) {
-        ConsoleRunner.run(System.in, System.out, System.err, /*prompt*/ true);
+        StorageMode storage = StorageMode.ROW;
+        int cacheSize = StatementCache.DEFAULT_CAPACITY;
+        double compactAt = DataType.DEFAULT_COMPACTION_THRESHOLD;
+        Path wal = null;
+        Durability durability = Durability.SYNC;
+        long flushInterval = Database.DEFAULT_FLUSH_INTERVAL_MILLIS;
+        int scanThreads = ScanSettings.DEFAULT.parallelism();
+        int parallelScanAt = ScanSettings.DEFAULT_THRESHOLD;
+        boolean vectorized = false;
+        for (String arg : args) {
+            if (arg.equals("--columnar")) storage = StorageMode.COLUMNAR;
+            else if (arg.startsWith("--storage=")) storage = StorageMode.fromSpec(arg.substring("--storage=".length()));
+            else if (arg.startsWith("--statement-cache=")) cacheSize = Integer.parseInt(arg.substring("--statement-cache=".length()));
+            else if (arg.startsWith("--compact-at=")) compactAt = Double.parseDouble(arg.substring("--compact-at=".length()));
+            else if (arg.startsWith("--wal=")) wal = Path.of(arg.substring("--wal=".length()));
+            else if (arg.startsWith("--durability=")) durability = Durability.fromSpec(arg.substring("--durability=".length()));
+            else if (arg.startsWith("--flush-interval=")) flushInterval = Long.parseLong(arg.substring("--flush-interval=".length()));
+            else if (arg.startsWith("--scan-threads=")) scanThreads = Integer.parseInt(arg.substring("--scan-threads=".length()));
+            else if (arg.startsWith("--parallel-scan-at=")) parallelScanAt = Integer.parseInt(arg.substring("--parallel-scan-at=".length()));
+            else if (arg.equals("--vector")) vectorized = true;
+        }
+        CommandParser parser = new CommandParser(cacheSize > 0 ? new StatementCache(cacheSize) : null);
+        try (Database db = wal == null ? new Database(storage) : Database.open(wal, durability, flushInterval, storage)) {
+            db.setCompactionThreshold(compactAt);
+            db.setScanSettings(new ScanSettings(scanThreads, parallelScanAt, vectorized));
+            ConsoleRunner.run(System.in, System.out, System.err, /*prompt*/ true, db, parser);
+            // the next start maps the snapshot instead of replaying the whole log
+            if (db.isDurable()) db.checkpoint();
+        }
     }
 }
@@ -0,0 +1,111 @@
+package com.saghar.jsonicdb.core;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.IntFunction;
+
+/**
+ * A point-in-time copy of one column in primitive form, the unit a snapshot is written from and
+ * loaded into. Each covers slots {@code [0, size)}.
+ */
+sealed interface ColumnImage {
+    Object get(int slot);
+
+    record Ints(int[] values) implements ColumnImage {
+        public Object get(int slot) {
+            return values[slot];
+        }
+    }
+
+    record Doubles(double[] values) implements ColumnImage {
+        public Object get(int slot) {
+            return values[slot];
+        }
+    }
+
+    /**
+     * {@link TimeCodec} nanos.
+     */
+    record Times(long[] values) implements ColumnImage {
+        public Object get(int slot) {
+            return TimeCodec.decode(values[slot]);
+        }
+    }
+
+    record Bools(long[] words) implements ColumnImage {
+        public Object get(int slot) {
+            return (words[slot >>> 6] & (1L << slot)) != 0;
+        }
+    }
+
+    /**
+     * UTF-8 bytes of slot i at {@code heap[offsets[i] .. offsets[i] + lengths[i])}.
+     */
+    record Strings(byte[] heap, int[] offsets, int[] lengths) implements ColumnImage {
+        public Object get(int slot) {
+            return new String(heap, offsets[slot], lengths[slot], StandardCharsets.UTF_8);
+        }
+    }
+
+    record Lists(Object[] values) implements ColumnImage {
+        public Object get(int slot) {
+            return values[slot];
+        }
+    }
+
+    /**
+     * Builds an image from boxed values, as held by a row store.
+     */
+    static ColumnImage of(ValueType type, int size, IntFunction<Object> value) {
+        switch (type) {
+            case INT -> {
+                int[] v = new int[size];
+                for (int i = 0; i < size; i++) v[i] = (Integer) value.apply(i);
+                return new Ints(v);
+            }
+            case DOUBLE -> {
+                double[] v = new double[size];
+                for (int i = 0; i < size; i++) v[i] = (Double) value.apply(i);
+                return new Doubles(v);
+            }
+            case TIME -> {
+                long[] v = new long[size];
+                for (int i = 0; i < size; i++) v[i] = TimeCodec.encode((LocalDateTime) value.apply(i));
+                return new Times(v);
+            }
+            case BOOL -> {
+                long[] w = new long[(size + 63) >>> 6];
+                for (int i = 0; i < size; i++) if ((Boolean) value.apply(i)) w[i >>> 6] |= 1L << i;
+                return new Bools(w);
+            }
+            case STRING -> {
+                byte[][] bytes = new byte[size][];
+                int[] offsets = new int[size];
+                int[] lengths = new int[size];
+                long total = 0;
+                for (int i = 0; i < size; i++) {
+                    bytes[i] = ((String) value.apply(i)).getBytes(StandardCharsets.UTF_8);
+                    total += bytes[i].length;
+                }
+                if (total > Integer.MAX_VALUE - 8) throw new JsonicException("String column is full");
+                byte[] heap = new byte[(int) total];
+                int at = 0;
+                for (int i = 0; i < size; i++) {
+                    System.arraycopy(bytes[i], 0, heap, at, bytes[i].length);
+                    offsets[i] = at;
+                    lengths[i] = bytes[i].length;
+                    at += bytes[i].length;
+                }
+                return new Strings(heap, offsets, lengths);
+            }
+            case STRING_LIST -> {
+                Object[] v = new Object[size];
+                for (int i = 0; i < size; i++) v[i] = value.apply(i);
+                return new Lists(v);
+            }
+        }
+        throw new IllegalArgumentException(String.valueOf(type));
+    }
+}
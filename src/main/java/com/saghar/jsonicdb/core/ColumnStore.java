@@ -0,0 +1,497 @@
+package com.saghar.jsonicdb.core;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Columnar storage: each field lives in its own primitive array, so a record costs a few bytes per
+ * field instead of a boxed value plus a hash entry.
+ * <p>
+ * Views read the store without the type lock, so no array a reader can reach is resized in place:
+ * the column list and every backing array are replaced by a filled copy published through a volatile
+ * field, and a reader sees either the old array or the complete new one.
+ */
+public final class ColumnStore implements RecordStore {
+    private volatile Column[] columns = new Column[0];
+    private int size; // written by the type's writer only; readers stay below their view's slot limit
+    private int capacity = 16;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void addColumn(ValueType type) {
+        Column c = Column.of(type, capacity);
+        Object def = type.defaultValue();
+        for (int slot = 0; slot < size; slot++) c.store(slot, def);
+        Column[] next = Arrays.copyOf(columns, columns.length + 1);
+        next[next.length - 1] = c;
+        columns = next;
+    }
+
+    @Override
+    public int append(Object[] row) {
+        if (size == capacity) {
+            capacity = capacity + (capacity >> 1);
+            for (Column c : columns) c.grow(capacity);
+        }
+        int slot = size++;
+        Column[] cols = columns;
+        for (int i = 0; i < cols.length; i++) cols[i].store(slot, row[i]);
+        return slot;
+    }
+
+    @Override
+    public void reserve(int rows) {
+        if (size + rows <= capacity) return;
+        // geometric, so a run of batches copies each column a constant number of times
+        capacity = Math.max(size + rows, capacity + (capacity >> 1));
+        for (Column c : columns) c.grow(capacity);
+    }
+
+    @Override
+    public Object get(int slot, int column) {
+        return columns[column].box(slot);
+    }
+
+    @Override
+    public void set(int slot, int column, Object value) {
+        columns[column].store(slot, value);
+    }
+
+    /**
+     * True once overwritten strings take up more than half of some string column's heap.
+     */
+    boolean hasGarbage() {
+        for (Column c : columns) {
+            if (c instanceof StringColumn sc && sc.garbage > 4096 && sc.garbage > sc.heapUsed / 2) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Packs the string heaps, moving the bytes of live values; nothing may be reading them meanwhile.
+     */
+    void reclaim() {
+        for (Column c : columns) {
+            if (c instanceof StringColumn sc) sc.compact(size);
+        }
+    }
+
+    @Override
+    public int getInt(int slot, int column) {
+        return ((IntColumn) columns[column]).values[slot];
+    }
+
+    @Override
+    public double getDouble(int slot, int column) {
+        return ((DoubleColumn) columns[column]).values[slot];
+    }
+
+    @Override
+    public long getTime(int slot, int column) {
+        return ((TimeColumn) columns[column]).values[slot];
+    }
+
+    @Override
+    public boolean getBool(int slot, int column) {
+        return ((BoolColumn) columns[column]).bit(slot);
+    }
+
+    @Override
+    public String getString(int slot, int column) {
+        return ((StringColumn) columns[column]).string(slot);
+    }
+
+    @Override
+    public boolean stringEquals(int slot, int column, String value) {
+        return ((StringColumn) columns[column]).equalsString(slot, value);
+    }
+
+    /**
+     * Backing array of an INT column, for kernels that compare many slots at once; slots below
+     * {@link #size()} are valid. It is replaced when the store grows, so fetch it per scan.
+     */
+    public int[] ints(int column) {
+        return ((IntColumn) columns[column]).values;
+    }
+
+    public double[] doubles(int column) {
+        return ((DoubleColumn) columns[column]).values;
+    }
+
+    /**
+     * Backing array of a TIME column, in {@link TimeCodec} nanos.
+     */
+    public long[] times(int column) {
+        return ((TimeColumn) columns[column]).values;
+    }
+
+    @Override
+    public void removeAll(BitSet slots) {
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            if (slots.get(r)) continue;
+            if (w != r) for (Column c : columns) c.move(r, w);
+            w++;
+        }
+        for (int r = w; r < size; r++) {
+            for (Column c : columns) c.clear(r);
+        }
+        size = w;
+        for (Column c : columns) c.compact(size);
+    }
+
+    ColumnImage image(int column) {
+        return columns[column].image(size);
+    }
+
+    /**
+     * Replaces the (empty) store's contents with {@code rows} rows taken from the images, adopting
+     * their arrays where the layout matches.
+     */
+    void load(ColumnImage[] images, int rows) {
+        capacity = Math.max(16, rows);
+        size = rows;
+        for (int c = 0; c < columns.length; c++) columns[c].load(images[c], capacity);
+    }
+
+    private abstract static sealed class Column
+            permits IntColumn, DoubleColumn, TimeColumn, BoolColumn, StringColumn, ListColumn {
+        static Column of(ValueType type, int capacity) {
+            return switch (type) {
+                case INT -> new IntColumn(capacity);
+                case DOUBLE -> new DoubleColumn(capacity);
+                case TIME -> new TimeColumn(capacity);
+                case BOOL -> new BoolColumn(capacity);
+                case STRING -> new StringColumn(capacity);
+                case STRING_LIST -> new ListColumn(capacity);
+            };
+        }
+
+        abstract Object box(int slot);
+
+        abstract ColumnImage image(int size);
+
+        abstract void load(ColumnImage image, int capacity);
+
+        abstract void store(int slot, Object value);
+
+        abstract void grow(int capacity);
+
+        /**
+         * Copies row {@code from} onto row {@code to} (to < from) while compacting.
+         */
+        abstract void move(int from, int to);
+
+        /**
+         * Releases whatever a vacated slot still references.
+         */
+        void clear(int slot) {
+        }
+
+        /**
+         * Called once after a compaction with the new row count.
+         */
+        void compact(int size) {
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        volatile int[] values;
+
+        IntColumn(int capacity) {
+            values = new int[capacity];
+        }
+
+        Object box(int slot) {
+            return values[slot];
+        }
+
+        void store(int slot, Object value) {
+            values[slot] = (Integer) value;
+        }
+
+        ColumnImage image(int size) {
+            return new ColumnImage.Ints(Arrays.copyOf(values, size));
+        }
+
+        void load(ColumnImage image, int capacity) {
+            int[] v = ((ColumnImage.Ints) image).values();
+            values = v.length >= capacity ? v : Arrays.copyOf(v, capacity);
+        }
+
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        void move(int from, int to) {
+            values[to] = values[from];
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        volatile double[] values;
+
+        DoubleColumn(int capacity) {
+            values = new double[capacity];
+        }
+
+        Object box(int slot) {
+            return values[slot];
+        }
+
+        void store(int slot, Object value) {
+            values[slot] = (Double) value;
+        }
+
+        ColumnImage image(int size) {
+            return new ColumnImage.Doubles(Arrays.copyOf(values, size));
+        }
+
+        void load(ColumnImage image, int capacity) {
+            double[] v = ((ColumnImage.Doubles) image).values();
+            values = v.length >= capacity ? v : Arrays.copyOf(v, capacity);
+        }
+
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        void move(int from, int to) {
+            values[to] = values[from];
+        }
+    }
+
+    private static final class TimeColumn extends Column {
+        volatile long[] values;
+
+        TimeColumn(int capacity) {
+            values = new long[capacity];
+        }
+
+        Object box(int slot) {
+            return TimeCodec.decode(values[slot]);
+        }
+
+        void store(int slot, Object value) {
+            values[slot] = TimeCodec.encode((LocalDateTime) value);
+        }
+
+        ColumnImage image(int size) {
+            return new ColumnImage.Times(Arrays.copyOf(values, size));
+        }
+
+        void load(ColumnImage image, int capacity) {
+            long[] v = ((ColumnImage.Times) image).values();
+            values = v.length >= capacity ? v : Arrays.copyOf(v, capacity);
+        }
+
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        void move(int from, int to) {
+            values[to] = values[from];
+        }
+    }
+
+    private static final class BoolColumn extends Column {
+        volatile long[] words;
+
+        BoolColumn(int capacity) {
+            words = new long[(capacity + 63) >>> 6];
+        }
+
+        boolean bit(int slot) {
+            return (words[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        void bit(int slot, boolean v) {
+            if (v) words[slot >>> 6] |= 1L << slot;
+            else words[slot >>> 6] &= ~(1L << slot);
+        }
+
+        Object box(int slot) {
+            return bit(slot);
+        }
+
+        void store(int slot, Object value) {
+            bit(slot, (Boolean) value);
+        }
+
+        ColumnImage image(int size) {
+            return new ColumnImage.Bools(Arrays.copyOf(words, (size + 63) >>> 6));
+        }
+
+        void load(ColumnImage image, int capacity) {
+            long[] w = ((ColumnImage.Bools) image).words();
+            int need = (capacity + 63) >>> 6;
+            words = w.length >= need ? w : Arrays.copyOf(w, need);
+        }
+
+        void grow(int capacity) {
+            words = Arrays.copyOf(words, (capacity + 63) >>> 6);
+        }
+
+        void move(int from, int to) {
+            bit(to, bit(from));
+        }
+
+        void clear(int slot) {
+            bit(slot, false);
+        }
+    }
+
+    /**
+     * Strings are kept UTF-8 encoded in one shared byte heap and addressed by (offset, length).
+     * Overwritten values leave garbage behind, which {@link ColumnStore#reclaim} drops once it outweighs the live bytes.
+     */
+    private static final class StringColumn extends Column {
+        volatile byte[] heap = new byte[256];
+        int heapUsed;
+        int garbage;
+        volatile int[] offsets;
+        volatile int[] lengths;
+
+        StringColumn(int capacity) {
+            offsets = new int[capacity];
+            lengths = new int[capacity];
+        }
+
+        String string(int slot) {
+            return new String(heap, offsets[slot], lengths[slot], StandardCharsets.UTF_8);
+        }
+
+        // decodes the stored UTF-8 in place and compares code points against the value
+        boolean equalsString(int slot, String value) {
+            byte[] heap = this.heap;
+            int p = offsets[slot], end = p + lengths[slot];
+            int i = 0, n = value.length();
+            while (p < end) {
+                int b = heap[p++];
+                int cp;
+                if (b >= 0) {
+                    cp = b;
+                } else if ((b & 0xE0) == 0xC0) {
+                    cp = (b & 0x1F) << 6 | (heap[p++] & 0x3F);
+                } else if ((b & 0xF0) == 0xE0) {
+                    cp = (b & 0x0F) << 12 | (heap[p++] & 0x3F) << 6 | (heap[p++] & 0x3F);
+                } else {
+                    cp = (b & 0x07) << 18 | (heap[p++] & 0x3F) << 12 | (heap[p++] & 0x3F) << 6 | (heap[p++] & 0x3F);
+                }
+                if (i >= n || value.codePointAt(i) != cp) return false;
+                i += Character.charCount(cp);
+            }
+            return i == n;
+        }
+
+        Object box(int slot) {
+            return string(slot);
+        }
+
+        ColumnImage image(int size) {
+            return new ColumnImage.Strings(Arrays.copyOf(heap, heapUsed), Arrays.copyOf(offsets, size), Arrays.copyOf(lengths, size));
+        }
+
+        void load(ColumnImage image, int capacity) {
+            ColumnImage.Strings img = (ColumnImage.Strings) image;
+            heap = img.heap();
+            heapUsed = heap.length;
+            offsets = img.offsets().length >= capacity ? img.offsets() : Arrays.copyOf(img.offsets(), capacity);
+            lengths = img.lengths().length >= capacity ? img.lengths() : Arrays.copyOf(img.lengths(), capacity);
+            long live = 0;
+            for (int slot = 0; slot < img.lengths().length; slot++) live += lengths[slot];
+            garbage = (int) (heapUsed - live);
+        }
+
+        void store(int slot, Object value) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            garbage += lengths[slot];
+            if (heapUsed + bytes.length > heap.length) {
+                long want = Math.max((long) heap.length * 2, (long) heapUsed + bytes.length);
+                if (want > Integer.MAX_VALUE - 8) throw new JsonicException("String column is full");
+                heap = Arrays.copyOf(heap, (int) want);
+            }
+            System.arraycopy(bytes, 0, heap, heapUsed, bytes.length);
+            offsets[slot] = heapUsed;
+            lengths[slot] = bytes.length;
+            heapUsed += bytes.length;
+        }
+
+        void grow(int capacity) {
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+
+        void move(int from, int to) {
+            offsets[to] = offsets[from];
+            lengths[to] = lengths[from];
+        }
+
+        void clear(int slot) {
+            offsets[slot] = 0;
+            lengths[slot] = 0;
+        }
+
+        void compact(int size) {
+            long live = 0;
+            for (int slot = 0; slot < size; slot++) live += lengths[slot];
+            garbage = (int) (heapUsed - live);
+            if (garbage <= live) return;
+            byte[] packed = new byte[(int) Math.max(256, live)];
+            int w = 0;
+            for (int slot = 0; slot < size; slot++) {
+                System.arraycopy(heap, offsets[slot], packed, w, lengths[slot]);
+                offsets[slot] = w;
+                w += lengths[slot];
+            }
+            heap = packed;
+            heapUsed = w;
+            garbage = 0;
+        }
+    }
+
+    private static final class ListColumn extends Column {
+        volatile Object[] values;
+
+        ListColumn(int capacity) {
+            values = new Object[capacity];
+        }
+
+        Object box(int slot) {
+            return values[slot];
+        }
+
+        void store(int slot, Object value) {
+            values[slot] = value;
+        }
+
+        ColumnImage image(int size) {
+            return new ColumnImage.Lists(Arrays.copyOf(values, size));
+        }
+
+        void load(ColumnImage image, int capacity) {
+            Object[] v = ((ColumnImage.Lists) image).values();
+            values = v.length >= capacity ? v : Arrays.copyOf(v, capacity);
+        }
+
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        void move(int from, int to) {
+            values[to] = values[from];
+        }
+
+        void clear(int slot) {
+            values[slot] = null;
+        }
+    }
+}
@@ -1,21 +1,64 @@
 package com.saghar.jsonicdb.core;
 
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * A live view of one slot in a {@link DataType}'s record store, or in a {@link ReadView}'s.
+ */
 public final class DataRecord {
-    private final Map<String, Object> values = new HashMap<>();
+    private final DataType type;
+    private final RecordStore store;
+    private final int slot;
+
+    DataRecord(DataType type, int slot) {
+        this(type, type.store(), slot);
+    }
+
+    DataRecord(DataType type, RecordStore store, int slot) {
+        this.type = type;
+        this.store = store;
+        this.slot = slot;
+    }
+
+    public int slot() {
+        return slot;
+    }
+
+    /**
+     * The store this record reads from.
+     */
+    public RecordStore store() {
+        return store;
+    }
 
     public Object get(String field) {
-        return values.get(field);
+        int c = type.column(field);
+        return c < 0 ? null : store.get(slot, c);
     }
 
+    /**
+     * Updates this record's slot in its type like any other {@link DataType#updateSlots update}: under the
+     * write lock, with constraints, indexes and the log kept up to date. A null value resets the field.
+     */
     public void put(String field, Object value) {
-        values.put(field, value);
+        type.updateSlots(new int[]{slot}, Collections.singletonMap(field, value));
     }
 
     public Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (FieldDef f : type.fields()) values.put(f.name().trim().toLowerCase(), get(f.name()));
         return Collections.unmodifiableMap(values);
     }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DataRecord r && r.type == type && r.slot == slot;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(type) + slot;
+    }
 }
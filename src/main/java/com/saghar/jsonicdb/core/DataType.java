@@ -3,197 +3,1004 @@ package com.saghar.jsonicdb.core;
 import com.saghar.jsonicdb.util.Checks;
 import com.saghar.jsonicdb.util.JsonicException;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
 
+/**
+ * A named type: its schema, the record store and the indexes over it.
+ * <p>
+ * Each type has its own read/write lock, so work on one type never waits for another. Mutators take
+ * the write lock themselves; index lookups take the read lock. Code that reads slots directly (scans,
+ * {@link DataRecord} views) or combines a lookup with a change runs inside {@link #read} or
+ * {@link #write}. The schema accessors ({@link #field}, {@link #column}, {@link #fieldAt}) need no lock.
+ * <p>
+ * Searches take no lock at all: they read through a {@link ReadView}, which sees the type as of the
+ * version committed when it was opened. Each write-lock hold that changes anything commits one version.
+ * A deleted slot records the version it died at. An update overwrites the slot in place, but while
+ * views are open it first saves the old row as an undo entry and stamps the slot with the new version,
+ * so those views read the saved row instead; with none open it skips the copy and views opened
+ * meanwhile wait for it. Undo entries are dropped once no open view is older than them.
+ * Compaction and string-heap packing move bytes that views read, so they wait until no view is open.
+ */
 public final class DataType {
+    public static final double DEFAULT_COMPACTION_THRESHOLD = 0.25;
+    // above this many slots a delete or update moves posting-list entries one list at a time rather than per slot
+    private static final int BULK = 64;
+
     private final String name;
-    private final Map<String, FieldDef> fields = new LinkedHashMap<>();
-    private final List<DataRecord> records = new ArrayList<>();
-    private final Map<String, Map<Object, DataRecord>> uniqueIndex = new HashMap<>();
+    private final StorageMode storage;
+    // schema: replaced or appended to under the write lock, read without one
+    private volatile Map<String, FieldDef> fields = Map.of();
+    private final Map<String, Integer> columns = new ConcurrentHashMap<>();
+    private final List<FieldDef> columnDefs = new CopyOnWriteArrayList<>();
+    private volatile long schemaVersion;
+    private final RecordStore store;
+    private final Map<String, Map<Object, Integer>> uniqueIndex = new ConcurrentHashMap<>();
+    private final Map<String, HashIndex> hashIndexes = new ConcurrentHashMap<>();
+    private final Map<String, RangeIndex> rangeIndexes = new ConcurrentHashMap<>();
+    private final Map<String, InvertedIndex> invertedIndexes = new ConcurrentHashMap<>();
+    // deleted slots stay in the store until the dead ratio reaches the threshold
+    private final BitSet dead = new BitSet();
+    private int deadCount;
+    private volatile double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    private volatile ScanSettings scanSettings = ScanSettings.DEFAULT;
+    private volatile RowDecoder decoder; // for the columns it was built with
+    private WriteAheadLog wal; // null when the database is not durable, and while replaying
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long unsyncedLsn; // highest LSN logged by the current write-lock holder
+    // versions: the write-lock holder stamps what it changes with the next version and publishes it on unlock
+    private volatile Published published = new Published(0, 0, 0);
+    private boolean modified;
+    private volatile long[] died = new long[16]; // version a slot stopped being visible at; MAX_VALUE while live
+    private volatile long[] updated = new long[16]; // version of the slot's last in-place update
+    private final Map<Integer, Undo> undo = new ConcurrentHashMap<>();
+    private volatile long lastInPlaceUpdate; // version of the latest update that overwrote a slot
+    private long undoKept; // undo entries up to this version are already pruned
+    private final ConcurrentSkipListMap<Long, Integer> openViews = new ConcurrentSkipListMap<>(); // version -> count
+    private volatile boolean quiesced; // set while the write-lock holder moves slots or bytes; keeps views out
+    private volatile boolean compactionDeferred;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private record Published(long version, int slotLimit, int columns) {
+    }
+
+    /**
+     * A row as it was before the update committed at {@code until}, and the slot's older undo entries.
+     */
+    private record Undo(long until, Object[] row, Undo older) {
+    }
 
     public DataType(String name) {
+        this(name, StorageMode.ROW);
+    }
+
+    public DataType(String name, StorageMode storage) {
         Checks.require(name != null && !name.isBlank(), "Type name is empty");
         this.name = name;
+        this.storage = storage;
+        this.store = RecordStore.create(storage);
     }
 
     public String name() {
         return name;
     }
 
+    public StorageMode storage() {
+        return storage;
+    }
+
     public Collection<FieldDef> fields() {
-        return Collections.unmodifiableCollection(fields.values());
+        return fields.values();
     }
 
     public FieldDef field(String name) {
         return fields.get(canon(name));
     }
 
+    /**
+     * Column position of a field in the record store, or -1 when the type has no such field.
+     */
+    public int column(String name) {
+        Integer c = columns.get(canon(name));
+        return c == null ? -1 : c;
+    }
+
+    public FieldDef fieldAt(int column) {
+        return columnDefs.get(column);
+    }
+
+    /**
+     * Decoder of JSON objects into rows of this type's current fields, for {@link #insertRow} and
+     * {@link #updateSlots(int[], Object[])}.
+     */
+    public RowDecoder decoder() {
+        RowDecoder d = decoder;
+        if (d == null || d.columns() != columnDefs.size()) decoder = d = RowDecoder.of(this, columnDefs);
+        return d;
+    }
+
+    public RecordStore store() {
+        return store;
+    }
+
+    /**
+     * Number of live records.
+     */
+    public int size() {
+        return store.size() - deadCount;
+    }
+
+    /**
+     * Upper bound (exclusive) of slot numbers, dead slots included; scans run to here and skip
+     * slots that are not {@link #isLive live}.
+     */
+    public int slotCount() {
+        return store.size();
+    }
+
+    public boolean isLive(int slot) {
+        return !dead.get(slot);
+    }
+
+    public double compactionThreshold() {
+        return compactionThreshold;
+    }
+
+    /**
+     * Dead fraction of the slots at which a delete compacts the store; 0 compacts on every delete.
+     */
+    public void setCompactionThreshold(double threshold) {
+        if (!(threshold >= 0 && threshold <= 1))
+            throw new JsonicException("compaction threshold must be between 0 and 1: " + threshold);
+        this.compactionThreshold = threshold;
+    }
+
+    public ScanSettings scanSettings() {
+        return scanSettings;
+    }
+
+    public void setScanSettings(ScanSettings settings) {
+        this.scanSettings = Objects.requireNonNull(settings);
+    }
+
+    public DataRecord record(int slot) {
+        return new DataRecord(this, slot);
+    }
+
     public List<DataRecord> records() {
-        return records;
+        if (deadCount > 0) return read(() -> {
+            List<DataRecord> live = new ArrayList<>(size());
+            for (int slot = dead.nextClearBit(0); slot < store.size(); slot = dead.nextClearBit(slot + 1))
+                live.add(record(slot));
+            return Collections.unmodifiableList(live);
+        });
+        return new AbstractList<>() {
+            @Override
+            public DataRecord get(int slot) {
+                Objects.checkIndex(slot, store.size());
+                return record(slot);
+            }
+
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
     }
 
     public void addField(FieldDef def) {
+        write(() -> {
+            addFieldLocked(def);
+            return null;
+        });
+    }
+
+    private void addFieldLocked(FieldDef def) {
         String key = canon(def.name());
         if (fields.containsKey(key))
             throw new JsonicException(com.saghar.jsonicdb.util.Errors.duplicateField(def.name()));
-        fields.put(key, def);
+        // a list is indexed by its elements, so "index": true means inverted there
+        IndexKind index = def.index();
+        if (def.type() == ValueType.STRING_LIST && index == IndexKind.HASH) index = IndexKind.INVERTED;
+
+        if (wal != null) logged(wal.logAddField(this, def));
+        modified = true;
+        Map<String, FieldDef> next = new LinkedHashMap<>(fields);
+        next.put(key, def);
+        fields = Collections.unmodifiableMap(next);
+        columns.put(key, columnDefs.size());
+        columnDefs.add(def);
+        store.addColumn(def.type());
         if (def.unique()) uniqueIndex.put(key, new HashMap<>());
+        else if (index == IndexKind.HASH) hashIndexes.put(key, new HashIndex());
+        if (index == IndexKind.RANGE) rangeIndexes.put(key, new RangeIndex());
+        if (index == IndexKind.INVERTED) invertedIndexes.put(key, new InvertedIndex());
+        schemaVersion++;
     }
 
-    public DataRecord insert(Map<String, Object> provided) {
-        DataRecord r = new DataRecord();
+    void attach(WriteAheadLog wal) {
+        this.wal = wal;
+    }
+
+    /**
+     * Runs {@code action} under the read lock: slots, records and indexes stay as they are until it
+     * returns.
+     */
+    public <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs {@code action} under the write lock, for changes that depend on what they read, such as
+     * deleting whatever a filter matches. Waiting for the changes' log records to become durable
+     * happens after the lock is released, so writers queued behind it share the next fsync.
+     */
+    public <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        T result;
+        long lsn;
+        try {
+            result = action.get();
+        } finally {
+            lsn = unlockWrite();
+        }
+        if (lsn != 0) wal.awaitDurable(lsn);
+        return result;
+    }
 
-        // Canonicalize provided keys once (required fields must be explicitly provided)
-        Set<String> providedKeys = new HashSet<>();
-        for (String k : provided.keySet()) {
-            if (k != null) providedKeys.add(canon(k));
+    private long unlockWrite() {
+        long lsn = 0;
+        if (lock.getWriteHoldCount() == 1) {
+            lsn = unsyncedLsn;
+            unsyncedLsn = 0;
+            if (modified) {
+                published = new Published(published.version() + 1, store.size(), columnDefs.size());
+                modified = false;
+            }
+            pruneUndo();
+            quiesced = false;
         }
+        lock.writeLock().unlock();
+        return lsn;
+    }
+
+    // records a log position the outermost write() waits for; called with the write lock held
+    long logged(long lsn) {
+        if (lsn > unsyncedLsn) unsyncedLsn = lsn;
+        return lsn;
+    }
+
+    Lock readLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * The last committed version; every completed insert, update, delete, compaction or schema change
+     * moves it on.
+     */
+    public long version() {
+        return published.version();
+    }
 
-        // required check: required fields must appear in input (even if they have a default)
-        for (FieldDef f : fields.values()) {
-            if (!f.required()) continue;
-            String k = canon(f.name());
-            if (!providedKeys.contains(k) || provided.get(k) == null) {
-                throw new JsonicException(com.saghar.jsonicdb.util.Errors.missingRequired(f.name()));
+    /**
+     * Opens a view of the type as of the last committed version. Views never block writers, but
+     * while any is open, undo entries and dead slots it may need are kept; close it promptly.
+     */
+    public ReadView openView() {
+        while (true) {
+            Published p = published;
+            openViews.merge(p.version(), 1, Integer::sum);
+            // pairs with quiesce() and pruneUndo(): either they see this view or it sees their change
+            if (!quiesced && published == p) return new ReadView(this, p.version(), p.slotLimit(), p.columns());
+            closeView(p.version());
+            if (quiesced) {
+                // slots are being renumbered: wait for that write to finish
+                lock.readLock().lock();
+                lock.readLock().unlock();
             }
         }
+    }
+
+    void closeView(long version) {
+        openViews.computeIfPresent(version, (v, n) -> n == 1 ? null : n - 1);
+        if (compactionDeferred && openViews.isEmpty()) {
+            ForkJoinPool.commonPool().execute(() -> {
+                try {
+                    compact();
+                } catch (JsonicException ignored) {
+                    // e.g. the log was closed meanwhile; the next delete retries
+                }
+            });
+        }
+    }
+
+    boolean visibleAt(int slot, long version) {
+        return (long) SLOTS.getAcquire(died, slot) > version;
+    }
+
+    /**
+     * Version of the last in-place update of a slot; read before and after reading the slot, so a
+     * reader can tell whether an update overlapped its read.
+     */
+    long updatedAt(int slot) {
+        VarHandle.loadLoadFence();
+        return (long) SLOTS.getAcquire(updated, slot);
+    }
+
+    /**
+     * Version of the latest update that overwrote any slot in place; like {@link #updatedAt}, but for
+     * readers that went straight to the store's arrays.
+     */
+    long lastInPlaceUpdate() {
+        VarHandle.loadLoadFence();
+        return lastInPlaceUpdate;
+    }
+
+    /**
+     * The row a slot held at {@code version}, for a slot {@link #updatedAt updated} after it.
+     */
+    Object[] rowAt(int slot, long version) {
+        Undo hit = null;
+        for (Undo u = undo.get(slot); u != null && u.until() > version; u = u.older()) hit = u;
+        if (hit == null) throw new IllegalStateException("no undo entry for slot " + slot + " at version " + version);
+        return hit.row();
+    }
+
+    // called with the write lock held: succeeds only while no view is open, and keeps new ones out until unlock
+    private boolean quiesce() {
+        quiesced = true;
+        if (openViews.isEmpty()) return true;
+        quiesced = false;
+        return false;
+    }
+
+    // drops undo entries no open view can ask for: views older than an entry's version are the only readers
+    private void pruneUndo() {
+        long oldest = published.version();
+        if (!openViews.isEmpty()) oldest = Math.min(oldest, openViews.firstKey());
+        if (oldest <= undoKept || undo.isEmpty()) return;
+        undoKept = oldest;
+        for (Iterator<Map.Entry<Integer, Undo>> it = undo.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, Undo> e = it.next();
+            Undo head = e.getValue();
+            if (head.until() <= oldest) {
+                it.remove();
+                continue;
+            }
+            int keep = 0;
+            for (Undo u = head; u != null && u.until() > oldest; u = u.older()) keep++;
+            Undo[] kept = new Undo[keep];
+            Undo u = head;
+            for (int i = 0; i < keep; i++, u = u.older()) kept[i] = u;
+            if (u == null) continue;
+            Undo chain = null;
+            for (int i = keep - 1; i >= 0; i--) chain = new Undo(kept[i].until(), kept[i].row(), chain);
+            e.setValue(chain);
+        }
+    }
+
+    /**
+     * Bumped whenever fields, columns or their storage change, so anything bound to the old layout
+     * (compiled filters) knows to rebind.
+     */
+    public long schemaVersion() {
+        return schemaVersion;
+    }
+
+    public boolean hasUniqueIndex(String field) {
+        return uniqueIndex.containsKey(canon(field));
+    }
+
+    /**
+     * The non-unique index kind maintained for a field (NONE when it has none).
+     */
+    public IndexKind indexKind(String field) {
+        String key = canon(field);
+        if (hashIndexes.containsKey(key)) return IndexKind.HASH;
+        if (rangeIndexes.containsKey(key)) return IndexKind.RANGE;
+        if (invertedIndexes.containsKey(key)) return IndexKind.INVERTED;
+        return IndexKind.NONE;
+    }
+
+    /**
+     * Number of slots {@link #lookup} would return, without materializing them (-1 without an index).
+     */
+    public int lookupCount(String field, Object value) {
+        String key = canon(field);
+        return read(() -> {
+            Map<Object, Integer> unique = uniqueIndex.get(key);
+            if (unique != null) return unique.containsKey(value) ? 1 : 0;
+            HashIndex idx = hashIndexes.get(key);
+            if (idx != null) return idx.count(value);
+            return rangeIndexes.containsKey(key) ? rangeCount(field, value, true, value, true, Integer.MAX_VALUE) : -1;
+        });
+    }
+
+    /**
+     * Number of slots {@link #range} would return, counting no further than {@code limit}
+     * (-1 without a range index).
+     */
+    public int rangeCount(String field, Object lo, boolean loInclusive, Object hi, boolean hiInclusive, int limit) {
+        String key = canon(field);
+        RangeIndex idx = rangeIndexes.get(key);
+        if (idx == null) return -1;
+        ValueType t = fields.get(key).type();
+        Long from = lo == null ? null : RangeIndex.key(t, lo), to = hi == null ? null : RangeIndex.key(t, hi);
+        return read(() -> idx.count(from, loInclusive, to, hiInclusive, limit));
+    }
+
+    /**
+     * Number of slots {@link #lookupElement} would return (-1 without an inverted index).
+     */
+    public int elementCount(String field, String element) {
+        InvertedIndex idx = invertedIndexes.get(canon(field));
+        return idx == null ? -1 : read(() -> idx.count(element));
+    }
+
+    /**
+     * Slots whose field equals {@code value}, in ascending order, answered from the unique or hash
+     * index of that field. Returns null when the field has no equality index.
+     */
+    public int[] lookup(String field, Object value) {
+        String key = canon(field);
+        return read(() -> {
+            Map<Object, Integer> unique = uniqueIndex.get(key);
+            if (unique != null) {
+                Integer slot = unique.get(value);
+                return slot == null ? new int[0] : new int[]{slot};
+            }
+            HashIndex idx = hashIndexes.get(key);
+            if (idx != null) return idx.lookup(value);
+            return rangeIndexes.containsKey(key) ? range(field, value, true, value, true) : null;
+        });
+    }
+
+    /**
+     * Slots whose list field contains {@code element}, in ascending order, answered from the field's
+     * inverted index. Returns null when the field has no inverted index.
+     */
+    public int[] lookupElement(String field, String element) {
+        InvertedIndex idx = invertedIndexes.get(canon(field));
+        return idx == null ? null : read(() -> idx.lookup(element));
+    }
+
+    /**
+     * Slots whose field lies between the bounds (null = unbounded), in ascending order, answered from
+     * the field's range index. Returns null when the field has no range index.
+     */
+    public int[] range(String field, Object lo, boolean loInclusive, Object hi, boolean hiInclusive) {
+        String key = canon(field);
+        RangeIndex idx = rangeIndexes.get(key);
+        if (idx == null) return null;
+        ValueType t = fields.get(key).type();
+        Long from = lo == null ? null : RangeIndex.key(t, lo), to = hi == null ? null : RangeIndex.key(t, hi);
+        return read(() -> idx.range(from, loInclusive, to, hiInclusive));
+    }
 
-        // materialize defaults (only for non-required fields when missing/null)
-        for (FieldDef f : fields.values()) {
-            String k = canon(f.name());
-            Object v = provided.get(k);
-            if (v == null && !f.required()) v = f.type().defaultValue();
-            r.put(k, v);
+    /**
+     * Up to {@code limit} slots that {@code accept} takes, ordered by the field's value (ties by slot) and
+     * read from its range index, which stops as soon as it has enough. Returns null when the field has no
+     * range index.
+     */
+    public int[] ordered(String field, boolean descending, IntPredicate accept, int limit) {
+        RangeIndex idx = rangeIndexes.get(canon(field));
+        if (idx == null) return null;
+        return read(() -> idx.ordered(descending, accept, limit));
+    }
+
+    public DataRecord insert(Map<String, Object> provided) {
+        return write(() -> insertLocked(rowFor(provided)));
+    }
+
+    /**
+     * Inserts a column-indexed row, as produced by {@link #decoder()}: entry c holds the value for
+     * column c, or null when none was given. The array is completed in place and becomes the stored row.
+     */
+    public DataRecord insertRow(Object[] values) {
+        return write(() -> insertLocked(complete(values)));
+    }
+
+    /**
+     * Inserts every row or none. All rows are checked first: required fields, then unique values
+     * against the type and within the batch, in one pass per unique field. The batch is then logged
+     * as one record and appended under the same write-lock hold. Returns the number of rows inserted.
+     */
+    public int insertAll(List<Map<String, Object>> provided) {
+        return write(() -> {
+            Object[][] rows = new Object[provided.size()][];
+            for (int i = 0; i < rows.length; i++) rows[i] = rowFor(provided.get(i));
+            return insertAllLocked(rows);
+        });
+    }
+
+    /**
+     * {@link #insertAll} for column-indexed rows, completed in place as by {@link #insertRow}.
+     */
+    public int insertRows(List<Object[]> values) {
+        return write(() -> {
+            Object[][] rows = new Object[values.size()][];
+            for (int i = 0; i < rows.length; i++) rows[i] = complete(values.get(i));
+            return insertAllLocked(rows);
+        });
+    }
+
+    private int insertAllLocked(Object[][] rows) {
+        for (Map.Entry<String, Map<Object, Integer>> e : uniqueIndex.entrySet()) {
+            int c = columns.get(e.getKey());
+            Set<Object> batch = new HashSet<>(rows.length * 2);
+            for (Object[] row : rows) {
+                if (e.getValue().containsKey(row[c]) || !batch.add(row[c]))
+                    throw new JsonicException(com.saghar.jsonicdb.util.Errors.duplicateUnique(fields.get(e.getKey()).name()));
+            }
         }
+        if (rows.length == 0) return 0;
+        if (wal != null) logged(wal.logInsertAll(this, rows));
+        appendRows(rows);
+        return rows.length;
+    }
 
+    private DataRecord insertLocked(Object[] row) {
         // unique check
-        for (FieldDef f : fields.values()) {
-            if (!f.unique()) continue;
-            String k = canon(f.name());
-            Object v = r.get(k);
-            Map<Object, DataRecord> idx = uniqueIndex.get(k);
-            if (idx.containsKey(v))
-                throw new JsonicException(com.saghar.jsonicdb.util.Errors.duplicateUnique(f.name()));
+        for (Map.Entry<String, Map<Object, Integer>> e : uniqueIndex.entrySet()) {
+            if (e.getValue().containsKey(row[columns.get(e.getKey())]))
+                throw new JsonicException(com.saghar.jsonicdb.util.Errors.duplicateUnique(fields.get(e.getKey()).name()));
         }
 
-        // commit: add to records + index
-        records.add(r);
-        for (FieldDef f : fields.values()) {
-            if (!f.unique()) continue;
-            String k = canon(f.name());
-            uniqueIndex.get(k).put(r.get(k), r);
+        // commit: log, then add to records + index
+        if (wal != null) logged(wal.logInsert(this, row));
+        return record(appendRow(row));
+    }
+
+    private Object[] rowFor(Map<String, Object> provided) {
+        Object[] row = new Object[columnDefs.size()];
+        for (Map.Entry<String, Object> e : provided.entrySet()) {
+            if (e.getKey() == null) continue;
+            Integer c = columns.get(canon(e.getKey()));
+            if (c != null) row[c] = e.getValue();
         }
-        return r;
+        return complete(row);
     }
 
-    public int deleteWhere(java.util.function.Predicate<DataRecord> predicate) {
-        int count = 0;
-        Iterator<DataRecord> it = records.iterator();
-        while (it.hasNext()) {
-            DataRecord r = it.next();
-            if (!predicate.test(r)) continue;
-            removeFromIndexes(r);
-            it.remove();
-            count++;
+    // the row to store, after the required check (required fields must be given even if they have a
+    // default) and with defaults filled in for the others; a row decoded before a field was added grows.
+    // Times outside the range TimeCodec stores are rejected here, whatever the storage mode.
+    private Object[] complete(Object[] values) {
+        int width = columnDefs.size();
+        Object[] row = values.length == width ? values : Arrays.copyOf(values, width);
+        for (int c = 0; c < width; c++) {
+            if (row[c] instanceof LocalDateTime t) TimeCodec.encode(t);
+            if (row[c] != null) continue;
+            FieldDef f = columnDefs.get(c);
+            if (f.required()) throw new JsonicException(com.saghar.jsonicdb.util.Errors.missingRequired(f.name()));
+            row[c] = f.type().defaultValue();
         }
-        return count;
+        return row;
     }
 
-    public int updateWhere(java.util.function.Predicate<DataRecord> predicate, Map<String, Object> updates) {
-        // pre-validate: unknown fields
-        for (String k : updates.keySet()) {
-            if (!fields.containsKey(canon(k)))
-                throw new JsonicException(com.saghar.jsonicdb.util.Errors.fieldNotFound(k));
+    // the methods below up to applyUpdate are also replayed from the log; all run under the write lock
+    int appendRow(Object[] row) {
+        int slot = store.append(row);
+        if (slot >= died.length) reserveStamps(Math.max(16, slot + (slot >> 1) + 1));
+        died[slot] = Long.MAX_VALUE;
+        addToIndexes(slot);
+        modified = true;
+        return slot;
+    }
+
+    void appendRows(Object[][] rows) {
+        store.reserve(rows.length);
+        int need = store.size() + rows.length;
+        if (need > died.length) reserveStamps(Math.max(need, died.length + (died.length >> 1)));
+        for (Object[] row : rows) appendRow(row);
+    }
+
+    private void reserveStamps(int n) {
+        updated = Arrays.copyOf(updated, n);
+        died = Arrays.copyOf(died, n);
+    }
+
+    public int deleteWhere(java.util.function.Predicate<DataRecord> predicate) {
+        return write(() -> deleteSlots(matching(predicate)));
+    }
+
+    /**
+     * Deletes the given slots (ascending, as produced by a scan or an index lookup). Each slot is
+     * tombstoned and dropped from the indexes; the store is compacted once the dead ratio reaches
+     * {@link #compactionThreshold()}, which renumbers the remaining slots.
+     */
+    public int deleteSlots(int[] slots) {
+        if (slots.length == 0) return 0;
+        return write(() -> {
+            if (wal != null) logged(wal.logDelete(this, slots));
+            int n = tombstone(slots);
+            if (n > 0 && deadCount >= compactionThreshold * store.size()) compact();
+            return n;
+        });
+    }
+
+    int tombstone(int[] slots) {
+        boolean bulk = slots.length > BULK;
+        long version = published.version() + 1;
+        int n = 0;
+        for (int slot : slots) {
+            if (dead.get(slot)) continue;
+            if (bulk) removeFromOrderedIndexes(slot);
+            else removeFromIndexes(slot);
+            dead.set(slot);
+            died[slot] = version;
+            n++;
+        }
+        if (n > 0) modified = true;
+        if (n == 0) return 0;
+        if (bulk) {
+            // one pass over each posting list the deleted slots were in, not over the whole index
+            for (Map.Entry<String, HashIndex> e : hashIndexes.entrySet()) {
+                int c = columns.get(e.getKey());
+                Set<Object> values = new HashSet<>();
+                for (int slot : slots) values.add(store.get(slot, c));
+                e.getValue().removeAll(values, dead);
+            }
+            for (Map.Entry<String, InvertedIndex> e : invertedIndexes.entrySet()) {
+                int c = columns.get(e.getKey());
+                Set<String> elements = new HashSet<>();
+                for (int slot : slots) for (Object x : (List<?>) store.get(slot, c)) elements.add((String) x);
+                e.getValue().removeAll(elements, dead);
+            }
         }
+        deadCount += n;
+        return n;
+    }
 
-        // if updates touch a unique field, pre-check collisions
-        for (DataRecord r : records) {
-            if (!predicate.test(r)) continue;
+    /**
+     * Physically removes dead slots and rebuilds the indexes over the renumbered ones. Returns the
+     * log position of the compaction (0 when not logged). While views are open the dead slots may
+     * still be visible to them, so the compaction is put off until the last view closes.
+     */
+    public long compact() {
+        return write(() -> {
+            if (deadCount == 0) return 0L;
+            if (!quiesce()) {
+                compactionDeferred = true;
+                return 0L;
+            }
+            compactionDeferred = false;
+            // logged because it renumbers slots, and later records address rows by slot
+            long lsn = wal == null ? 0 : logged(wal.logCompact(this));
+            store.removeAll(dead);
+            dead.clear();
+            deadCount = 0;
+            resetVersions();
+            rebuildIndexes();
+            return lsn;
+        });
+    }
 
+    public int updateWhere(java.util.function.Predicate<DataRecord> predicate, Map<String, Object> updates) {
+        return write(() -> updateSlots(matching(predicate), updates));
+    }
+
+    /**
+     * Applies {@code updates} to the given slots (ascending, as produced by a scan or an index lookup).
+     * The whole change set is validated against the match set before any row is touched, so the update
+     * either applies to every slot or to none. Only indexes of values that actually change are updated.
+     */
+    public int updateSlots(int[] slots, Map<String, Object> updates) {
+        return write(() -> {
+            int[] cols = new int[updates.size()];
+            Object[] values = new Object[cols.length];
+            int i = 0;
             for (Map.Entry<String, Object> e : updates.entrySet()) {
-                String field = canon(e.getKey());
-                FieldDef f = fields.get(field);
-                if (f == null || !f.unique()) continue;
-                Object newVal = e.getValue();
-                Object oldVal = r.get(field);
-                if (Objects.equals(newVal, oldVal)) continue;
-
-                Map<Object, DataRecord> idx = uniqueIndex.get(field);
-                DataRecord other = idx.get(newVal);
-                if (other != null && other != r)
+                Integer c = columns.get(canon(e.getKey()));
+                if (c == null) throw new JsonicException(com.saghar.jsonicdb.util.Errors.fieldNotFound(e.getKey()));
+                cols[i] = c;
+                values[i++] = e.getValue();
+            }
+            return updateLocked(slots, cols, values);
+        });
+    }
+
+    /**
+     * {@link #updateSlots(int[], Map)} for a column-indexed patch, as produced by {@link #decoder()}:
+     * columns whose entry is null are left as they are.
+     */
+    public int updateSlots(int[] slots, Object[] patch) {
+        return write(() -> {
+            int k = 0;
+            for (Object v : patch) if (v != null) k++;
+            int[] cols = new int[k];
+            Object[] values = new Object[k];
+            for (int c = 0, i = 0; c < patch.length; c++) {
+                if (patch[c] == null) continue;
+                cols[i] = c;
+                values[i++] = patch[c];
+            }
+            return updateLocked(slots, cols, values);
+        });
+    }
+
+    // a null value resets the column to its default
+    private int updateLocked(int[] slots, int[] cols, Object[] values) {
+        for (int i = 0; i < cols.length; i++) {
+            FieldDef f = columnDefs.get(cols[i]);
+            Object v = values[i];
+            if (v == null) {
+                if (f.required()) throw new JsonicException(com.saghar.jsonicdb.util.Errors.missingRequired(f.name()));
+                values[i] = v = f.type().defaultValue();
+            }
+            // as on insert, times outside the range TimeCodec stores are rejected before anything is written
+            if (v instanceof LocalDateTime t) TimeCodec.encode(t);
+            if (f.unique() && slots.length > 0) {
+                // every matched row would end up holding v, so more than one row is always a collision
+                Integer owner = uniqueIndex.get(canon(f.name())).get(v);
+                if (slots.length > 1 || (owner != null && owner != slots[0]))
                     throw new JsonicException(com.saghar.jsonicdb.util.Errors.duplicateUnique(f.name()));
             }
         }
+        if (slots.length == 0) return 0;
 
-        int count = 0;
-        for (DataRecord r : records) {
-            if (!predicate.test(r)) continue;
+        if (wal != null) logged(wal.logUpdate(this, slots, cols, values));
+        applyUpdate(slots, cols, values);
+        return slots.length;
+    }
 
-            // update indexes safely
-            removeFromIndexes(r);
-            for (Map.Entry<String, Object> e : updates.entrySet()) {
-                r.put(canon(e.getKey()), e.getValue());
-            }
-            // required check after updates
-            for (FieldDef f : fields.values()) {
-                if (f.required() && r.get(canon(f.name())) == null) {
-                    // rollback to indexes only (values already changed); simplest: throw and leave state inconsistent is bad.
-                    // Instead: re-add indexes with current values before throwing.
-                    addToIndexes(r);
-                    throw new JsonicException(com.saghar.jsonicdb.util.Errors.missingRequired(f.name()));
+    void applyUpdate(int[] slots, int[] cols, Object[] values) {
+        int k = cols.length, width = columnDefs.size();
+        long version = published.version() + 1;
+        // with no view open, none can need the old rows, and quiesce() keeps new ones out until unlock
+        boolean keepUndo = !quiesce();
+        // a large update moves its hash and inverted entries afterwards, one pass per posting list
+        Moved[] moved = new Moved[k];
+        if (slots.length > BULK) {
+            for (int j = 0; j < k; j++) {
+                String key = canon(columnDefs.get(cols[j]).name());
+                if (hashIndexes.containsKey(key) || invertedIndexes.containsKey(key)) moved[j] = new Moved();
+            }
+        }
+        for (int slot : slots) {
+            int j = 0;
+            while (j < k && Objects.equals(store.get(slot, cols[j]), values[j])) j++;
+            if (j == k) continue;
+            if (keepUndo) saveUndo(slot, width, version);
+            modified = true;
+            for (; j < k; j++) {
+                int c = cols[j];
+                Object old = store.get(slot, c);
+                if (Objects.equals(old, values[j])) continue;
+                Moved m = moved[j];
+                if (m == null) removeFromIndexes(slot, c);
+                else {
+                    removeFromOrderedIndexes(slot, c);
+                    m.note(slot, old);
                 }
+                store.set(slot, c, values[j]);
+                if (m == null) addToIndexes(slot, c);
+                else addToOrderedIndexes(slot, c);
             }
-            addToIndexes(r);
-            count++;
         }
-        return count;
+        for (int j = 0; j < k; j++) {
+            if (moved[j] != null && !moved[j].slots().isEmpty()) movePostings(cols[j], moved[j]);
+        }
+        if (store instanceof ColumnStore cs && cs.hasGarbage() && quiesce()) cs.reclaim();
+    }
+
+    // slots a bulk update took off their old values in one column, and those values (list elements too)
+    private record Moved(BitSet slots, Set<Object> values, Set<String> elements) {
+        Moved() {
+            this(new BitSet(), new HashSet<>(), new HashSet<>());
+        }
+
+        void note(int slot, Object old) {
+            slots.set(slot);
+            values.add(old);
+            if (old instanceof List<?> l) for (Object x : l) elements.add((String) x);
+        }
+    }
+
+    // every moved slot now holds the same value, so each old list is filtered once and the new one merged once
+    private void movePostings(int c, Moved m) {
+        String key = canon(columnDefs.get(c).name());
+        int[] slots = m.slots().stream().toArray();
+        Object now = store.get(slots[0], c);
+        HashIndex hash = hashIndexes.get(key);
+        if (hash != null) {
+            hash.removeAll(m.values(), m.slots());
+            hash.addAll(now, slots);
+        }
+        InvertedIndex inverted = invertedIndexes.get(key);
+        if (inverted != null) {
+            inverted.removeAll(m.elements(), m.slots());
+            inverted.addAll((List<?>) now, slots);
+        }
+    }
+
+    // keeps the row as open views see it, then stamps the slot so they look for it before reading the store
+    private void saveUndo(int slot, int width, long version) {
+        if ((long) SLOTS.get(updated, slot) == version) return; // already saved in this version
+        Object[] row = new Object[width];
+        for (int c = 0; c < width; c++) row[c] = store.get(slot, c);
+        undo.put(slot, new Undo(version, row, undo.get(slot)));
+        lastInPlaceUpdate = version;
+        SLOTS.setRelease(updated, slot, version);
+        VarHandle.storeStoreFence();
     }
 
     public String formatTable(List<DataRecord> rs) {
-        int width = Math.max(10, fields.values().stream().mapToInt(f -> f.name().length()).max().orElse(10));
-        StringBuilder sb = new StringBuilder();
-        // header
-        sb.append("| ");
-        for (FieldDef f : fields.values()) {
-            sb.append(pad(f.name(), width)).append(" | ");
+        return formatTable(rs, columnDefs.size());
+    }
+
+    /**
+     * Formats the first {@code columns} fields only, as seen by a {@link ReadView#columns() view}.
+     */
+    public String formatTable(List<DataRecord> rs, int columns) {
+        StringWriter out = new StringWriter();
+        TableWriter table = new TableWriter(this, columns, out);
+        try {
+            table.header();
+            for (DataRecord r : rs) table.row(r.store(), r.slot());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // a StringWriter does not throw
         }
-        sb.append("\n|");
-        for (int i = 0; i < fields.size(); i++) sb.append("-".repeat(width + 2)).append("|");
-        sb.append("\n");
+        return out.toString();
+    }
 
-        for (DataRecord r : rs) {
-            sb.append("| ");
-            for (FieldDef f : fields.values()) {
-                Object v = r.get(canon(f.name()));
-                sb.append(pad(String.valueOf(v), width)).append(" | ");
-            }
-            sb.append("\n");
+    // the caller holds the write lock, which keeps the store still for the scan's worker threads too
+    private int[] matching(java.util.function.Predicate<DataRecord> predicate) {
+        return scanSettings.scan(store.size(), slot -> !dead.get(slot) && predicate.test(record(slot)));
+    }
+
+    private void removeFromIndexes(int slot) {
+        removeFromOrderedIndexes(slot);
+        for (Map.Entry<String, HashIndex> e : hashIndexes.entrySet()) {
+            e.getValue().remove(store.get(slot, columns.get(e.getKey())), slot);
+        }
+        for (Map.Entry<String, InvertedIndex> e : invertedIndexes.entrySet()) {
+            e.getValue().remove((List<?>) store.get(slot, columns.get(e.getKey())), slot);
         }
-        return sb.toString();
     }
 
-    private void removeFromIndexes(DataRecord r) {
-        for (Map.Entry<String, Map<Object, DataRecord>> e : uniqueIndex.entrySet()) {
-            Object v = r.get(e.getKey());
+    // unique and range entries: keyed lookups whose removal cost does not grow with duplicates
+    private void removeFromOrderedIndexes(int slot) {
+        for (Map.Entry<String, Map<Object, Integer>> e : uniqueIndex.entrySet()) {
+            Object v = store.get(slot, columns.get(e.getKey()));
             // remove only if points to this record
-            if (e.getValue().get(v) == r) e.getValue().remove(v);
+            Integer owner = e.getValue().get(v);
+            if (owner != null && owner == slot) e.getValue().remove(v);
+        }
+        for (Map.Entry<String, RangeIndex> e : rangeIndexes.entrySet()) {
+            int c = columns.get(e.getKey());
+            e.getValue().remove(RangeIndex.keyAt(store, slot, c, columnDefs.get(c).type()), slot);
         }
     }
 
-    private void addToIndexes(DataRecord r) {
-        for (Map.Entry<String, Map<Object, DataRecord>> e : uniqueIndex.entrySet()) {
-            Object v = r.get(e.getKey());
-            e.getValue().put(v, r);
+    private void addToIndexes(int slot) {
+        for (Map.Entry<String, Map<Object, Integer>> e : uniqueIndex.entrySet()) {
+            Object v = store.get(slot, columns.get(e.getKey()));
+            e.getValue().put(v, slot);
+        }
+        for (Map.Entry<String, HashIndex> e : hashIndexes.entrySet()) {
+            e.getValue().add(store.get(slot, columns.get(e.getKey())), slot);
+        }
+        for (Map.Entry<String, RangeIndex> e : rangeIndexes.entrySet()) {
+            int c = columns.get(e.getKey());
+            e.getValue().add(RangeIndex.keyAt(store, slot, c, columnDefs.get(c).type()), slot);
+        }
+        for (Map.Entry<String, InvertedIndex> e : invertedIndexes.entrySet()) {
+            e.getValue().add((List<?>) store.get(slot, columns.get(e.getKey())), slot);
         }
     }
 
-    private static String canon(String s) {
-        return s.trim().toLowerCase();
+    private void removeFromIndexes(int slot, int c) {
+        removeFromOrderedIndexes(slot, c);
+        String key = canon(columnDefs.get(c).name());
+        HashIndex hash = hashIndexes.get(key);
+        if (hash != null) hash.remove(store.get(slot, c), slot);
+        InvertedIndex inverted = invertedIndexes.get(key);
+        if (inverted != null) inverted.remove((List<?>) store.get(slot, c), slot);
+    }
+
+    private void removeFromOrderedIndexes(int slot, int c) {
+        String key = canon(columnDefs.get(c).name());
+        Map<Object, Integer> unique = uniqueIndex.get(key);
+        if (unique != null) {
+            Object v = store.get(slot, c);
+            Integer owner = unique.get(v);
+            if (owner != null && owner == slot) unique.remove(v);
+        }
+        RangeIndex range = rangeIndexes.get(key);
+        if (range != null) range.remove(RangeIndex.keyAt(store, slot, c, columnDefs.get(c).type()), slot);
+    }
+
+    private void addToIndexes(int slot, int c) {
+        addToOrderedIndexes(slot, c);
+        String key = canon(columnDefs.get(c).name());
+        HashIndex hash = hashIndexes.get(key);
+        if (hash != null) hash.add(store.get(slot, c), slot);
+        InvertedIndex inverted = invertedIndexes.get(key);
+        if (inverted != null) inverted.add((List<?>) store.get(slot, c), slot);
+    }
+
+    private void addToOrderedIndexes(int slot, int c) {
+        String key = canon(columnDefs.get(c).name());
+        Map<Object, Integer> unique = uniqueIndex.get(key);
+        if (unique != null) unique.put(store.get(slot, c), slot);
+        RangeIndex range = rangeIndexes.get(key);
+        if (range != null) range.add(RangeIndex.keyAt(store, slot, c, columnDefs.get(c).type()), slot);
     }
 
-    private static String pad(String s, int w) {
-        if (s == null) s = "null";
-        if (s.length() >= w) return s.substring(0, w);
-        return s + " ".repeat(w - s.length());
+    /**
+     * Copies the type's fields, tombstones and columns. Only array copies happen here; encoding the
+     * copy is left to the caller.
+     */
+    Snapshot.TypeImage image() {
+        return read(this::imageLocked);
+    }
+
+    private Snapshot.TypeImage imageLocked() {
+        ColumnImage[] images = new ColumnImage[columnDefs.size()];
+        for (int c = 0; c < images.length; c++) {
+            images[c] = store instanceof ColumnStore cs ? cs.image(c) : ((RowStore) store).image(c);
+        }
+        return new Snapshot.TypeImage(name, storage, List.copyOf(columnDefs), store.size(), dead.toLongArray(), images);
+    }
+
+    /**
+     * Fills a type that has its fields but no rows from a snapshot image, then builds its indexes.
+     */
+    void restore(Snapshot.TypeImage image) {
+        write(() -> {
+            if (store instanceof ColumnStore cs) cs.load(image.columns(), image.slots());
+            else ((RowStore) store).load(image.columns(), image.slots());
+            dead.clear();
+            dead.or(BitSet.valueOf(image.dead()));
+            deadCount = dead.cardinality();
+            resetVersions();
+            for (int slot = dead.nextSetBit(0); slot >= 0; slot = dead.nextSetBit(slot + 1)) died[slot] = 0;
+            rebuildIndexes();
+            return null;
+        });
+    }
+
+    // after slots were renumbered or replaced, with no view open: no slot carries history any more
+    private void resetVersions() {
+        long[] live = new long[Math.max(16, store.size())];
+        Arrays.fill(live, Long.MAX_VALUE);
+        died = live;
+        updated = new long[live.length];
+        undo.clear();
+        modified = true;
+    }
+
+    // slots shift after a compaction, so positional indexes are rebuilt from the live slots
+    private void rebuildIndexes() {
+        for (Map<Object, Integer> idx : uniqueIndex.values()) idx.clear();
+        for (HashIndex idx : hashIndexes.values()) idx.clear();
+        for (RangeIndex idx : rangeIndexes.values()) idx.clear();
+        for (InvertedIndex idx : invertedIndexes.values()) idx.clear();
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (!dead.get(slot)) addToIndexes(slot);
+        }
+    }
+
+    private static String canon(String s) {
+        return s.trim().toLowerCase();
     }
 }
@@ -2,22 +2,205 @@ package com.saghar.jsonicdb.core;
 
 import com.saghar.jsonicdb.util.JsonicException;
 
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-public final class Database {
-    private final Map<String, DataType> types = new HashMap<>();
+/**
+ * The set of types. Safe for concurrent use: looking types up and creating them is lock-free, and
+ * everything else locks per type (see {@link DataType}), so traffic on one type never waits for another.
+ */
+public final class Database implements AutoCloseable {
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+
+    private final Map<String, DataType> types = new ConcurrentHashMap<>();
+    private final StorageMode defaultStorage;
+    private volatile double compactionThreshold = DataType.DEFAULT_COMPACTION_THRESHOLD;
+    private volatile ScanSettings scanSettings = ScanSettings.DEFAULT;
+    private WriteAheadLog wal;
+    private Path checkpointPath; // the log's snapshot, null when not durable
+
+    public Database() {
+        this(StorageMode.ROW);
+    }
+
+    public Database(StorageMode defaultStorage) {
+        this.defaultStorage = defaultStorage;
+    }
+
+    /**
+     * Opens a durable database: loads the last {@link #checkpoint checkpoint} of {@code log} if there is
+     * one, replays the write-ahead log after it (recovering from a torn tail) and logs every later
+     * create, insert, update and delete to it.
+     */
+    public static Database open(Path log, Durability durability) {
+        return open(log, durability, DEFAULT_FLUSH_INTERVAL_MILLIS, StorageMode.ROW);
+    }
+
+    /**
+     * {@code flushIntervalMillis} is how often the log is flushed under {@link Durability#INTERVAL}
+     * and {@link Durability#OFF}.
+     */
+    public static Database open(Path log, Durability durability, long flushIntervalMillis, StorageMode defaultStorage) {
+        Database db = new Database(defaultStorage);
+        Path checkpoint = log.resolveSibling(log.getFileName() + ".snapshot");
+        long lsn = Files.exists(checkpoint) ? db.restore(Snapshot.read(checkpoint)) : 0;
+        db.wal = WriteAheadLog.open(log, durability, flushIntervalMillis, db, lsn);
+        db.checkpointPath = checkpoint;
+        for (DataType dt : db.types.values()) dt.attach(db.wal);
+        return db;
+    }
+
+    /**
+     * Reads a database written by {@link #saveSnapshot}. The result is in-memory, whatever the source was.
+     */
+    public static Database loadSnapshot(Path file) {
+        return loadSnapshot(file, StorageMode.ROW);
+    }
+
+    public static Database loadSnapshot(Path file, StorageMode defaultStorage) {
+        Database db = new Database(defaultStorage);
+        db.restore(Snapshot.read(file));
+        return db;
+    }
+
+    /**
+     * Writes every type, its records and tombstones to {@code file} in the binary snapshot format.
+     * Rows are copied out first and encoded afterwards, so mutations are held up only for the copy.
+     */
+    public void saveSnapshot(Path file) {
+        Snapshot.write(file, capture());
+    }
+
+    /**
+     * Snapshots a durable database next to its log ({@code <log>.snapshot}) and drops the log records
+     * the snapshot covers, so the next {@link #open} maps the snapshot and replays only the tail.
+     */
+    public void checkpoint() {
+        if (wal == null) throw new JsonicException("checkpoint needs a durable database");
+        Snapshot.Contents contents = capture();
+        // the log must hold everything the snapshot does before the log can be cut
+        wal.sync();
+        Snapshot.write(checkpointPath, contents);
+        wal.truncateBefore(contents.lsn());
+    }
+
+    /**
+     * Copies every type at one log position: all types are read-locked (in name order) while the
+     * position is taken and the columns copied, so no type can log a change in between.
+     */
+    private Snapshot.Contents capture() {
+        while (true) {
+            List<DataType> locked = new ArrayList<>(types.values());
+            locked.sort(Comparator.comparing(dt -> canon(dt.name())));
+            for (DataType dt : locked) dt.readLock().lock();
+            try {
+                long lsn = wal == null ? 0 : wal.appendedLsn();
+                // a type created since the list was taken may have logged before lsn; start over
+                if (types.size() != locked.size()) continue;
+                List<Snapshot.TypeImage> images = new ArrayList<>(locked.size());
+                for (DataType dt : locked) images.add(dt.image());
+                return new Snapshot.Contents(lsn, images);
+            } finally {
+                for (DataType dt : locked) dt.readLock().unlock();
+            }
+        }
+    }
+
+    private long restore(Snapshot.Contents contents) {
+        for (Snapshot.TypeImage image : contents.types()) {
+            createType(image.name(), image.storage(), image.fields()).restore(image);
+        }
+        return contents.lsn();
+    }
+
+    public boolean isDurable() {
+        return wal != null;
+    }
+
+    /**
+     * Forces everything logged so far to disk, regardless of the durability mode.
+     */
+    public void sync() {
+        if (wal != null) wal.sync();
+    }
+
+    /**
+     * Flushes and closes the write-ahead log; a no-op for an in-memory database.
+     */
+    @Override
+    public void close() {
+        if (wal != null) wal.close();
+    }
+
+    public StorageMode defaultStorage() {
+        return defaultStorage;
+    }
+
+    /**
+     * Sets the dead-slot ratio at which deletes compact, for existing and future types.
+     */
+    public void setCompactionThreshold(double threshold) {
+        if (!(threshold >= 0 && threshold <= 1))
+            throw new JsonicException("compaction threshold must be between 0 and 1: " + threshold);
+        for (DataType dt : types.values()) dt.setCompactionThreshold(threshold);
+        this.compactionThreshold = threshold;
+    }
+
+    /**
+     * Sets how full scans are parallelized, for existing and future types.
+     */
+    public void setScanSettings(ScanSettings settings) {
+        for (DataType dt : types.values()) dt.setScanSettings(settings);
+        this.scanSettings = settings;
+    }
 
     public DataType getType(String name) {
         return types.get(canon(name));
     }
 
     public DataType createType(String name) {
+        return createType(name, defaultStorage, List.of());
+    }
+
+    public DataType createType(String name, StorageMode storage) {
+        return createType(name, storage, List.of());
+    }
+
+    public DataType createType(String name, List<FieldDef> fields) {
+        return createType(name, defaultStorage, fields);
+    }
+
+    /**
+     * Creates a type with its whole schema. The fields are added before the type is published, and
+     * its log record carries them, so neither readers nor recovery ever see part of the schema.
+     */
+    public DataType createType(String name, StorageMode storage, List<FieldDef> fields) {
         String key = canon(name);
         if (types.containsKey(key)) throw new JsonicException(com.saghar.jsonicdb.util.Errors.typeAlreadyExists(name));
-        DataType dt = new DataType(name);
-        types.put(key, dt);
-        return dt;
+        DataType dt = new DataType(name, storage);
+        for (FieldDef f : fields) dt.addField(f); // not attached yet, so nothing is logged per field
+        dt.setCompactionThreshold(compactionThreshold);
+        dt.setScanSettings(scanSettings);
+        dt.attach(wal);
+        // published write-locked, so nothing reaches the type before its creation is logged
+        return dt.write(() -> {
+            if (types.putIfAbsent(key, dt) != null)
+                throw new JsonicException(com.saghar.jsonicdb.util.Errors.typeAlreadyExists(name));
+            if (wal != null) {
+                try {
+                    dt.logged(wal.logCreateType(dt));
+                } catch (RuntimeException ex) {
+                    types.remove(key, dt);
+                    throw ex;
+                }
+            }
+            return dt;
+        });
     }
 
     private static String canon(String s) {
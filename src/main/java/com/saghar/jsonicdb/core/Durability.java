@@ -0,0 +1,32 @@
+package com.saghar.jsonicdb.core;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+/**
+ * When a mutation logged to the write-ahead log counts as done.
+ */
+public enum Durability {
+    /**
+     * Every mutation waits until its log record is fsynced. Concurrent mutations share one fsync.
+     */
+    SYNC,
+    /**
+     * Mutations return at once; the log is written and fsynced every flush interval, so a crash loses
+     * at most that much.
+     */
+    INTERVAL,
+    /**
+     * The log is written every flush interval but never fsynced; survives a process crash, not a power loss.
+     */
+    OFF;
+
+    public static Durability fromSpec(String spec) {
+        String s = spec.trim().toLowerCase();
+        return switch (s) {
+            case "sync", "always", "every-commit" -> SYNC;
+            case "interval", "periodic" -> INTERVAL;
+            case "off", "none", "async" -> OFF;
+            default -> throw new JsonicException("Invalid durability mode: " + spec);
+        };
+    }
+}
@@ -7,13 +7,24 @@ public final class FieldDef {
     private final ValueType type;
     private final boolean required;
     private final boolean unique;
+    private final IndexKind index;
 
     public FieldDef(String name, ValueType type, boolean required, boolean unique) {
+        this(name, type, required, unique, IndexKind.NONE);
+    }
+
+    public FieldDef(String name, ValueType type, boolean required, boolean unique, IndexKind index) {
         Checks.require(name != null && !name.isBlank(), "Field name is empty");
         this.name = name;
         this.type = type;
         this.required = required;
         this.unique = unique;
+        this.index = index == null ? IndexKind.NONE : index;
+        // checked here so a whole schema can be validated before its type is created
+        Checks.require(this.index != IndexKind.RANGE || type == ValueType.INT || type == ValueType.DOUBLE || type == ValueType.TIME,
+                "range index needs an int, double or time field: " + name);
+        Checks.require(this.index != IndexKind.INVERTED || type == ValueType.STRING_LIST,
+                "inverted index needs a string list field: " + name);
     }
 
     public String name() {
@@ -31,4 +42,8 @@ public final class FieldDef {
     public boolean unique() {
         return unique;
     }
+
+    public IndexKind index() {
+        return index;
+    }
 }
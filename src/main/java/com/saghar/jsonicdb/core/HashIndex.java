@@ -0,0 +1,65 @@
+package com.saghar.jsonicdb.core;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Non-unique equality index for one field: value -> posting list of the slots holding it.
+ */
+public final class HashIndex {
+    private final Map<Object, PostingList> postings = new HashMap<>();
+
+    public void add(Object value, int slot) {
+        postings.computeIfAbsent(value, k -> new PostingList()).add(slot);
+    }
+
+    /**
+     * Adds {@code slots} (ascending) to the list of {@code value} in one merge.
+     */
+    public void addAll(Object value, int[] slots) {
+        postings.computeIfAbsent(value, k -> new PostingList()).addAll(slots);
+    }
+
+    public void remove(Object value, int slot) {
+        PostingList p = postings.get(value);
+        if (p == null) return;
+        p.remove(slot);
+        if (p.isEmpty()) postings.remove(value);
+    }
+
+    /**
+     * Slots holding {@code value} in ascending order (empty when none).
+     */
+    public int[] lookup(Object value) {
+        PostingList p = postings.get(value);
+        return p == null ? new int[0] : p.toArray();
+    }
+
+    public int count(Object value) {
+        PostingList p = postings.get(value);
+        return p == null ? 0 : p.size();
+    }
+
+    public int distinctValues() {
+        return postings.size();
+    }
+
+    /**
+     * Removes the slots in {@code doomed} from the lists of {@code values}: one pass over each list
+     * those slots were in, instead of a shift per slot. Lists of other values are not touched.
+     */
+    public void removeAll(Collection<?> values, BitSet doomed) {
+        for (Object v : values) {
+            PostingList p = postings.get(v);
+            if (p == null) continue;
+            p.removeAll(doomed);
+            if (p.isEmpty()) postings.remove(v);
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+    }
+}
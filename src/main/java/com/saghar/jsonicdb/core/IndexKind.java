@@ -0,0 +1,30 @@
+package com.saghar.jsonicdb.core;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+public enum IndexKind {
+    NONE,
+    /**
+     * Multi-valued hash index: value -> posting list of slots.
+     */
+    HASH,
+    /**
+     * Ordered B+tree over primitive keys, for range predicates on INT, DOUBLE and TIME fields.
+     */
+    RANGE,
+    /**
+     * Element -> posting list of slots for STRING_LIST fields, used by {@code include}.
+     */
+    INVERTED;
+
+    public static IndexKind fromSpec(String spec) {
+        String s = spec.trim().toLowerCase();
+        return switch (s) {
+            case "false", "none" -> NONE;
+            case "true", "hash" -> HASH;
+            case "range", "sorted", "btree" -> RANGE;
+            case "inverted" -> INVERTED;
+            default -> throw new JsonicException("Invalid index kind: " + spec);
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.saghar.jsonicdb.core;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Element -> posting list of slots for a STRING_LIST field, so {@code include} probes one list instead
+ * of scanning every record's values.
+ */
+public final class InvertedIndex {
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    public void add(List<?> elements, int slot) {
+        for (Object e : distinct(elements)) postings.computeIfAbsent((String) e, k -> new PostingList()).add(slot);
+    }
+
+    /**
+     * Bulk form of {@link #add}: adds {@code slots} (ascending), which all hold {@code elements}, with
+     * one merge per element's posting list.
+     */
+    public void addAll(List<?> elements, int[] slots) {
+        for (Object e : distinct(elements)) postings.computeIfAbsent((String) e, k -> new PostingList()).addAll(slots);
+    }
+
+    public void remove(List<?> elements, int slot) {
+        for (Object e : distinct(elements)) {
+            PostingList p = postings.get((String) e);
+            if (p == null) continue;
+            p.remove(slot);
+            if (p.isEmpty()) postings.remove((String) e);
+        }
+    }
+
+    /**
+     * Slots whose list contains {@code element}, in ascending order (empty when none).
+     */
+    public int[] lookup(String element) {
+        PostingList p = postings.get(element);
+        return p == null ? new int[0] : p.toArray();
+    }
+
+    public int count(String element) {
+        PostingList p = postings.get(element);
+        return p == null ? 0 : p.size();
+    }
+
+    /**
+     * Bulk form of {@link #remove} for large deletes and updates: {@code elements} holds every element
+     * of the doomed slots' lists, and only those elements' posting lists are walked.
+     */
+    public void removeAll(Collection<String> elements, BitSet doomed) {
+        for (String e : elements) {
+            PostingList p = postings.get(e);
+            if (p == null) continue;
+            p.removeAll(doomed);
+            if (p.isEmpty()) postings.remove(e);
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+    }
+
+    private static Iterable<?> distinct(List<?> elements) {
+        if (elements.size() < 2) return elements;
+        Set<Object> seen = new HashSet<>(elements);
+        return seen.size() == elements.size() ? elements : seen;
+    }
+}
@@ -0,0 +1,89 @@
+package com.saghar.jsonicdb.core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A sorted, duplicate-free list of slots. Appends in slot order are O(1); other inserts and removals
+ * shift the tail, which stays cheap for the short lists a selective index produces.
+ */
+public final class PostingList {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] slots = EMPTY;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int i) {
+        return slots[i];
+    }
+
+    public boolean contains(int slot) {
+        return Arrays.binarySearch(slots, 0, size, slot) >= 0;
+    }
+
+    public void add(int slot) {
+        int at = (size == 0 || slots[size - 1] < slot) ? size : Arrays.binarySearch(slots, 0, size, slot);
+        if (at >= 0 && at < size) return; // already present
+        if (at < 0) at = -at - 1;
+        if (size == slots.length) slots = Arrays.copyOf(slots, Math.max(4, size + (size >> 1)));
+        System.arraycopy(slots, at, slots, at + 1, size - at);
+        slots[at] = slot;
+        size++;
+    }
+
+    public boolean remove(int slot) {
+        int at = Arrays.binarySearch(slots, 0, size, slot);
+        if (at < 0) return false;
+        System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Merges {@code sorted} (ascending, duplicate-free) in one pass; slots already present stay once.
+     */
+    public void addAll(int[] sorted) {
+        if (sorted.length == 0) return;
+        if (size == 0 || slots[size - 1] < sorted[0]) {
+            if (size + sorted.length > slots.length) slots = Arrays.copyOf(slots, Math.max(size + sorted.length, size + (size >> 1)));
+            System.arraycopy(sorted, 0, slots, size, sorted.length);
+            size += sorted.length;
+            return;
+        }
+        int[] merged = new int[Math.max(size + sorted.length, size + (size >> 1))];
+        int i = 0, j = 0, w = 0;
+        while (i < size && j < sorted.length) {
+            int a = slots[i], b = sorted[j];
+            merged[w++] = Math.min(a, b);
+            if (a <= b) i++;
+            if (b <= a) j++;
+        }
+        while (i < size) merged[w++] = slots[i++];
+        while (j < sorted.length) merged[w++] = sorted[j++];
+        slots = merged;
+        size = w;
+    }
+
+    /**
+     * Drops every slot set in {@code doomed} in one pass.
+     */
+    public void removeAll(BitSet doomed) {
+        int w = 0;
+        for (int i = 0; i < size; i++) {
+            if (!doomed.get(slots[i])) slots[w++] = slots[i];
+        }
+        size = w;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(slots, size);
+    }
+}
@@ -0,0 +1,287 @@
+package com.saghar.jsonicdb.core;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Ordered index for INT, DOUBLE and TIME fields: a B+tree over primitive (key, slot) pairs.
+ * Keys are longs (ints widened, doubles mapped to order-preserving bits, times as {@link TimeCodec}
+ * nanos), so a range scan touches only the leaves that hold matches.
+ * <p>
+ * Removal does not rebalance: leaves may run underfull, which keeps deletes cheap, and a rebuild
+ * (after compaction) restores a packed tree.
+ */
+public final class RangeIndex {
+    private static final int ORDER = 64;
+
+    private Node root = new Leaf();
+    private Leaf first = (Leaf) root;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public void add(long key, int slot) {
+        Split split = root.insert(key, slot);
+        if (split != null) {
+            Inner r = new Inner();
+            r.children[0] = root;
+            r.keys[0] = split.key;
+            r.slots[0] = split.slot;
+            r.children[1] = split.right;
+            r.n = 2;
+            root = r;
+        }
+        size++;
+    }
+
+    public boolean remove(long key, int slot) {
+        Node node = root;
+        while (node instanceof Inner in) node = in.children[in.childFor(key, slot)];
+        Leaf leaf = (Leaf) node;
+        int at = leaf.find(key, slot);
+        if (at < 0) return false;
+        System.arraycopy(leaf.keys, at + 1, leaf.keys, at, leaf.n - at - 1);
+        System.arraycopy(leaf.slots, at + 1, leaf.slots, at, leaf.n - at - 1);
+        leaf.n--;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        root = first = new Leaf();
+        size = 0;
+    }
+
+    /**
+     * Slots whose key lies within the given bounds, in ascending slot order. Null bounds are open.
+     */
+    public int[] range(Long lo, boolean loInclusive, Long hi, boolean hiInclusive) {
+        int[][] buf = {new int[16]};
+        int n = visit(lo, loInclusive, hi, hiInclusive, Integer.MAX_VALUE, (slot, i) -> {
+            if (i == buf[0].length) buf[0] = Arrays.copyOf(buf[0], i * 2);
+            buf[0][i] = slot;
+        });
+        int[] r = Arrays.copyOf(buf[0], n);
+        Arrays.sort(r);
+        return r;
+    }
+
+    /**
+     * Number of entries within the bounds, counting no further than {@code limit}.
+     */
+    public int count(Long lo, boolean loInclusive, Long hi, boolean hiInclusive, int limit) {
+        if (lo == null && hi == null) return Math.min(size, limit);
+        return visit(lo, loInclusive, hi, hiInclusive, limit, (slot, i) -> {
+        });
+    }
+
+    /**
+     * Up to {@code limit} slots that {@code accept} takes, in key order (ties by slot), or in exactly the
+     * reverse order when {@code descending}. Stops as soon as it has enough.
+     */
+    public int[] ordered(boolean descending, IntPredicate accept, int limit) {
+        int[] out = new int[Math.min(limit, 16)];
+        int n = 0;
+        if (!descending) {
+            for (Leaf leaf = first; leaf != null && n < limit; leaf = leaf.next) {
+                for (int i = 0; i < leaf.n && n < limit; i++) {
+                    if (!accept.test(leaf.slots[i])) continue;
+                    if (n == out.length) out = Arrays.copyOf(out, Math.min(limit, n * 2));
+                    out[n++] = leaf.slots[i];
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+        // leaves only link forward, so the descending walk goes down the tree right to left
+        int[][] buf = {out};
+        n = descend(root, accept, limit, buf, 0);
+        return Arrays.copyOf(buf[0], n);
+    }
+
+    private static int descend(Node node, IntPredicate accept, int limit, int[][] out, int n) {
+        if (node instanceof Inner in) {
+            for (int c = in.n - 1; c >= 0 && n < limit; c--) n = descend(in.children[c], accept, limit, out, n);
+            return n;
+        }
+        Leaf leaf = (Leaf) node;
+        for (int i = leaf.n - 1; i >= 0 && n < limit; i--) {
+            if (!accept.test(leaf.slots[i])) continue;
+            if (n == out[0].length) out[0] = Arrays.copyOf(out[0], Math.min(limit, n * 2));
+            out[0][n++] = leaf.slots[i];
+        }
+        return n;
+    }
+
+    /**
+     * Walks entries in key order from the lower bound, stopping past the upper bound or after
+     * {@code limit} entries. Returns the number visited.
+     */
+    private int visit(Long lo, boolean loInclusive, Long hi, boolean hiInclusive, int limit, Visitor visitor) {
+        Leaf leaf;
+        int i;
+        if (lo == null) {
+            leaf = first;
+            i = 0;
+        } else {
+            int fromSlot = loInclusive ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            Node node = root;
+            while (node instanceof Inner in) node = in.children[in.childFor(lo, fromSlot)];
+            leaf = (Leaf) node;
+            i = leaf.lowerBound(lo, fromSlot);
+        }
+        int n = 0;
+        for (; leaf != null; leaf = leaf.next, i = 0) {
+            for (; i < leaf.n; i++) {
+                long k = leaf.keys[i];
+                if (n == limit || (hi != null && (hiInclusive ? k > hi : k >= hi))) return n;
+                visitor.visit(leaf.slots[i], n++);
+            }
+        }
+        return n;
+    }
+
+    @FunctionalInterface
+    private interface Visitor {
+        void visit(int slot, int ordinal);
+    }
+
+    // the key of a lookup bound; a time outside the stored range clamps past every key
+    public static long key(ValueType type, Object value) {
+        return switch (type) {
+            case INT -> (Integer) value;
+            case DOUBLE -> doubleKey((Double) value);
+            case TIME -> TimeCodec.bound((LocalDateTime) value);
+            default -> throw new IllegalArgumentException("No range key for " + type);
+        };
+    }
+
+    public static long keyAt(RecordStore store, int slot, int column, ValueType type) {
+        return switch (type) {
+            case INT -> store.getInt(slot, column);
+            case DOUBLE -> doubleKey(store.getDouble(slot, column));
+            case TIME -> store.getTime(slot, column);
+            default -> throw new IllegalArgumentException("No range key for " + type);
+        };
+    }
+
+    // flips the magnitude bits of negatives so signed long order matches Double.compare
+    static long doubleKey(double d) {
+        long bits = Double.doubleToLongBits(d);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static int compare(long k1, int s1, long k2, int s2) {
+        int c = Long.compare(k1, k2);
+        return c != 0 ? c : Integer.compare(s1, s2);
+    }
+
+    private record Split(long key, int slot, Node right) {
+    }
+
+    private abstract static sealed class Node permits Leaf, Inner {
+        abstract Split insert(long key, int slot);
+    }
+
+    private static final class Leaf extends Node {
+        final long[] keys = new long[ORDER];
+        final int[] slots = new int[ORDER];
+        int n;
+        Leaf next;
+
+        /**
+         * First position whose entry is >= (key, slot).
+         */
+        int lowerBound(long key, int slot) {
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(keys[mid], slots[mid], key, slot) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        int find(long key, int slot) {
+            int at = lowerBound(key, slot);
+            return (at < n && keys[at] == key && slots[at] == slot) ? at : -1;
+        }
+
+        Split insert(long key, int slot) {
+            int at = lowerBound(key, slot);
+            if (n < ORDER) {
+                put(at, key, slot);
+                return null;
+            }
+            Leaf right = new Leaf();
+            int half = ORDER / 2;
+            System.arraycopy(keys, half, right.keys, 0, ORDER - half);
+            System.arraycopy(slots, half, right.slots, 0, ORDER - half);
+            right.n = ORDER - half;
+            n = half;
+            if (at <= half) put(at, key, slot);
+            else right.put(at - half, key, slot);
+            right.next = next;
+            next = right;
+            return new Split(right.keys[0], right.slots[0], right);
+        }
+
+        private void put(int at, long key, int slot) {
+            System.arraycopy(keys, at, keys, at + 1, n - at);
+            System.arraycopy(slots, at, slots, at + 1, n - at);
+            keys[at] = key;
+            slots[at] = slot;
+            n++;
+        }
+    }
+
+    /**
+     * children[i] holds entries below separator i; children[i + 1] those at or above it.
+     */
+    private static final class Inner extends Node {
+        final long[] keys = new long[ORDER];
+        final int[] slots = new int[ORDER];
+        final Node[] children = new Node[ORDER + 1];
+        int n; // number of children
+
+        int childFor(long key, int slot) {
+            int lo = 0, hi = n - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(key, slot, keys[mid], slots[mid]) < 0) hi = mid;
+                else lo = mid + 1;
+            }
+            return lo;
+        }
+
+        Split insert(long key, int slot) {
+            int c = childFor(key, slot);
+            Split split = children[c].insert(key, slot);
+            if (split == null) return null;
+
+            // insert separator at c and the new right child at c + 1
+            System.arraycopy(keys, c, keys, c + 1, n - 1 - c);
+            System.arraycopy(slots, c, slots, c + 1, n - 1 - c);
+            System.arraycopy(children, c + 1, children, c + 2, n - 1 - c);
+            keys[c] = split.key;
+            slots[c] = split.slot;
+            children[c + 1] = split.right;
+            n++;
+            if (n <= ORDER) return null;
+
+            // overflow: n == ORDER + 1 children, push the middle separator up
+            int mid = n / 2;
+            Inner right = new Inner();
+            right.n = n - mid;
+            System.arraycopy(children, mid, right.children, 0, right.n);
+            System.arraycopy(keys, mid, right.keys, 0, right.n - 1);
+            System.arraycopy(slots, mid, right.slots, 0, right.n - 1);
+            Split up = new Split(keys[mid - 1], slots[mid - 1], right);
+            Arrays.fill(children, mid, n, null);
+            n = mid;
+            return up;
+        }
+    }
+}
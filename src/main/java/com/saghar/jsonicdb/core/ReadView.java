@@ -0,0 +1,92 @@
+package com.saghar.jsonicdb.core;
+
+import java.util.function.Supplier;
+
+/**
+ * A type as of one committed version: the slots below {@link #slotLimit()} that were live at that
+ * version, with the values they had then. Reads through a view take no lock and are unaffected by
+ * later writes. Close it when done; until then the type keeps the history the view may still need.
+ */
+public final class ReadView implements AutoCloseable {
+    private final DataType type;
+    private final long version;
+    private final int slotLimit;
+    private final int columns;
+    private final RecordStore store;
+    private boolean closed;
+
+    ReadView(DataType type, long version, int slotLimit, int columns) {
+        this.type = type;
+        this.version = version;
+        this.slotLimit = slotLimit;
+        this.columns = columns;
+        this.store = new ViewStore(type, version, slotLimit);
+    }
+
+    public DataType type() {
+        return type;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Upper bound (exclusive) of the slots the view can see.
+     */
+    public int slotLimit() {
+        return slotLimit;
+    }
+
+    /**
+     * Number of fields the type had at the view's version.
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * The type's values as of the view's version; read-only.
+     */
+    public RecordStore store() {
+        return store;
+    }
+
+    public boolean isVisible(int slot) {
+        return slot < slotLimit && type.visibleAt(slot, version);
+    }
+
+    /**
+     * True while no update has overwritten a slot since the view's version, so the type's own store
+     * still holds what the view sees below {@link #slotLimit()}. Readers that bypass {@link #store()}
+     * check this after they finish reading.
+     */
+    public boolean unchangedInPlace() {
+        return type.lastInPlaceUpdate() <= version;
+    }
+
+    public DataRecord record(int slot) {
+        return new DataRecord(type, store, slot);
+    }
+
+    /**
+     * Runs {@code action} under the type's read lock when nothing has committed since the view was
+     * opened, so the type's indexes describe exactly what the view sees. Returns null instead of
+     * waiting when a writer holds the lock, or when the view is behind.
+     */
+    public <T> T ifCurrent(Supplier<T> action) {
+        if (!type.readLock().tryLock()) return null;
+        try {
+            return type.version() == version ? action.get() : null;
+        } finally {
+            type.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        type.closeView(version);
+    }
+}
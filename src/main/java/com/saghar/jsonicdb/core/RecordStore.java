@@ -0,0 +1,58 @@
+package com.saghar.jsonicdb.core;
+
+import java.util.BitSet;
+
+/**
+ * Slot-addressed storage behind a {@link DataType}. Slot i is the i-th record in insertion order and
+ * column c is the c-th declared field. Typed accessors let callers read primitives without boxing.
+ */
+public interface RecordStore {
+    int size();
+
+    void addColumn(ValueType type);
+
+    /**
+     * Appends a row (one value per column, already typed) and returns its slot.
+     */
+    int append(Object[] row);
+
+    /**
+     * Makes room for {@code rows} more appends, so a bulk insert grows the storage once.
+     */
+    default void reserve(int rows) {
+    }
+
+    Object get(int slot, int column);
+
+    void set(int slot, int column, Object value);
+
+    int getInt(int slot, int column);
+
+    double getDouble(int slot, int column);
+
+    /**
+     * TIME values as {@link TimeCodec} epoch nanos.
+     */
+    long getTime(int slot, int column);
+
+    boolean getBool(int slot, int column);
+
+    String getString(int slot, int column);
+
+    /**
+     * Same as {@code getString(slot, column).equals(value)}, without materializing the stored string.
+     */
+    boolean stringEquals(int slot, int column, String value);
+
+    /**
+     * Removes the given slots, keeping the remaining rows in order (slots after a removed one shift down).
+     */
+    void removeAll(BitSet slots);
+
+    static RecordStore create(StorageMode mode) {
+        return switch (mode) {
+            case ROW -> new RowStore();
+            case COLUMNAR -> new ColumnStore();
+        };
+    }
+}
@@ -0,0 +1,203 @@
+package com.saghar.jsonicdb.core;
+
+import com.saghar.jsonicdb.json.JsonReader;
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes JSON objects straight into column-indexed rows of one schema, reading a {@link JsonReader}'s
+ * tokens once: no {@code JsonValue} tree, no field map, numbers read from the bytes. Entry c of a
+ * decoded row is the typed value given for column c, or null when the object does not mention it.
+ * <p>
+ * Field names are found through a perfect hash over the lowercased names of the schema's fields,
+ * built when the decoder is: every name has a table slot of its own, so a lookup hashes the key's
+ * chars once and compares against a single candidate. The seed enters every step of the hash, so
+ * names that collide under one seed are unlikely to under the next; if no seed separates them within
+ * a bounded search, the decoder looks names up through {@link DataType#column(String)} instead. A
+ * decoder describes the schema as it was when built; {@link DataType#decoder()} hands out a fresh one
+ * after a field is added.
+ */
+public final class RowDecoder {
+    private static final int SEEDS = 64; // tried per table size
+    private static final int GROWTHS = 4; // table doublings before giving up on a perfect hash
+
+    private final DataType type;
+    private final FieldDef[] defs;
+    private final String[] names; // canonical (lowercased) name per column
+    private final int[] table; // column + 1 per hash slot, 0 = empty; null to look names up by DataType.column
+    private final int multiplier;
+
+    private RowDecoder(DataType type, FieldDef[] defs) {
+        this.type = type;
+        this.defs = defs;
+        this.names = new String[defs.length];
+        for (int c = 0; c < defs.length; c++) names[c] = defs[c].name().trim().toLowerCase();
+        int size = Integer.highestOneBit(Math.max(4, defs.length) * 2 - 1) << 1;
+        int[] t = new int[size];
+        int m = 0;
+        // a table twice the number of names usually takes a few seeds; grow it if none works
+        search:
+        for (int grown = 0; grown <= GROWTHS; grown++, t = new int[t.length * 2]) {
+            for (int s = 1; s <= SEEDS; s++) {
+                if (place(t, m = multiplier(s))) break search;
+                Arrays.fill(t, 0);
+            }
+            m = 0;
+        }
+        this.table = m == 0 ? null : t;
+        this.multiplier = m;
+    }
+
+    static RowDecoder of(DataType type, List<FieldDef> defs) {
+        return new RowDecoder(type, defs.toArray(new FieldDef[0]));
+    }
+
+    // an odd multiplier per seed, spread by the golden ratio
+    private static int multiplier(int seed) {
+        return seed * 0x9E3779B9 | 1;
+    }
+
+    // tries to give every name its own slot under the multiplier
+    private boolean place(int[] t, int m) {
+        for (int c = 0; c < names.length; c++) {
+            int h = 0;
+            for (int i = 0; i < names[c].length(); i++) h = step(h, names[c].charAt(i), m);
+            int slot = mix(h) & (t.length - 1);
+            if (t[slot] != 0) return false;
+            t[slot] = c + 1;
+        }
+        return true;
+    }
+
+    private static int step(int h, char c, int m) {
+        return (h ^ lower(c)) * m;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        return h ^ h >>> 13;
+    }
+
+    private static char lower(char c) {
+        if (c < 0x80) return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        return Character.toLowerCase(c);
+    }
+
+    public int columns() {
+        return defs.length;
+    }
+
+    /**
+     * Column of the reader's current field name, or -1 when the schema has no such field.
+     */
+    public int column(JsonReader r) {
+        if (table == null) return slowColumn(r);
+        int n = r.stringLength();
+        int h = 0;
+        boolean ascii = true;
+        for (int i = 0; i < n; i++) {
+            char ch = r.charAt(i);
+            ascii &= ch < 0x80;
+            h = step(h, ch, multiplier);
+        }
+        int c = table[mix(h) & (table.length - 1)] - 1;
+        if (c >= 0 && names[c].length() == n) {
+            int i = 0;
+            while (i < n && lower(r.charAt(i)) == names[c].charAt(i)) i++;
+            if (i == n) return c;
+        }
+        // char-wise lowercasing can differ from String.toLowerCase outside ASCII
+        return ascii ? -1 : slowColumn(r);
+    }
+
+    private int slowColumn(JsonReader r) {
+        int c = type.column(r.string());
+        return c < defs.length ? c : -1;
+    }
+
+    /**
+     * Reads the next top-level value, which must be an object, into a row. Returns null at the end of
+     * the input.
+     */
+    public Object[] decode(JsonReader r) {
+        JsonReader.Token t = r.next();
+        if (t == null) return null;
+        if (t != JsonReader.Token.START_OBJECT) throw new JsonicException(com.saghar.jsonicdb.util.Errors.invalidJsonFormat());
+        return decodeObject(r);
+    }
+
+    /**
+     * Reads the object whose {@code START_OBJECT} is the reader's current token into a row.
+     */
+    public Object[] decodeObject(JsonReader r) {
+        Object[] row = new Object[defs.length];
+        while (r.next() == JsonReader.Token.FIELD_NAME) {
+            int c = column(r);
+            if (c < 0) throw new JsonicException(com.saghar.jsonicdb.util.Errors.fieldNotFound(r.string()));
+            r.next();
+            row[c] = value(r, defs[c]);
+        }
+        return row;
+    }
+
+    /**
+     * Reads an array of objects, whose {@code START_ARRAY} is the reader's current token, into rows.
+     */
+    public List<Object[]> decodeArray(JsonReader r) {
+        List<Object[]> rows = new ArrayList<>();
+        for (JsonReader.Token t = r.next(); t != JsonReader.Token.END_ARRAY; t = r.next()) {
+            if (t != JsonReader.Token.START_OBJECT) throw new JsonicException(com.saghar.jsonicdb.util.Errors.invalidSyntax("insert"));
+            rows.add(decodeObject(r));
+        }
+        return rows;
+    }
+
+    private static Object value(JsonReader r, FieldDef f) {
+        JsonReader.Token t = r.token();
+        switch (f.type()) {
+            case INT -> {
+                if (t == JsonReader.Token.NUMBER && r.isIntegral()) {
+                    try {
+                        return r.intValue();
+                    } catch (JsonicException ex) {
+                        // out of range: reported as a bad value below
+                    }
+                }
+            }
+            case DOUBLE -> {
+                if (t == JsonReader.Token.NUMBER) return r.doubleValue();
+            }
+            case BOOL -> {
+                if (t == JsonReader.Token.TRUE || t == JsonReader.Token.FALSE) return t == JsonReader.Token.TRUE;
+            }
+            case STRING -> {
+                if (t == JsonReader.Token.STRING) return r.string();
+            }
+            case TIME -> {
+                if (t == JsonReader.Token.STRING) {
+                    try {
+                        return LocalDateTime.parse(r.string());
+                    } catch (Exception ex) {
+                        // reported as a bad value below
+                    }
+                }
+            }
+            case STRING_LIST -> {
+                if (t == JsonReader.Token.START_ARRAY) {
+                    List<String> out = new ArrayList<>();
+                    for (t = r.next(); t != JsonReader.Token.END_ARRAY; t = r.next()) {
+                        if (t != JsonReader.Token.STRING) throw new JsonicException(com.saghar.jsonicdb.util.Errors.invalidValueForField(f.name()));
+                        out.add(r.string());
+                    }
+                    return List.copyOf(out);
+                }
+            }
+        }
+        throw new JsonicException(com.saghar.jsonicdb.util.Errors.invalidValueForField(f.name()));
+    }
+}
@@ -0,0 +1,118 @@
+package com.saghar.jsonicdb.core;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Row storage: one boxed value array per record. Views read it without the type lock, so the row
+ * array is replaced, never resized in place: a grown or widened copy is filled first and then
+ * published through the volatile field, and a reader sees either the old array or the complete new one.
+ */
+final class RowStore implements RecordStore {
+    private final List<ValueType> types = new ArrayList<>();
+    private volatile Object[][] rows = new Object[16][];
+    private int size; // written by the type's writer only; readers stay below their view's slot limit
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void addColumn(ValueType type) {
+        types.add(type);
+        int width = types.size();
+        Object[][] current = rows, next = new Object[current.length][];
+        for (int i = 0; i < size; i++) {
+            Object[] row = Arrays.copyOf(current[i], width);
+            row[width - 1] = type.defaultValue();
+            next[i] = row;
+        }
+        rows = next;
+    }
+
+    ColumnImage image(int column) {
+        Object[][] r = rows;
+        return ColumnImage.of(types.get(column), size, slot -> r[slot][column]);
+    }
+
+    void load(ColumnImage[] images, int size) {
+        Object[][] next = new Object[Math.max(16, size)][];
+        for (int slot = 0; slot < size; slot++) {
+            Object[] row = new Object[types.size()];
+            for (int c = 0; c < row.length; c++) row[c] = images[c].get(slot);
+            next[slot] = row;
+        }
+        this.size = size;
+        rows = next;
+    }
+
+    @Override
+    public int append(Object[] row) {
+        if (size == rows.length) rows = Arrays.copyOf(rows, size + (size >> 1));
+        rows[size] = row.clone();
+        return size++;
+    }
+
+    @Override
+    public void reserve(int n) {
+        // geometric, so a run of batches copies the rows a constant number of times
+        if (size + n > rows.length) rows = Arrays.copyOf(rows, Math.max(size + n, rows.length + (rows.length >> 1)));
+    }
+
+    @Override
+    public Object get(int slot, int column) {
+        return rows[slot][column];
+    }
+
+    @Override
+    public void set(int slot, int column, Object value) {
+        rows[slot][column] = value;
+    }
+
+    @Override
+    public int getInt(int slot, int column) {
+        return (Integer) rows[slot][column];
+    }
+
+    @Override
+    public double getDouble(int slot, int column) {
+        return (Double) rows[slot][column];
+    }
+
+    @Override
+    public long getTime(int slot, int column) {
+        return TimeCodec.encode((LocalDateTime) rows[slot][column]);
+    }
+
+    @Override
+    public boolean getBool(int slot, int column) {
+        return (Boolean) rows[slot][column];
+    }
+
+    @Override
+    public String getString(int slot, int column) {
+        return (String) rows[slot][column];
+    }
+
+    @Override
+    public boolean stringEquals(int slot, int column, String value) {
+        return value.equals(rows[slot][column]);
+    }
+
+    // only run while no view is open
+    @Override
+    public void removeAll(BitSet slots) {
+        Object[][] r = rows;
+        int w = 0;
+        for (int i = 0; i < size; i++) {
+            if (slots.get(i)) continue;
+            r[w++] = r[i];
+        }
+        Arrays.fill(r, w, size, null);
+        size = w;
+    }
+}
@@ -0,0 +1,155 @@
+package com.saghar.jsonicdb.core;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * How full scans are split across threads. Below {@code threshold} slots, or with a parallelism of 1,
+ * a scan runs on the calling thread. Above it the slot range is cut into chunks that a fork/join pool
+ * of {@code parallelism} workers tests independently. The chunks' matches are then concatenated in
+ * slot order, so callers see the same ascending result either way.
+ * <p>
+ * With {@code vectorized} set, filters over columnar int, double and time fields are evaluated with
+ * SIMD kernels, a block of slots at a time, when the JVM runs with {@code jdk.incubator.vector}.
+ * Without that module the setting has no effect.
+ */
+public record ScanSettings(int parallelism, int threshold, boolean vectorized) {
+    public static final int DEFAULT_THRESHOLD = 50_000;
+    public static final ScanSettings DEFAULT = new ScanSettings(Runtime.getRuntime().availableProcessors(), DEFAULT_THRESHOLD);
+    public static final ScanSettings SEQUENTIAL = new ScanSettings(1, Integer.MAX_VALUE);
+
+    // chunks are small enough to balance uneven filters, large enough to amortize a task
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int MIN_CHUNK = 4096;
+
+    // one pool per parallelism in use; the common pool when it already has the right size
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    public ScanSettings {
+        if (parallelism < 1) throw new JsonicException("scan parallelism must be at least 1: " + parallelism);
+        if (threshold < 0) throw new JsonicException("parallel scan threshold must not be negative: " + threshold);
+    }
+
+    public ScanSettings(int parallelism, int threshold) {
+        this(parallelism, threshold, false);
+    }
+
+    public ScanSettings withVectorized(boolean vectorized) {
+        return new ScanSettings(parallelism, threshold, vectorized);
+    }
+
+    /**
+     * Scans slots {@code [from, to)} and returns the matches in ascending order.
+     */
+    @FunctionalInterface
+    public interface RangeScan {
+        int[] scan(int from, int to);
+    }
+
+    /**
+     * Folds {@code [from, to)} into a partial result.
+     */
+    @FunctionalInterface
+    public interface RangeFold<T> {
+        T fold(int from, int to);
+    }
+
+    /**
+     * Ascending slots in {@code [0, end)} that {@code match} accepts. {@code match} may be called
+     * from several threads at once.
+     */
+    public int[] scan(int end, IntPredicate match) {
+        return scan(end, (from, to) -> scan(from, to, match));
+    }
+
+    /**
+     * Runs {@code ranges} over {@code [0, end)}, split into chunks as for {@link #scan(int, IntPredicate)}.
+     * Every chunk but the last starts and ends on a multiple of 64.
+     */
+    public int[] scan(int end, RangeScan ranges) {
+        if (sequential(end)) return ranges.scan(0, end);
+        int chunk = chunk(end);
+        int[][] parts = new int[(end + chunk - 1) / chunk][];
+        pool().invoke(new Chunks(0, parts.length, i -> parts[i] = ranges.scan(i * chunk, (int) Math.min(end, (long) (i + 1) * chunk))));
+        int total = 0;
+        for (int[] p : parts) total += p.length;
+        int[] out = new int[total];
+        int at = 0;
+        for (int[] p : parts) {
+            System.arraycopy(p, 0, out, at, p.length);
+            at += p.length;
+        }
+        return out;
+    }
+
+    /**
+     * Folds {@code [0, end)} into one value: each chunk, split as for {@link #scan(int, IntPredicate)}, is
+     * folded on its own and the chunks' results are merged left to right.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fold(int end, RangeFold<T> ranges, BinaryOperator<T> merge) {
+        if (sequential(end)) return ranges.fold(0, end);
+        int chunk = chunk(end);
+        Object[] parts = new Object[(end + chunk - 1) / chunk];
+        pool().invoke(new Chunks(0, parts.length, i -> parts[i] = ranges.fold(i * chunk, (int) Math.min(end, (long) (i + 1) * chunk))));
+        T acc = (T) parts[0];
+        for (int i = 1; i < parts.length; i++) acc = merge.apply(acc, (T) parts[i]);
+        return acc;
+    }
+
+    private boolean sequential(int end) {
+        return parallelism == 1 || end < threshold || end < 2 * MIN_CHUNK;
+    }
+
+    private int chunk(int end) {
+        int chunk = Math.max(MIN_CHUNK, end / (parallelism * CHUNKS_PER_WORKER) + 1);
+        return (chunk + 63) & ~63;
+    }
+
+    private ForkJoinPool pool() {
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) return ForkJoinPool.commonPool();
+        return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+
+    private static int[] scan(int from, int to, IntPredicate match) {
+        int[] out = new int[16];
+        int n = 0;
+        for (int slot = from; slot < to; slot++) {
+            if (!match.test(slot)) continue;
+            if (n == out.length) out = Arrays.copyOf(out, n * 2);
+            out[n++] = slot;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // splits the chunk range in halves until one chunk is left, which it runs on its own
+    @SuppressWarnings("serial") // never serialized
+    private static final class Chunks extends RecursiveAction {
+        private final int lo, hi;
+        private final IntConsumer part;
+
+        Chunks(int lo, int hi, IntConsumer part) {
+            this.lo = lo;
+            this.hi = hi;
+            this.part = part;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                part.accept(lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Chunks(lo, mid, part), new Chunks(mid, hi, part));
+        }
+    }
+}
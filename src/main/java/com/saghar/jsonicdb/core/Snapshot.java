@@ -0,0 +1,386 @@
+package com.saghar.jsonicdb.core;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary checkpoint of a whole database: every type's fields and its slots, with tombstones, column
+ * by column in primitive form. Indexes, unique ones included, are not stored; they are rebuilt from
+ * the loaded columns, which costs one pass and keeps the file to the data itself.
+ * <p>
+ * Layout (big-endian): {@code "JSNP" version lsn typeCount}, then per type
+ * {@code name storage fieldCount (name type required unique index)* slots deadWords dead[]} and one
+ * block per column, then a CRC32C of everything before it. Strings are stored as lengths followed by
+ * their UTF-8 bytes back to back; lists as a count and strings per slot.
+ * <p>
+ * The file is written to a sibling temp file and moved into place, so a crash leaves either the old
+ * snapshot or the new one. Loading maps the file and copies each column out with bulk buffer reads.
+ */
+final class Snapshot {
+    private static final int MAGIC = 0x4A534E50; // "JSNP"
+    private static final int VERSION = 1;
+    // mapped in windows; a window must stay under 2 GB
+    private static final long WINDOW = 1L << 30;
+
+    /**
+     * One type as captured: its fields in column order, the slot range and the columns covering it.
+     */
+    record TypeImage(String name, StorageMode storage, List<FieldDef> fields, int slots, long[] dead,
+                     ColumnImage[] columns) {
+    }
+
+    /**
+     * {@code lsn} is the write-ahead log position the snapshot is consistent with (0 without a log).
+     */
+    record Contents(long lsn, List<TypeImage> types) {
+    }
+
+    private Snapshot() {
+    }
+
+    static void write(Path path, Contents contents) {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                Out out = new Out(ch);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(contents.lsn());
+                out.writeInt(contents.types().size());
+                for (TypeImage t : contents.types()) writeType(out, t);
+                out.finish();
+                ch.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+            throw new JsonicException("Cannot write snapshot " + path + ": " + ex.getMessage());
+        }
+    }
+
+    static Contents read(Path path) {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < 24) throw new JsonicException("Not a snapshot: " + path);
+            verify(ch, size, path);
+            In in = new In(ch, size - 4);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new JsonicException("Not a snapshot: " + path);
+            long lsn = in.readLong();
+            int n = in.readInt();
+            List<TypeImage> types = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) types.add(readType(in));
+            return new Contents(lsn, types);
+        } catch (IOException ex) {
+            throw new JsonicException("Cannot read snapshot " + path + ": " + ex.getMessage());
+        } catch (RuntimeException ex) {
+            if (ex instanceof JsonicException je) throw je;
+            throw new JsonicException("Corrupt snapshot " + path + ": " + ex);
+        }
+    }
+
+    private static void writeType(Out out, TypeImage t) throws IOException {
+        out.writeString(t.name());
+        out.writeByte(t.storage().ordinal());
+        out.writeInt(t.fields().size());
+        for (FieldDef f : t.fields()) {
+            out.writeString(f.name());
+            out.writeByte(f.type().ordinal());
+            out.writeByte(f.required() ? 1 : 0);
+            out.writeByte(f.unique() ? 1 : 0);
+            out.writeByte(f.index().ordinal());
+        }
+        int slots = t.slots();
+        out.writeInt(slots);
+        out.writeInt(t.dead().length);
+        out.writeLongs(t.dead(), t.dead().length);
+        for (ColumnImage image : t.columns()) {
+            if (image instanceof ColumnImage.Ints c) out.writeInts(c.values(), slots);
+            else if (image instanceof ColumnImage.Doubles c) out.writeDoubles(c.values(), slots);
+            else if (image instanceof ColumnImage.Times c) out.writeLongs(c.values(), slots);
+            else if (image instanceof ColumnImage.Bools c) out.writeLongs(c.words(), (slots + 63) >>> 6);
+            else if (image instanceof ColumnImage.Strings c) {
+                out.writeInts(c.lengths(), slots);
+                for (int i = 0; i < slots; i++) out.writeBytes(c.heap(), c.offsets()[i], c.lengths()[i]);
+            } else {
+                Object[] lists = ((ColumnImage.Lists) image).values();
+                for (int i = 0; i < slots; i++) {
+                    List<?> list = (List<?>) lists[i];
+                    out.writeInt(list.size());
+                    for (Object e : list) out.writeString((String) e);
+                }
+            }
+        }
+    }
+
+    private static TypeImage readType(In in) throws IOException {
+        String name = in.readString();
+        StorageMode storage = StorageMode.values()[in.readByte()];
+        int nFields = in.readInt();
+        List<FieldDef> fields = new ArrayList<>(nFields);
+        for (int i = 0; i < nFields; i++) {
+            fields.add(new FieldDef(in.readString(), ValueType.values()[in.readByte()], in.readByte() != 0,
+                    in.readByte() != 0, IndexKind.values()[in.readByte()]));
+        }
+        int slots = in.readInt();
+        long[] dead = new long[in.readInt()];
+        in.readLongs(dead);
+        ColumnImage[] columns = new ColumnImage[nFields];
+        for (int c = 0; c < nFields; c++) {
+            columns[c] = switch (fields.get(c).type()) {
+                case INT -> {
+                    int[] v = new int[slots];
+                    in.readInts(v);
+                    yield new ColumnImage.Ints(v);
+                }
+                case DOUBLE -> {
+                    double[] v = new double[slots];
+                    in.readDoubles(v);
+                    yield new ColumnImage.Doubles(v);
+                }
+                case TIME -> {
+                    long[] v = new long[slots];
+                    in.readLongs(v);
+                    yield new ColumnImage.Times(v);
+                }
+                case BOOL -> {
+                    long[] w = new long[(slots + 63) >>> 6];
+                    in.readLongs(w);
+                    yield new ColumnImage.Bools(w);
+                }
+                case STRING -> {
+                    int[] lengths = new int[slots];
+                    in.readInts(lengths);
+                    int[] offsets = new int[slots];
+                    long total = 0;
+                    for (int i = 0; i < slots; i++) {
+                        offsets[i] = (int) total;
+                        total += lengths[i];
+                    }
+                    if (total > Integer.MAX_VALUE - 8) throw new JsonicException("String column is full");
+                    byte[] heap = new byte[(int) total];
+                    in.readBytes(heap);
+                    yield new ColumnImage.Strings(heap, offsets, lengths);
+                }
+                case STRING_LIST -> {
+                    Object[] v = new Object[slots];
+                    for (int i = 0; i < slots; i++) {
+                        String[] list = new String[in.readInt()];
+                        for (int j = 0; j < list.length; j++) list[j] = in.readString();
+                        v[i] = List.of(list);
+                    }
+                    yield new ColumnImage.Lists(v);
+                }
+            };
+        }
+        return new TypeImage(name, storage, fields, slots, dead, columns);
+    }
+
+    private static void verify(FileChannel ch, long size, Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+        long body = size - 4;
+        for (long at = 0; at < body; at += WINDOW) {
+            crc.update(ch.map(FileChannel.MapMode.READ_ONLY, at, Math.min(WINDOW, body - at)));
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(4);
+        while (trailer.hasRemaining()) {
+            if (ch.read(trailer, body + trailer.position()) < 0) break;
+        }
+        if (trailer.flip().getInt() != (int) crc.getValue()) throw new JsonicException("Corrupt snapshot: " + path);
+    }
+
+    /**
+     * Buffered writer that checksums what it writes.
+     */
+    private static final class Out {
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+        private final CRC32C crc = new CRC32C();
+
+        Out(FileChannel ch) {
+            this.ch = ch;
+        }
+
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() < n) drain();
+        }
+
+        private void drain() throws IOException {
+            buf.flip();
+            crc.update(buf.duplicate());
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+
+        void writeByte(int v) throws IOException {
+            ensure(1);
+            buf.put((byte) v);
+        }
+
+        void writeInt(int v) throws IOException {
+            ensure(4);
+            buf.putInt(v);
+        }
+
+        void writeLong(long v) throws IOException {
+            ensure(8);
+            buf.putLong(v);
+        }
+
+        void writeInts(int[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                ensure(4);
+                int k = Math.min(n - i, buf.remaining() >>> 2);
+                buf.asIntBuffer().put(a, i, k);
+                buf.position(buf.position() + (k << 2));
+                i += k;
+            }
+        }
+
+        void writeLongs(long[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                ensure(8);
+                int k = Math.min(n - i, buf.remaining() >>> 3);
+                buf.asLongBuffer().put(a, i, k);
+                buf.position(buf.position() + (k << 3));
+                i += k;
+            }
+        }
+
+        void writeDoubles(double[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                ensure(8);
+                int k = Math.min(n - i, buf.remaining() >>> 3);
+                buf.asDoubleBuffer().put(a, i, k);
+                buf.position(buf.position() + (k << 3));
+                i += k;
+            }
+        }
+
+        void writeBytes(byte[] a, int off, int n) throws IOException {
+            while (n > 0) {
+                ensure(1);
+                int k = Math.min(n, buf.remaining());
+                buf.put(a, off, k);
+                off += k;
+                n -= k;
+            }
+        }
+
+        void writeString(String s) throws IOException {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            writeInt(b.length);
+            writeBytes(b, 0, b.length);
+        }
+
+        void finish() throws IOException {
+            drain();
+            ByteBuffer trailer = ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip();
+            while (trailer.hasRemaining()) ch.write(trailer);
+        }
+    }
+
+    /**
+     * Reads {@code [0, end)} of the file through a sliding read-only mapping.
+     */
+    private static final class In {
+        private final FileChannel ch;
+        private final long end;
+        private long base;
+        private MappedByteBuffer buf;
+
+        In(FileChannel ch, long end) throws IOException {
+            this.ch = ch;
+            this.end = end;
+            map(0);
+        }
+
+        private void map(long at) throws IOException {
+            base = at;
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, at, Math.min(WINDOW, end - at));
+        }
+
+        // remaps so that at least n bytes (or whatever is left of the file) are in the window
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() >= n) return;
+            long at = base + buf.position();
+            if (end - at < n) throw new JsonicException("Snapshot is truncated");
+            map(at);
+        }
+
+        byte readByte() throws IOException {
+            ensure(1);
+            return buf.get();
+        }
+
+        int readInt() throws IOException {
+            ensure(4);
+            return buf.getInt();
+        }
+
+        long readLong() throws IOException {
+            ensure(8);
+            return buf.getLong();
+        }
+
+        void readInts(int[] a) throws IOException {
+            for (int i = 0; i < a.length; ) {
+                ensure(4);
+                int k = Math.min(a.length - i, buf.remaining() >>> 2);
+                buf.asIntBuffer().get(a, i, k);
+                buf.position(buf.position() + (k << 2));
+                i += k;
+            }
+        }
+
+        void readLongs(long[] a) throws IOException {
+            for (int i = 0; i < a.length; ) {
+                ensure(8);
+                int k = Math.min(a.length - i, buf.remaining() >>> 3);
+                buf.asLongBuffer().get(a, i, k);
+                buf.position(buf.position() + (k << 3));
+                i += k;
+            }
+        }
+
+        void readDoubles(double[] a) throws IOException {
+            for (int i = 0; i < a.length; ) {
+                ensure(8);
+                int k = Math.min(a.length - i, buf.remaining() >>> 3);
+                buf.asDoubleBuffer().get(a, i, k);
+                buf.position(buf.position() + (k << 3));
+                i += k;
+            }
+        }
+
+        void readBytes(byte[] a) throws IOException {
+            for (int i = 0; i < a.length; ) {
+                ensure(1);
+                int k = Math.min(a.length - i, buf.remaining());
+                buf.get(a, i, k);
+                i += k;
+            }
+        }
+
+        String readString() throws IOException {
+            byte[] b = new byte[readInt()];
+            readBytes(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.saghar.jsonicdb.core;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+public enum StorageMode {
+    /**
+     * One boxed value array per record.
+     */
+    ROW,
+    /**
+     * One primitive array per field (int[], double[], long[] epoch nanos, bitset, string heap).
+     */
+    COLUMNAR;
+
+    public static StorageMode fromSpec(String spec) {
+        String s = spec.trim().toLowerCase();
+        return switch (s) {
+            case "row", "rows" -> ROW;
+            case "columnar", "column", "columns" -> COLUMNAR;
+            default -> throw new JsonicException("Invalid storage mode: " + spec);
+        };
+    }
+}
@@ -0,0 +1,137 @@
+package com.saghar.jsonicdb.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Writes records as the console's fixed-width table, one row at a time, so a result never has to be
+ * held as a whole string. Every cell is padded or cut to the widest field name (at least 10). Ints
+ * and booleans are formatted into a reused buffer; the other types allocate their string form.
+ */
+public final class TableWriter {
+    private static final char[] SPACES = new char[64];
+    private static final char[] TRUE = "true".toCharArray();
+    private static final char[] FALSE = "false".toCharArray();
+    private static final char[] NULL = "null".toCharArray();
+
+    static {
+        Arrays.fill(SPACES, ' ');
+    }
+
+    private final List<String> names;
+    private final List<FieldDef> defs; // null for a table of computed values
+    private final int[] columns; // store column of each def
+    private final int width;
+    private final Writer out;
+    private final char[] digits = new char[11];
+
+    /**
+     * Writes the first {@code columns} fields of {@code type}, as seen by a {@link ReadView#columns() view}
+     * or all of them.
+     */
+    public TableWriter(DataType type, int columns, Writer out) {
+        this(type, IntStream.range(0, columns).toArray(), out);
+    }
+
+    /**
+     * Writes only the given store columns, in the given order; the cell width follows their names alone.
+     */
+    public TableWriter(DataType type, int[] columns, Writer out) {
+        this.columns = columns.clone();
+        this.defs = Arrays.stream(columns).mapToObj(type::fieldAt).toList();
+        this.names = defs.stream().map(FieldDef::name).toList();
+        this.width = width(names);
+        this.out = out;
+    }
+
+    /**
+     * A table of computed values under the given column names, written with {@link #row(Object[])}.
+     */
+    public TableWriter(List<String> names, Writer out) {
+        this.defs = null;
+        this.columns = null;
+        this.names = List.copyOf(names);
+        this.width = width(names);
+        this.out = out;
+    }
+
+    private static int width(List<String> names) {
+        return Math.max(10, names.stream().mapToInt(String::length).max().orElse(10));
+    }
+
+    public void header() throws IOException {
+        out.write("| ");
+        for (String name : names) {
+            cell(name);
+        }
+        out.write("\n|");
+        for (int i = 0; i < names.size(); i++) {
+            for (int n = 0; n < width + 2; n++) out.write('-');
+            out.write('|');
+        }
+        out.write('\n');
+    }
+
+    // read primitives straight from the store so columnar types never box just to print
+    public void row(RecordStore store, int slot) throws IOException {
+        out.write("| ");
+        for (int i = 0; i < defs.size(); i++) {
+            int c = columns[i];
+            switch (defs.get(i).type()) {
+                case INT -> cell(store.getInt(slot, c));
+                case DOUBLE -> cell(Double.toString(store.getDouble(slot, c)));
+                case BOOL -> cell(store.getBool(slot, c) ? TRUE : FALSE);
+                case STRING -> cell(store.getString(slot, c));
+                case TIME, STRING_LIST -> cell(String.valueOf(store.get(slot, c)));
+            }
+        }
+        out.write('\n');
+    }
+
+    public void row(Object[] values) throws IOException {
+        out.write("| ");
+        for (Object v : values) {
+            if (v instanceof Integer i) cell(i);
+            else cell(v == null ? null : v.toString());
+        }
+        out.write('\n');
+    }
+
+    private void cell(String s) throws IOException {
+        if (s == null) {
+            cell(NULL);
+            return;
+        }
+        int n = Math.min(s.length(), width);
+        out.write(s, 0, n);
+        close(n);
+    }
+
+    private void cell(char[] chars) throws IOException {
+        int n = Math.min(chars.length, width);
+        out.write(chars, 0, n);
+        close(n);
+    }
+
+    private void cell(int v) throws IOException {
+        // digits are produced right to left at the end of the buffer
+        int p = digits.length;
+        long x = Math.abs((long) v);
+        do {
+            digits[--p] = (char) ('0' + x % 10);
+            x /= 10;
+        } while (x != 0);
+        if (v < 0) digits[--p] = '-';
+        int n = Math.min(digits.length - p, width);
+        out.write(digits, p, n);
+        close(n);
+    }
+
+    private void close(int written) throws IOException {
+        for (int pad = width - written; pad > 0; pad -= SPACES.length) out.write(SPACES, 0, Math.min(pad, SPACES.length));
+        out.write(" | ");
+    }
+}
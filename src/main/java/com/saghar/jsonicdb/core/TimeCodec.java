@@ -0,0 +1,46 @@
+package com.saghar.jsonicdb.core;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Encodes TIME values as order-preserving epoch nanoseconds (UTC), so they fit a long[] column.
+ * Stored values must lie strictly inside the range of a long, roughly 1677-09-21 .. 2262-04-11;
+ * inserts and updates reject others in both storage modes. Query literals may lie anywhere: {@link #bound}
+ * clamps them to the ends of a long, which then sort below or above every stored value.
+ */
+public final class TimeCodec {
+    private TimeCodec() {
+    }
+
+    /**
+     * Encodes a value to be stored, throwing when it is outside the supported range.
+     */
+    public static long encode(LocalDateTime t) {
+        long nanos = bound(t);
+        if (nanos == Long.MIN_VALUE || nanos == Long.MAX_VALUE)
+            throw new JsonicException("Time out of range (supported 1677-09-21 .. 2262-04-11): " + t);
+        return nanos;
+    }
+
+    /**
+     * Encodes a value to compare against, saturating to {@code Long.MIN_VALUE} or {@code Long.MAX_VALUE}
+     * outside the supported range.
+     */
+    public static long bound(LocalDateTime t) {
+        long seconds = t.toEpochSecond(ZoneOffset.UTC);
+        try {
+            return Math.addExact(Math.multiplyExact(seconds, 1_000_000_000L), t.getNano());
+        } catch (ArithmeticException ex) {
+            return seconds < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    public static LocalDateTime decode(long nanos) {
+        long seconds = Math.floorDiv(nanos, 1_000_000_000L);
+        int nano = (int) Math.floorMod(nanos, 1_000_000_000L);
+        return LocalDateTime.ofEpochSecond(seconds, nano, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,132 @@
+package com.saghar.jsonicdb.core;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+
+/**
+ * Read-only store over a type as of a {@link ReadView}'s version. A slot updated after that version
+ * is read from its undo entry. Any other slot is read from the live store, and its update stamp is
+ * checked again afterwards: if an update overlapped the read, the undo entry that update saved is
+ * used instead.
+ */
+final class ViewStore implements RecordStore {
+    private final DataType type;
+    private final RecordStore base;
+    private final long version;
+    private final int slotLimit;
+
+    ViewStore(DataType type, long version, int slotLimit) {
+        this.type = type;
+        this.base = type.store();
+        this.version = version;
+        this.slotLimit = slotLimit;
+    }
+
+    @Override
+    public int size() {
+        return slotLimit;
+    }
+
+    @Override
+    public Object get(int slot, int column) {
+        long stamp = type.updatedAt(slot);
+        if (stamp <= version) {
+            Object v = base.get(slot, column);
+            if (type.updatedAt(slot) == stamp) return v;
+        }
+        return old(slot)[column];
+    }
+
+    @Override
+    public int getInt(int slot, int column) {
+        long stamp = type.updatedAt(slot);
+        if (stamp <= version) {
+            int v = base.getInt(slot, column);
+            if (type.updatedAt(slot) == stamp) return v;
+        }
+        return (Integer) old(slot)[column];
+    }
+
+    @Override
+    public double getDouble(int slot, int column) {
+        long stamp = type.updatedAt(slot);
+        if (stamp <= version) {
+            double v = base.getDouble(slot, column);
+            if (type.updatedAt(slot) == stamp) return v;
+        }
+        return (Double) old(slot)[column];
+    }
+
+    @Override
+    public long getTime(int slot, int column) {
+        long stamp = type.updatedAt(slot);
+        if (stamp <= version) {
+            long v = base.getTime(slot, column);
+            if (type.updatedAt(slot) == stamp) return v;
+        }
+        return TimeCodec.encode((LocalDateTime) old(slot)[column]);
+    }
+
+    @Override
+    public boolean getBool(int slot, int column) {
+        long stamp = type.updatedAt(slot);
+        if (stamp <= version) {
+            boolean v = base.getBool(slot, column);
+            if (type.updatedAt(slot) == stamp) return v;
+        }
+        return (Boolean) old(slot)[column];
+    }
+
+    // a string read racing an update may see a new offset with an old length; that read is retried from undo
+    @Override
+    public String getString(int slot, int column) {
+        long stamp = type.updatedAt(slot);
+        if (stamp <= version) {
+            try {
+                String v = base.getString(slot, column);
+                if (type.updatedAt(slot) == stamp) return v;
+            } catch (RuntimeException torn) {
+                if (type.updatedAt(slot) == stamp) throw torn;
+            }
+        }
+        return (String) old(slot)[column];
+    }
+
+    @Override
+    public boolean stringEquals(int slot, int column, String value) {
+        long stamp = type.updatedAt(slot);
+        if (stamp <= version) {
+            try {
+                boolean v = base.stringEquals(slot, column, value);
+                if (type.updatedAt(slot) == stamp) return v;
+            } catch (RuntimeException torn) {
+                if (type.updatedAt(slot) == stamp) throw torn;
+            }
+        }
+        return value.equals(old(slot)[column]);
+    }
+
+    private Object[] old(int slot) {
+        return type.rowAt(slot, version);
+    }
+
+    @Override
+    public void addColumn(ValueType type) {
+        throw new UnsupportedOperationException("read-only view");
+    }
+
+    @Override
+    public int append(Object[] row) {
+        throw new UnsupportedOperationException("read-only view");
+    }
+
+    @Override
+    public void set(int slot, int column, Object value) {
+        throw new UnsupportedOperationException("read-only view");
+    }
+
+    @Override
+    public void removeAll(BitSet slots) {
+        throw new UnsupportedOperationException("read-only view");
+    }
+}
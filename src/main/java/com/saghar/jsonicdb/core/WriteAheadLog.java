@@ -0,0 +1,603 @@
+package com.saghar.jsonicdb.core;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of logical mutations (type creation with its fields, added fields, row inserts single or batched,
+ * updates and deletes by slot, compactions). Records are framed as {@code [length][crc32c][payload]}; recovery replays frames
+ * until the first torn or corrupt one and cuts the file there.
+ * <p>
+ * Appends only copy the record into an in-memory buffer. A flusher thread swaps the buffer out and
+ * writes it with one {@code force} per batch (group commit): under {@link Durability#SYNC} it runs
+ * whenever records are pending and committers wait for it; otherwise it runs every flush interval.
+ * Positions in the log (LSNs) count record bytes from the start of the database's history: the header
+ * carries the LSN of the first record in the file, which moves forward when a checkpoint
+ * {@link #truncateBefore trims} the log.
+ */
+final class WriteAheadLog implements Closeable {
+    private static final int MAGIC = 0x4A57414C; // "JWAL"
+    private static final int VERSION = 3;
+    private static final int HEADER = 16;
+
+    static final byte CREATE_TYPE = 1;
+    static final byte ADD_FIELD = 2;
+    static final byte INSERT = 3;
+    static final byte UPDATE = 4;
+    static final byte DELETE = 5;
+    static final byte COMPACT = 6;
+    static final byte INSERT_BATCH = 7;
+
+    private final Path path;
+    private final Durability durability;
+    private final long intervalMillis;
+    private final Thread flusher;
+    private final CRC32C crc = new CRC32C();
+
+    // guarded by this
+    private FileChannel channel;
+    private long base; // LSN of the first record in the file
+    private boolean flushing;
+    private LogBuffer pending = new LogBuffer();
+    private LogBuffer spare = new LogBuffer();
+    private long appendedLsn;
+    private long durableLsn;
+    private boolean closed;
+    private boolean flushRequested;
+    private IOException failure;
+
+    private WriteAheadLog(Path path, FileChannel channel, long base, long end, Durability durability, long intervalMillis) {
+        this.path = path;
+        this.channel = channel;
+        this.base = base;
+        this.durability = durability;
+        this.intervalMillis = intervalMillis;
+        this.appendedLsn = end;
+        this.durableLsn = end;
+        this.flusher = new Thread(this::flushLoop, "jsonicdb-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Replays the log at {@code path} (if any) into {@code db}, then opens it for appending.
+     * {@code snapshotLsn} is the position {@code db} was restored to from a snapshot (0 if it was
+     * not); records up to it are skipped.
+     */
+    static WriteAheadLog open(Path path, Durability durability, long intervalMillis, Database db, long snapshotLsn) {
+        if (intervalMillis <= 0) throw new JsonicException("flush interval must be positive: " + intervalMillis);
+        try {
+            // shorter than a header: created but never written, treat as new
+            boolean exists = Files.exists(path) && Files.size(path) >= HEADER;
+            long[] replayed = exists ? replay(path, db, snapshotLsn) : null;
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long base = snapshotLsn, end = HEADER;
+            if (replayed == null) {
+                ch.truncate(0);
+                writeHeader(ch, base);
+                ch.force(true);
+            } else {
+                base = replayed[0];
+                end = replayed[1];
+                if (ch.size() > end) {
+                    ch.truncate(end); // drop a torn tail so new records follow the last good one
+                    ch.force(true);
+                }
+            }
+            ch.position(end);
+            return new WriteAheadLog(path, ch, base, base + end - HEADER, durability, intervalMillis);
+        } catch (IOException ex) {
+            throw new JsonicException("Cannot open write-ahead log " + path + ": " + ex.getMessage());
+        }
+    }
+
+    private static void writeHeader(FileChannel ch, long base) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).putLong(base).flip();
+        while (header.hasRemaining()) ch.write(header, header.position());
+    }
+
+    synchronized long appendedLsn() {
+        return appendedLsn;
+    }
+
+    /**
+     * Drops the records up to {@code lsn}, which a checkpoint has made redundant. The remaining tail is
+     * copied to a new file that atomically replaces the log. A no-op unless the log is durable up to
+     * {@code lsn}.
+     */
+    synchronized void truncateBefore(long lsn) {
+        boolean interrupted = false;
+        while (flushing) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (closed || failure != null || lsn <= base || durableLsn < lsn) return;
+        // the flusher is idle and cannot take a batch while we hold the lock
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            long from = HEADER + (lsn - base);
+            long to = HEADER + (durableLsn - base);
+            FileChannel next = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                writeHeader(next, lsn);
+                next.position(HEADER);
+                for (long at = from; at < to; ) at += channel.transferTo(at, to - at, next);
+                next.force(true);
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                next.close();
+                Files.deleteIfExists(tmp);
+                throw ex;
+            }
+            FileChannel old = channel;
+            channel = next;
+            base = lsn;
+            old.close();
+        } catch (IOException ex) {
+            throw new JsonicException("Cannot trim write-ahead log " + path + ": " + ex.getMessage());
+        }
+    }
+
+    // the type's fields so far travel with it, so a replayed type never has part of its schema
+    long logCreateType(DataType t) {
+        return append(CREATE_TYPE, t, out -> {
+            out.writeByte(t.storage().ordinal());
+            out.writeInt(t.fields().size());
+            for (int c = 0; c < t.fields().size(); c++) out.writeField(t.fieldAt(c));
+        });
+    }
+
+    long logAddField(DataType t, FieldDef f) {
+        return append(ADD_FIELD, t, out -> out.writeField(f));
+    }
+
+    long logInsert(DataType t, Object[] row) {
+        return append(INSERT, t, out -> {
+            for (int c = 0; c < row.length; c++) out.writeValue(t.fieldAt(c).type(), row[c]);
+        });
+    }
+
+    long logInsertAll(DataType t, Object[][] rows) {
+        return append(INSERT_BATCH, t, out -> {
+            out.writeInt(rows.length);
+            for (Object[] row : rows) {
+                for (int c = 0; c < row.length; c++) out.writeValue(t.fieldAt(c).type(), row[c]);
+            }
+        });
+    }
+
+    long logUpdate(DataType t, int[] slots, int[] cols, Object[] values) {
+        return append(UPDATE, t, out -> {
+            out.writeInt(cols.length);
+            for (int j = 0; j < cols.length; j++) {
+                out.writeInt(cols[j]);
+                out.writeValue(t.fieldAt(cols[j]).type(), values[j]);
+            }
+            out.writeSlots(slots);
+        });
+    }
+
+    long logDelete(DataType t, int[] slots) {
+        return append(DELETE, t, out -> out.writeSlots(slots));
+    }
+
+    long logCompact(DataType t) {
+        return append(COMPACT, t, out -> {
+        });
+    }
+
+    /**
+     * Under {@link Durability#SYNC}, blocks until the log is durable up to {@code lsn}; otherwise a no-op.
+     */
+    void awaitDurable(long lsn) {
+        if (durability != Durability.SYNC) return;
+        synchronized (this) {
+            boolean interrupted = false;
+            while (durableLsn < lsn && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (durableLsn < lsn) throw new JsonicException("Write-ahead log failed: " + failure.getMessage());
+        }
+    }
+
+    /**
+     * Writes and fsyncs everything appended so far, whatever the durability mode.
+     */
+    void sync() {
+        synchronized (this) {
+            long lsn = appendedLsn;
+            boolean interrupted = false;
+            while (durableLsn < lsn && failure == null) {
+                flushRequested = true;
+                notifyAll();
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (durableLsn < lsn) throw new JsonicException("Write-ahead log failed: " + failure.getMessage());
+        }
+        if (durability == Durability.OFF) force();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        try {
+            force();
+        } finally {
+            try {
+                synchronized (this) {
+                    channel.close();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void force() {
+        FileChannel ch;
+        synchronized (this) {
+            ch = channel;
+        }
+        try {
+            ch.force(false);
+        } catch (IOException ex) {
+            throw new JsonicException("Write-ahead log failed: " + ex.getMessage());
+        }
+    }
+
+    // --- framing ---
+
+    /**
+     * Encodes one record straight into the pending buffer and returns its LSN. A record that fails to
+     * encode is rolled back, so the buffer only ever holds whole frames.
+     */
+    private synchronized long append(byte kind, DataType t, Consumer<LogBuffer> body) {
+        if (closed) throw new JsonicException("Write-ahead log is closed");
+        if (failure != null) throw new JsonicException("Write-ahead log failed: " + failure.getMessage());
+        LogBuffer out = pending;
+        int start = out.size;
+        try {
+            out.writeInt(0); // length, patched below
+            out.writeInt(0); // checksum
+            out.writeByte(kind);
+            out.writeString(t.name());
+            body.accept(out);
+        } catch (RuntimeException ex) {
+            out.size = start;
+            throw ex;
+        }
+        int payload = start + 8;
+        int length = out.size - payload;
+        crc.reset();
+        crc.update(out.data, payload, length);
+        out.putInt(start, length);
+        out.putInt(start + 4, (int) crc.getValue());
+        appendedLsn += length + 8;
+        if (durability == Durability.SYNC) notifyAll();
+        return appendedLsn;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            LogBuffer batch;
+            FileChannel ch;
+            long upto;
+            synchronized (this) {
+                try {
+                    if (durability == Durability.SYNC) {
+                        while (pending.size == 0 && !closed) wait();
+                    } else if (!closed && !flushRequested) {
+                        wait(intervalMillis);
+                    }
+                } catch (InterruptedException ex) {
+                    closed = true;
+                }
+                if (pending.size == 0) {
+                    if (closed) return;
+                    continue;
+                }
+                flushRequested = false;
+                flushing = true;
+                ch = channel;
+                batch = pending;
+                pending = spare;
+                spare = null;
+                upto = appendedLsn;
+            }
+            IOException error = null;
+            try {
+                ByteBuffer buf = ByteBuffer.wrap(batch.data, 0, batch.size);
+                while (buf.hasRemaining()) ch.write(buf);
+                if (durability != Durability.OFF) ch.force(false);
+            } catch (IOException ex) {
+                error = ex;
+            }
+            batch.size = 0;
+            synchronized (this) {
+                spare = batch;
+                flushing = false;
+                if (error != null) failure = error;
+                else durableLsn = upto;
+                notifyAll();
+                if (error != null) return;
+            }
+        }
+    }
+
+    // --- recovery ---
+
+    /**
+     * Applies the records after {@code snapshotLsn} and returns the log's base LSN and the file offset
+     * just past its last good record.
+     */
+    private static long[] replay(Path path, Database db, long snapshotLsn) throws IOException {
+        try (InputStream raw = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new JsonicException("Not a write-ahead log: " + path);
+            long base = in.readLong();
+            if (base > snapshotLsn)
+                throw new JsonicException("Write-ahead log " + path + " starts after the snapshot (" + base + " > " + snapshotLsn + ")");
+            long size = Files.size(path);
+            long offset = HEADER;
+            CRC32C crc = new CRC32C();
+            while (true) {
+                int length, checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > size - offset - 8) return end(path, base, offset, snapshotLsn);
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException torn) {
+                    return end(path, base, offset, snapshotLsn);
+                }
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                if ((int) crc.getValue() != checksum) return end(path, base, offset, snapshotLsn);
+                if (base + offset + 8 + length - HEADER <= snapshotLsn) {
+                    offset += 8 + length; // already in the snapshot
+                    continue;
+                }
+                try {
+                    apply(new LogInput(payload), db);
+                } catch (RuntimeException ex) {
+                    throw new JsonicException("Corrupt write-ahead log record at offset " + offset + ": " + ex.getMessage());
+                }
+                offset += 8 + length;
+            }
+        } catch (EOFException ex) {
+            throw new JsonicException("Not a write-ahead log: " + path);
+        }
+    }
+
+    private static long[] end(Path path, long base, long offset, long snapshotLsn) {
+        if (base + offset - HEADER < snapshotLsn)
+            throw new JsonicException("Write-ahead log " + path + " ends before the snapshot");
+        return new long[]{base, offset};
+    }
+
+    private static void apply(LogInput in, Database db) {
+        byte kind = in.readByte();
+        String typeName = in.readString();
+        if (kind == CREATE_TYPE) {
+            StorageMode storage = StorageMode.values()[in.readByte()];
+            FieldDef[] fields = new FieldDef[in.readInt()];
+            for (int i = 0; i < fields.length; i++) fields[i] = in.readField();
+            db.createType(typeName, storage, List.of(fields));
+            return;
+        }
+        DataType t = db.getType(typeName);
+        if (t == null) throw new JsonicException(com.saghar.jsonicdb.util.Errors.typeNotFound(typeName));
+        t.write(() -> {
+            applyTo(t, kind, in);
+            return null;
+        });
+    }
+
+    private static void applyTo(DataType t, byte kind, LogInput in) {
+        switch (kind) {
+            case ADD_FIELD -> t.addField(in.readField());
+            case INSERT -> {
+                Object[] row = new Object[t.fields().size()];
+                for (int c = 0; c < row.length; c++) row[c] = in.readValue(t.fieldAt(c).type());
+                t.appendRow(row);
+            }
+            case INSERT_BATCH -> {
+                Object[][] rows = new Object[in.readInt()][];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = new Object[t.fields().size()];
+                    for (int c = 0; c < rows[i].length; c++) rows[i][c] = in.readValue(t.fieldAt(c).type());
+                }
+                t.appendRows(rows);
+            }
+            case UPDATE -> {
+                int k = in.readInt();
+                int[] cols = new int[k];
+                Object[] values = new Object[k];
+                for (int j = 0; j < k; j++) {
+                    cols[j] = in.readInt();
+                    values[j] = in.readValue(t.fieldAt(cols[j]).type());
+                }
+                t.applyUpdate(in.readSlots(), cols, values);
+            }
+            case DELETE -> t.tombstone(in.readSlots());
+            case COMPACT -> t.compact();
+            default -> throw new JsonicException("unknown record kind " + kind);
+        }
+    }
+
+    /**
+     * Growable byte array the records are encoded into (big-endian).
+     */
+    private static final class LogBuffer {
+        byte[] data = new byte[1 << 16];
+        int size;
+
+        private void ensure(int n) {
+            if (size + n > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, size + n));
+        }
+
+        void writeByte(int v) {
+            ensure(1);
+            data[size++] = (byte) v;
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            putInt(size, v);
+            size += 4;
+        }
+
+        void putInt(int at, int v) {
+            data[at] = (byte) (v >>> 24);
+            data[at + 1] = (byte) (v >>> 16);
+            data[at + 2] = (byte) (v >>> 8);
+            data[at + 3] = (byte) v;
+        }
+
+        void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        void writeString(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            writeInt(b.length);
+            ensure(b.length);
+            System.arraycopy(b, 0, data, size, b.length);
+            size += b.length;
+        }
+
+        void writeField(FieldDef f) {
+            writeString(f.name());
+            writeByte(f.type().ordinal());
+            writeByte(f.required() ? 1 : 0);
+            writeByte(f.unique() ? 1 : 0);
+            writeByte(f.index().ordinal());
+        }
+
+        void writeSlots(int[] slots) {
+            writeInt(slots.length);
+            for (int s : slots) writeInt(s);
+        }
+
+        void writeValue(ValueType type, Object v) {
+            if (v == null) {
+                writeByte(0);
+                return;
+            }
+            writeByte(1);
+            switch (type) {
+                case INT -> writeInt((Integer) v);
+                case DOUBLE -> writeLong(Double.doubleToRawLongBits((Double) v));
+                case BOOL -> writeByte((Boolean) v ? 1 : 0);
+                case TIME -> writeLong(TimeCodec.encode((LocalDateTime) v));
+                case STRING -> writeString((String) v);
+                case STRING_LIST -> {
+                    List<?> list = (List<?>) v;
+                    writeInt(list.size());
+                    for (Object e : list) writeString((String) e);
+                }
+            }
+        }
+    }
+
+    private static final class LogInput {
+        private final ByteBuffer buf;
+
+        LogInput(byte[] payload) {
+            this.buf = ByteBuffer.wrap(payload);
+        }
+
+        byte readByte() {
+            return buf.get();
+        }
+
+        int readInt() {
+            return buf.getInt();
+        }
+
+        String readString() {
+            int n = buf.getInt();
+            String s = new String(buf.array(), buf.position(), n, StandardCharsets.UTF_8);
+            buf.position(buf.position() + n);
+            return s;
+        }
+
+        FieldDef readField() {
+            return new FieldDef(readString(), ValueType.values()[buf.get()], buf.get() != 0, buf.get() != 0,
+                    IndexKind.values()[buf.get()]);
+        }
+
+        int[] readSlots() {
+            int[] slots = new int[buf.getInt()];
+            for (int i = 0; i < slots.length; i++) slots[i] = buf.getInt();
+            return slots;
+        }
+
+        Object readValue(ValueType type) {
+            if (buf.get() == 0) return null;
+            return switch (type) {
+                case INT -> buf.getInt();
+                case DOUBLE -> Double.longBitsToDouble(buf.getLong());
+                case BOOL -> buf.get() != 0;
+                case TIME -> TimeCodec.decode(buf.getLong());
+                case STRING -> readString();
+                case STRING_LIST -> {
+                    int n = buf.getInt();
+                    List<String> list = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) list.add(readString());
+                    yield List.copyOf(list);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.saghar.jsonicdb.filter;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.RangeIndex;
+import com.saghar.jsonicdb.core.SlotSets;
+import com.saghar.jsonicdb.core.ValueType;
+
+import java.util.List;
+
+/**
+ * How a query reaches its candidate slots: a full scan or one of the type's indexes.
+ */
+public sealed interface AccessPath {
+
+    /**
+     * Estimated number of slots produced, counting no further than {@code cap} where that costs work.
+     */
+    int estimate(DataType type, int cap);
+
+    /**
+     * Candidate slots in ascending order.
+     */
+    int[] slots(DataType type);
+
+    record FullScan() implements AccessPath {
+        public int estimate(DataType type, int cap) {
+            return type.size();
+        }
+
+        public int[] slots(DataType type) {
+            int[] all = new int[type.size()];
+            int n = 0;
+            for (int slot = 0, end = type.slotCount(); slot < end; slot++) {
+                if (type.isLive(slot)) all[n++] = slot;
+            }
+            return all;
+        }
+
+        @Override
+        public String toString() {
+            return "FullScan";
+        }
+    }
+
+    record UniqueLookup(String field, Object value) implements AccessPath {
+        public int estimate(DataType type, int cap) {
+            return type.lookupCount(field, value);
+        }
+
+        public int[] slots(DataType type) {
+            return type.lookup(field, value);
+        }
+
+        @Override
+        public String toString() {
+            return "UniqueLookup(" + field + " = " + value + ")";
+        }
+    }
+
+    record HashLookup(String field, Object value) implements AccessPath {
+        public int estimate(DataType type, int cap) {
+            return type.lookupCount(field, value);
+        }
+
+        public int[] slots(DataType type) {
+            return type.lookup(field, value);
+        }
+
+        @Override
+        public String toString() {
+            return "HashLookup(" + field + " = " + value + ")";
+        }
+    }
+
+    /**
+     * Key range over a range index; null bounds are open.
+     */
+    record RangeScan(String field, ValueType type, Object lo, boolean loInclusive, Object hi, boolean hiInclusive)
+            implements AccessPath {
+        public int estimate(DataType t, int cap) {
+            return t.rangeCount(field, lo, loInclusive, hi, hiInclusive, cap);
+        }
+
+        public int[] slots(DataType t) {
+            return t.range(field, lo, loInclusive, hi, hiInclusive);
+        }
+
+        /**
+         * The intersection of two ranges over the same field.
+         */
+        RangeScan tighten(RangeScan o) {
+            Object nLo = lo;
+            boolean nLoInc = loInclusive;
+            if (o.lo != null) {
+                int c = lo == null ? -1 : Long.compare(RangeIndex.key(type, lo), RangeIndex.key(type, o.lo));
+                if (c < 0 || (c == 0 && !o.loInclusive)) {
+                    nLo = o.lo;
+                    nLoInc = o.loInclusive;
+                }
+            }
+            Object nHi = hi;
+            boolean nHiInc = hiInclusive;
+            if (o.hi != null) {
+                int c = hi == null ? 1 : Long.compare(RangeIndex.key(type, hi), RangeIndex.key(type, o.hi));
+                if (c > 0 || (c == 0 && !o.hiInclusive)) {
+                    nHi = o.hi;
+                    nHiInc = o.hiInclusive;
+                }
+            }
+            return new RangeScan(field, type, nLo, nLoInc, nHi, nHiInc);
+        }
+
+        @Override
+        public String toString() {
+            return "RangeScan(" + field + " in " + (lo == null ? "(-inf" : (loInclusive ? "[" : "(") + lo) + ", "
+                    + (hi == null ? "+inf)" : hi + (hiInclusive ? "]" : ")")) + ")";
+        }
+    }
+
+    record ElementLookup(String field, String element) implements AccessPath {
+        public int estimate(DataType type, int cap) {
+            return type.elementCount(field, element);
+        }
+
+        public int[] slots(DataType type) {
+            return type.lookupElement(field, element);
+        }
+
+        @Override
+        public String toString() {
+            return "ElementLookup(" + field + " include " + element + ")";
+        }
+    }
+
+    record Intersect(List<AccessPath> paths) implements AccessPath {
+        public int estimate(DataType type, int cap) {
+            int best = cap;
+            for (AccessPath p : paths) best = Math.min(best, p.estimate(type, best));
+            return best;
+        }
+
+        public int[] slots(DataType type) {
+            int[] out = paths.get(0).slots(type);
+            for (int i = 1; i < paths.size() && out.length > 0; i++) out = SlotSets.intersect(out, paths.get(i).slots(type));
+            return out;
+        }
+
+        @Override
+        public String toString() {
+            return "Intersect" + paths;
+        }
+    }
+
+    record Union(List<AccessPath> paths) implements AccessPath {
+        public int estimate(DataType type, int cap) {
+            long sum = 0;
+            for (AccessPath p : paths) sum += p.estimate(type, cap);
+            return (int) Math.min(sum, cap);
+        }
+
+        public int[] slots(DataType type) {
+            int[] out = paths.get(0).slots(type);
+            for (int i = 1; i < paths.size(); i++) out = SlotSets.union(out, paths.get(i).slots(type));
+            return out;
+        }
+
+        @Override
+        public String toString() {
+            return "Union" + paths;
+        }
+    }
+}
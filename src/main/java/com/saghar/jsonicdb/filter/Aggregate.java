@@ -0,0 +1,20 @@
+package com.saghar.jsonicdb.filter;
+
+import java.util.Locale;
+
+/**
+ * One aggregate of an aggregate query, such as {@code sum(price)}. {@code field} is null for a row count.
+ */
+public record Aggregate(Function function, String field) {
+    public enum Function {
+        COUNT, COUNT_DISTINCT, SUM, AVG, MIN, MAX
+    }
+
+    public String label() {
+        return switch (function) {
+            case COUNT -> "count";
+            case COUNT_DISTINCT -> "count(distinct " + field + ")";
+            default -> function.name().toLowerCase(Locale.ROOT) + "(" + field + ")";
+        };
+    }
+}
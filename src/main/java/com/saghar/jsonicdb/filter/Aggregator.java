@@ -0,0 +1,146 @@
+package com.saghar.jsonicdb.filter;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.FieldDef;
+import com.saghar.jsonicdb.core.ReadView;
+import com.saghar.jsonicdb.core.RecordStore;
+import com.saghar.jsonicdb.core.ValueType;
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Runs aggregate queries against a {@link ReadView}. Matching rows are aggregated as they are found,
+ * in the same pass that tests the filter: a full scan folds each chunk of slots into its own
+ * {@link GroupTable}, an index probe folds its candidates the same way, and the partial tables are
+ * merged at the end. Groups come out sorted by their key values.
+ */
+public final class Aggregator {
+    private Aggregator() {
+    }
+
+    /**
+     * Column names (the group fields, then each aggregate's label) and one row of values per group.
+     */
+    public record Result(List<String> columns, List<Object[]> rows) {
+    }
+
+    public static Result run(ReadView view, Filter filter, List<String> groupBy, List<Aggregate> aggregates) {
+        DataType type = view.type();
+        GroupTable.Strings strings = new GroupTable.Strings();
+        int[] keyColumns = new int[groupBy.size()];
+        ValueType[] keyTypes = new ValueType[groupBy.size()];
+        List<String> columns = new ArrayList<>();
+        for (int i = 0; i < keyColumns.length; i++) {
+            FieldDef f = field(view, groupBy.get(i));
+            if (f.type() == ValueType.STRING_LIST) throw new JsonicException("Cannot group by list field: " + f.name());
+            keyColumns[i] = type.column(f.name());
+            keyTypes[i] = f.type();
+            columns.add(f.name());
+        }
+        Aggregate.Function[] functions = new Aggregate.Function[aggregates.size()];
+        int[] valueColumns = new int[functions.length];
+        ValueType[] valueTypes = new ValueType[functions.length];
+        for (int a = 0; a < functions.length; a++) {
+            Aggregate agg = aggregates.get(a);
+            functions[a] = agg.function();
+            columns.add(agg.label());
+            if (agg.field() == null) {
+                valueColumns[a] = -1;
+                continue;
+            }
+            FieldDef f = field(view, agg.field());
+            check(agg, f.type());
+            valueColumns[a] = type.column(f.name());
+            valueTypes[a] = f.type();
+        }
+        GroupTable.Spec spec = new GroupTable.Spec(keyColumns, keyTypes, functions, valueColumns, valueTypes, strings);
+
+        GroupTable table = aggregate(view, filter, spec);
+        List<Object[]> rows = new ArrayList<>(table.groups());
+        Integer[] order = new Integer[table.groups()];
+        for (int g = 0; g < order.length; g++) order[g] = g;
+        Arrays.sort(order, byKey(table, spec));
+        for (int g : order) {
+            Object[] row = new Object[keyColumns.length + functions.length];
+            for (int i = 0; i < keyColumns.length; i++) row[i] = GroupTable.decode(table.key(g, i), keyTypes[i], strings);
+            for (int a = 0; a < functions.length; a++) row[keyColumns.length + a] = table.value(g, a);
+            rows.add(row);
+        }
+        if (keyColumns.length == 0 && rows.isEmpty()) {
+            // no rows matched: counts and sums are zero, the rest have no value
+            Object[] row = new Object[functions.length];
+            for (int a = 0; a < functions.length; a++) {
+                row[a] = switch (functions[a]) {
+                    case COUNT, COUNT_DISTINCT -> 0L;
+                    case SUM -> valueTypes[a] == ValueType.DOUBLE ? (Object) 0.0 : (Object) 0L;
+                    default -> null;
+                };
+            }
+            rows.add(row);
+        }
+        return new Result(List.copyOf(columns), rows);
+    }
+
+    private static GroupTable aggregate(ReadView view, Filter filter, GroupTable.Spec spec) {
+        DataType type = view.type();
+        RecordStore store = view.store();
+        QueryPlan plan = QueryPlanner.plan(view, filter);
+        boolean fullScan = plan.access() instanceof AccessPath.FullScan;
+        int[] candidates = fullScan ? null : view.ifCurrent(() -> plan.access().slots(type));
+        // without the index's candidates the whole filter is tested on every slot
+        Filter rest = fullScan || candidates != null ? plan.residual() : filter;
+        SlotPredicate match = rest == null ? null : rest.compile(view);
+        if (candidates != null) {
+            return type.scanSettings().fold(candidates.length, (from, to) -> {
+                GroupTable t = new GroupTable(spec);
+                for (int i = from; i < to; i++) {
+                    if (match == null || match.test(candidates[i])) t.add(store, candidates[i]);
+                }
+                return t;
+            }, GroupTable::merge);
+        }
+        return type.scanSettings().fold(view.slotLimit(), (from, to) -> {
+            GroupTable t = new GroupTable(spec);
+            for (int slot = from; slot < to; slot++) {
+                if (view.isVisible(slot) && (match == null || match.test(slot))) t.add(store, slot);
+            }
+            return t;
+        }, GroupTable::merge);
+    }
+
+    private static FieldDef field(ReadView view, String name) {
+        FieldDef f = view.type().field(name);
+        if (f == null || view.type().column(name) >= view.columns()) {
+            throw new JsonicException(com.saghar.jsonicdb.util.Errors.fieldNotFound(name));
+        }
+        return f;
+    }
+
+    private static void check(Aggregate agg, ValueType t) {
+        boolean ok = switch (agg.function()) {
+            case COUNT -> true;
+            case COUNT_DISTINCT -> t != ValueType.STRING_LIST;
+            case SUM, AVG -> t == ValueType.INT || t == ValueType.DOUBLE;
+            case MIN, MAX -> t == ValueType.INT || t == ValueType.DOUBLE || t == ValueType.TIME;
+        };
+        if (!ok) throw new JsonicException("Cannot compute " + agg.label() + " over a " + t + " field");
+    }
+
+    // groups in ascending order of their key values, first field first
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Integer> byKey(GroupTable table, GroupTable.Spec spec) {
+        return (a, b) -> {
+            for (int i = 0; i < spec.keyTypes().length; i++) {
+                Comparable x = (Comparable) GroupTable.decode(table.key(a, i), spec.keyTypes()[i], spec.strings());
+                Comparable y = (Comparable) GroupTable.decode(table.key(b, i), spec.keyTypes()[i], spec.strings());
+                int cmp = x == null || y == null ? (x == null ? (y == null ? 0 : -1) : 1) : x.compareTo(y);
+                if (cmp != 0) return cmp;
+            }
+            return 0;
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.saghar.jsonicdb.filter;
+
+import com.saghar.jsonicdb.core.DataRecord;
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.ReadView;
+
+public record AndFilter(Filter left, Filter right) implements Filter {
+    @Override
+    public boolean test(DataType type, DataRecord record) {
+        return left.test(type, record) && right.test(type, record);
+    }
+
+    @Override
+    public SlotPredicate compile(DataType type) {
+        SlotPredicate l = left.compile(type);
+        SlotPredicate r = right.compile(type);
+        return slot -> l.test(slot) && r.test(slot);
+    }
+
+    @Override
+    public SlotPredicate compile(ReadView view) {
+        SlotPredicate l = left.compile(view);
+        SlotPredicate r = right.compile(view);
+        return slot -> l.test(slot) && r.test(slot);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + left + " AND " + right + ")";
+    }
+}
@@ -0,0 +1,146 @@
+package com.saghar.jsonicdb.filter;
+
+import com.saghar.jsonicdb.core.ColumnStore;
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.TimeCodec;
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * A filter evaluated a block of slots at a time into selection bitmaps. Comparisons of columnar int,
+ * double and time fields run as {@link VectorKernels SIMD kernels}, and any other comparison is tested
+ * slot by slot. AND and OR combine the bitmaps a word at a time.
+ */
+final class BitmapPlan {
+    static final boolean VECTOR_API = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private final ColumnStore store;
+    private final Node root;
+
+    private BitmapPlan(ColumnStore store, Node root) {
+        this.store = store;
+        this.root = root;
+    }
+
+    private sealed interface Node permits Kernel, Scalar, And, Or {
+    }
+
+    private record Kernel(int column, PredicateFilter.Bound bound) implements Node {
+    }
+
+    private record Scalar(SlotPredicate predicate) implements Node {
+    }
+
+    private record And(Node left, Node right) implements Node {
+    }
+
+    private record Or(Node left, Node right) implements Node {
+    }
+
+    /**
+     * Plans {@code filter} over a columnar type, compiling what the kernels cannot take with
+     * {@code compile}. Returns null when the vector module is missing, the type is not columnar, or
+     * no comparison in the filter would run as a kernel.
+     */
+    static BitmapPlan of(Filter filter, DataType type, Function<Filter, SlotPredicate> compile) {
+        if (!VECTOR_API || !(type.store() instanceof ColumnStore cs)) return null;
+        int[] kernels = new int[1];
+        Node root = node(filter, type, compile, kernels);
+        return kernels[0] == 0 ? null : new BitmapPlan(cs, root);
+    }
+
+    private static Node node(Filter f, DataType type, Function<Filter, SlotPredicate> compile, int[] kernels) {
+        if (f instanceof AndFilter and) return new And(node(and.left(), type, compile, kernels), node(and.right(), type, compile, kernels));
+        if (f instanceof OrFilter or) return new Or(node(or.left(), type, compile, kernels), node(or.right(), type, compile, kernels));
+        if (f instanceof PredicateFilter p && !p.operator().equals("include")) {
+            PredicateFilter.Bound b = p.bind(type);
+            if (b != null && vectorizable(b)) {
+                kernels[0]++;
+                return new Kernel(type.column(b.field().name()), b);
+            }
+        }
+        return new Scalar(compile.apply(f));
+    }
+
+    private static boolean vectorizable(PredicateFilter.Bound b) {
+        return switch (b.field().type()) {
+            case INT, TIME -> true;
+            // NaN and zero literals order differently under IEEE compare, see VectorKernels
+            case DOUBLE -> (Double) b.value() != 0.0 && !Double.isNaN((Double) b.value());
+            default -> false;
+        };
+    }
+
+    /**
+     * Ascending slots in {@code [from, to)} that match the filter and {@code live} accepts.
+     */
+    int[] select(int from, int to, IntPredicate live) {
+        long[] words = new long[(to - from + 63) >>> 6];
+        eval(root, from, to, words);
+        int[] out = new int[16];
+        int n = 0;
+        for (int i = 0; i < words.length; i++) {
+            for (long w = words[i]; w != 0; w &= w - 1) {
+                int slot = from + (i << 6) + Long.numberOfTrailingZeros(w);
+                if (!live.test(slot)) continue;
+                if (n == out.length) out = Arrays.copyOf(out, n * 2);
+                out[n++] = slot;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // sets the bits of the matching slots in words, which start out clear
+    private void eval(Node node, int from, int to, long[] words) {
+        if (node instanceof Kernel k) {
+            PredicateFilter.Bound b = k.bound();
+            switch (b.field().type()) {
+                case INT -> VectorKernels.compare(store.ints(k.column()), from, to, b.operator(), (Integer) b.value(), words);
+                case DOUBLE -> VectorKernels.compare(store.doubles(k.column()), from, to, b.operator(), (Double) b.value(), words);
+                case TIME -> VectorKernels.compare(store.times(k.column()), from, to, b.operator(),
+                        TimeCodec.bound((LocalDateTime) b.value()), words);
+                default -> throw new IllegalStateException(String.valueOf(b.field().type()));
+            }
+        } else if (node instanceof Scalar s) {
+            for (int slot = from; slot < to; slot++) {
+                if (s.predicate().test(slot)) words[(slot - from) >>> 6] |= 1L << (slot - from);
+            }
+        } else if (node instanceof And a) {
+            eval(a.left(), from, to, words);
+            if (a.right() instanceof Scalar s) {
+                // only the slots still selected need the per-slot test
+                for (int i = 0; i < words.length; i++) {
+                    for (long w = words[i]; w != 0; w &= w - 1) {
+                        int bit = Long.numberOfTrailingZeros(w);
+                        if (!s.predicate().test(from + (i << 6) + bit)) words[i] &= ~(1L << bit);
+                    }
+                }
+                return;
+            }
+            long[] right = new long[words.length];
+            eval(a.right(), from, to, right);
+            for (int i = 0; i < words.length; i++) words[i] &= right[i];
+        } else if (node instanceof Or o) {
+            long[] right = new long[words.length];
+            eval(o.left(), from, to, words);
+            eval(o.right(), from, to, right);
+            for (int i = 0; i < words.length; i++) words[i] |= right[i];
+        }
+    }
+
+    static boolean holds(String operator, int cmp) {
+        return switch (operator) {
+            case "=" -> cmp == 0;
+            case "!=" -> cmp != 0;
+            case "<" -> cmp < 0;
+            case "<=" -> cmp <= 0;
+            case ">" -> cmp > 0;
+            case ">=" -> cmp >= 0;
+            default -> throw new JsonicException("Unknown operator: " + operator);
+        };
+    }
+}
@@ -2,11 +2,36 @@ package com.saghar.jsonicdb.filter;
 
 import com.saghar.jsonicdb.core.DataRecord;
 import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.ReadView;
 
 @FunctionalInterface
 public interface Filter {
     boolean test(DataType type, DataRecord record);
 
+    /**
+     * Binds this filter to a type once, for evaluation over many slots. Filters that cannot be
+     * specialized fall back to {@link #test} on a record view.
+     */
+    default SlotPredicate compile(DataType type) {
+        return slot -> test(type, type.record(slot));
+    }
+
+    /**
+     * Same as {@link #compile(DataType)}, but evaluated against the values a view sees.
+     */
+    default SlotPredicate compile(ReadView view) {
+        return slot -> test(view.type(), view.record(slot));
+    }
+
+    /**
+     * Ascending slots the planner would read from indexes for this filter, or null when it would
+     * fall back to a full scan. Candidates still need the plan's residual check.
+     */
+    default int[] candidates(DataType type) {
+        QueryPlan plan = QueryPlanner.plan(type, this);
+        return plan.access() instanceof AccessPath.FullScan ? null : plan.access().slots(type);
+    }
+
     static Filter alwaysTrue() {
         return (t, r) -> true;
     }
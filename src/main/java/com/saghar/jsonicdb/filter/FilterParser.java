@@ -21,9 +21,7 @@ public final class FilterParser {
     private Filter parseOr() {
         Filter left = parseAnd();
         while (matchKeyword("or")) {
-            Filter right = parseAnd();
-            Filter l = left;
-            left = (t, r) -> l.test(t, r) || right.test(t, r);
+            left = new OrFilter(left, parseAnd());
         }
         return left;
     }
@@ -31,9 +29,7 @@ public final class FilterParser {
     private Filter parseAnd() {
         Filter left = parseAtom();
         while (matchKeyword("and")) {
-            Filter right = parseAtom();
-            Filter l = left;
-            left = (t, r) -> l.test(t, r) && right.test(t, r);
+            left = new AndFilter(left, parseAtom());
         }
         return left;
     }
@@ -0,0 +1,291 @@
+package com.saghar.jsonicdb.filter;
+
+import com.saghar.jsonicdb.core.RecordStore;
+import com.saghar.jsonicdb.core.TimeCodec;
+import com.saghar.jsonicdb.core.ValueType;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hash aggregation over primitive arrays. A group is its key fields' values encoded as longs (strings
+ * by their id in a {@link Strings} dictionary shared by every partial table of a query), found by open
+ * addressing. Each aggregate keeps one primitive array indexed by group id, so adding a row boxes
+ * nothing. Partial tables built by separate threads are combined with {@link #merge}.
+ */
+final class GroupTable {
+    private static final long EMPTY_CODE = -1; // a null string
+
+    private final Spec spec;
+    private long[] keys; // spec.keyColumns.length longs per group
+    private long[] rows; // rows per group
+    private final long[][] longs; // per aggregate: INT/TIME sums, mins or maxes; distinct counts
+    private final double[][] doubles; // per aggregate: DOUBLE sums, mins or maxes
+    private final DistinctSet[] distinct;
+    private final long[] scratch; // the key of the row being added
+    private int[] table; // group id + 1, 0 = empty
+    private int groups;
+
+    /**
+     * The columns a query groups by and aggregates, with their types. {@code valueColumns[i]} is -1 for a row count.
+     */
+    record Spec(int[] keyColumns, ValueType[] keyTypes, Aggregate.Function[] functions, int[] valueColumns,
+                ValueType[] valueTypes, Strings strings) {
+    }
+
+    /**
+     * Assigns ids to the strings a query groups by or counts, so they can take part as longs.
+     */
+    static final class Strings {
+        private final Map<String, Long> ids = new ConcurrentHashMap<>();
+        private final Map<Long, String> values = new ConcurrentHashMap<>();
+        private final AtomicLong next = new AtomicLong();
+
+        long id(String s) {
+            if (s == null) return EMPTY_CODE;
+            Long id = ids.get(s);
+            return id != null ? id : ids.computeIfAbsent(s, k -> {
+                long n = next.getAndIncrement();
+                values.put(n, k);
+                return n;
+            });
+        }
+
+        String value(long id) {
+            return id == EMPTY_CODE ? null : values.get(id);
+        }
+    }
+
+    GroupTable(Spec spec) {
+        this.spec = spec;
+        int n = spec.functions().length;
+        this.keys = new long[16 * spec.keyColumns().length];
+        this.rows = new long[16];
+        this.longs = new long[n][];
+        this.doubles = new double[n][];
+        this.distinct = new DistinctSet[n];
+        for (int a = 0; a < n; a++) {
+            if (spec.functions()[a] == Aggregate.Function.COUNT_DISTINCT) {
+                longs[a] = new long[16];
+                distinct[a] = new DistinctSet();
+            } else if (spec.valueTypes()[a] == ValueType.DOUBLE) {
+                doubles[a] = new double[16];
+            } else if (spec.valueColumns()[a] >= 0) {
+                longs[a] = new long[16];
+            }
+        }
+        this.scratch = new long[spec.keyColumns().length];
+        this.table = new int[64];
+    }
+
+    int groups() {
+        return groups;
+    }
+
+    void add(RecordStore store, int slot) {
+        long[] key = scratch;
+        for (int i = 0; i < key.length; i++) key[i] = code(store, slot, spec.keyColumns()[i], spec.keyTypes()[i], spec.strings());
+        int g = group(key, 0);
+        boolean first = rows[g] == 0;
+        for (int a = 0; a < spec.functions().length; a++) {
+            int c = spec.valueColumns()[a];
+            switch (spec.functions()[a]) {
+                case COUNT -> {
+                }
+                case COUNT_DISTINCT -> {
+                    if (distinct[a].add(g, code(store, slot, c, spec.valueTypes()[a], spec.strings()))) longs[a][g]++;
+                }
+                case SUM, AVG -> {
+                    if (doubles[a] != null) doubles[a][g] += store.getDouble(slot, c);
+                    else longs[a][g] += store.getInt(slot, c);
+                }
+                case MIN, MAX -> {
+                    boolean min = spec.functions()[a] == Aggregate.Function.MIN;
+                    if (doubles[a] != null) {
+                        double v = store.getDouble(slot, c);
+                        int cmp = Double.compare(v, doubles[a][g]);
+                        if (first || (min ? cmp < 0 : cmp > 0)) doubles[a][g] = v;
+                    } else {
+                        long v = spec.valueTypes()[a] == ValueType.TIME ? store.getTime(slot, c) : store.getInt(slot, c);
+                        if (first || (min ? v < longs[a][g] : v > longs[a][g])) longs[a][g] = v;
+                    }
+                }
+            }
+        }
+        rows[g]++;
+    }
+
+    /**
+     * Folds {@code other}'s groups into this table and returns it.
+     */
+    GroupTable merge(GroupTable other) {
+        int width = spec.keyColumns().length;
+        int[] into = new int[other.groups];
+        for (int og = 0; og < other.groups; og++) {
+            int g = into[og] = group(other.keys, og * width);
+            boolean first = rows[g] == 0;
+            for (int a = 0; a < spec.functions().length; a++) {
+                switch (spec.functions()[a]) {
+                    case COUNT, COUNT_DISTINCT -> {
+                    }
+                    case SUM, AVG -> {
+                        if (doubles[a] != null) doubles[a][g] += other.doubles[a][og];
+                        else longs[a][g] += other.longs[a][og];
+                    }
+                    case MIN, MAX -> {
+                        boolean min = spec.functions()[a] == Aggregate.Function.MIN;
+                        if (doubles[a] != null) {
+                            double v = other.doubles[a][og];
+                            int cmp = Double.compare(v, doubles[a][g]);
+                            if (first || (min ? cmp < 0 : cmp > 0)) doubles[a][g] = v;
+                        } else {
+                            long v = other.longs[a][og];
+                            if (first || (min ? v < longs[a][g] : v > longs[a][g])) longs[a][g] = v;
+                        }
+                    }
+                }
+            }
+            rows[g] += other.rows[og];
+        }
+        for (int a = 0; a < spec.functions().length; a++) {
+            if (distinct[a] == null) continue;
+            DistinctSet theirs = other.distinct[a];
+            for (int i = 0; i < theirs.groups.length; i++) {
+                if (theirs.groups[i] == 0) continue;
+                int g = into[theirs.groups[i] - 1];
+                if (distinct[a].add(g, theirs.codes[i])) longs[a][g]++;
+            }
+        }
+        return this;
+    }
+
+    long key(int group, int field) {
+        return keys[group * spec.keyColumns().length + field];
+    }
+
+    /**
+     * The value of aggregate {@code a} for {@code group}: a long count or INT sum, a double sum or
+     * average, or a min or max of the field's own type.
+     */
+    Object value(int group, int a) {
+        return switch (spec.functions()[a]) {
+            case COUNT -> rows[group];
+            case COUNT_DISTINCT -> longs[a][group];
+            case SUM -> doubles[a] != null ? (Object) doubles[a][group] : (Object) longs[a][group];
+            case AVG -> (doubles[a] != null ? doubles[a][group] : (double) longs[a][group]) / rows[group];
+            case MIN, MAX -> switch (spec.valueTypes()[a]) {
+                case DOUBLE -> doubles[a][group];
+                case TIME -> TimeCodec.decode(longs[a][group]);
+                default -> (int) longs[a][group];
+            };
+        };
+    }
+
+    static long code(RecordStore store, int slot, int column, ValueType type, Strings strings) {
+        return switch (type) {
+            case INT -> store.getInt(slot, column);
+            case DOUBLE -> Double.doubleToLongBits(store.getDouble(slot, column));
+            case TIME -> store.getTime(slot, column);
+            case BOOL -> store.getBool(slot, column) ? 1 : 0;
+            case STRING -> strings.id(store.getString(slot, column));
+            case STRING_LIST -> throw new IllegalArgumentException("No group key for " + type);
+        };
+    }
+
+    static Object decode(long code, ValueType type, Strings strings) {
+        return switch (type) {
+            case INT -> (int) code;
+            case DOUBLE -> Double.longBitsToDouble(code);
+            case TIME -> TimeCodec.decode(code);
+            case BOOL -> code != 0;
+            case STRING -> strings.value(code);
+            case STRING_LIST -> throw new IllegalArgumentException("No group key for " + type);
+        };
+    }
+
+    // the id of the group whose key is key[from .. from + width), added if new
+    private int group(long[] key, int from) {
+        int width = spec.keyColumns().length;
+        int mask = table.length - 1;
+        for (int i = hash(key, from, width) & mask; ; i = (i + 1) & mask) {
+            int g = table[i] - 1;
+            if (g < 0) {
+                g = groups++;
+                if (g == rows.length) grow();
+                System.arraycopy(key, from, keys, g * width, width);
+                table[i] = g + 1;
+                if (groups * 2 > table.length) rehash();
+                return g;
+            }
+            if (Arrays.equals(keys, g * width, g * width + width, key, from, from + width)) return g;
+        }
+    }
+
+    private static int hash(long[] key, int from, int width) {
+        long h = 0;
+        for (int i = from; i < from + width; i++) h = (h + key[i]) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void grow() {
+        int cap = rows.length * 2;
+        keys = Arrays.copyOf(keys, cap * spec.keyColumns().length);
+        rows = Arrays.copyOf(rows, cap);
+        for (int a = 0; a < longs.length; a++) {
+            if (longs[a] != null) longs[a] = Arrays.copyOf(longs[a], cap);
+            if (doubles[a] != null) doubles[a] = Arrays.copyOf(doubles[a], cap);
+        }
+    }
+
+    private void rehash() {
+        int width = spec.keyColumns().length;
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int g = 0; g < groups; g++) {
+            int i = hash(keys, g * width, width) & mask;
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = g + 1;
+        }
+    }
+
+    // (group, value code) pairs already counted by a COUNT_DISTINCT
+    private static final class DistinctSet {
+        int[] groups = new int[64]; // group id + 1, 0 = empty
+        long[] codes = new long[64];
+        int size;
+
+        boolean add(int group, long code) {
+            int mask = groups.length - 1;
+            int i = spread(group, code) & mask;
+            for (; groups[i] != 0; i = (i + 1) & mask) {
+                if (groups[i] == group + 1 && codes[i] == code) return false;
+            }
+            groups[i] = group + 1;
+            codes[i] = code;
+            if (++size * 2 > groups.length) rehash();
+            return true;
+        }
+
+        private static int spread(int group, long code) {
+            long h = (code * 0x9E3779B97F4A7C15L + group) * 0xC2B2AE3D27D4EB4FL;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private void rehash() {
+            int[] oldGroups = groups;
+            long[] oldCodes = codes;
+            groups = new int[oldGroups.length * 2];
+            codes = new long[oldGroups.length * 2];
+            int mask = groups.length - 1;
+            for (int j = 0; j < oldGroups.length; j++) {
+                if (oldGroups[j] == 0) continue;
+                int i = spread(oldGroups[j] - 1, oldCodes[j]) & mask;
+                while (groups[i] != 0) i = (i + 1) & mask;
+                groups[i] = oldGroups[j];
+                codes[i] = oldCodes[j];
+            }
+        }
+    }
+}
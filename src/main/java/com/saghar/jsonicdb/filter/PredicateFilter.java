@@ -3,6 +3,9 @@ package com.saghar.jsonicdb.filter;
 import com.saghar.jsonicdb.core.DataRecord;
 import com.saghar.jsonicdb.core.DataType;
 import com.saghar.jsonicdb.core.FieldDef;
+import com.saghar.jsonicdb.core.ReadView;
+import com.saghar.jsonicdb.core.RecordStore;
+import com.saghar.jsonicdb.core.TimeCodec;
 import com.saghar.jsonicdb.core.ValueType;
 import com.saghar.jsonicdb.filter.FilterParser.Token;
 import com.saghar.jsonicdb.util.JsonicException;
@@ -10,11 +13,13 @@ import com.saghar.jsonicdb.util.JsonicException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.IntUnaryOperator;
 
-final class PredicateFilter implements Filter {
+public final class PredicateFilter implements Filter {
     private final Token a;
     private final Token op;
     private final Token b;
+    private volatile Compiled compiled; // last binding, reused while the type's schema is unchanged
 
     PredicateFilter(Token a, Token op, Token b) {
         this.a = a;
@@ -55,25 +60,126 @@ final class PredicateFilter implements Filter {
             String fieldName = left.asField().toLowerCase();
             FieldDef f = type.field(fieldName);
             if (f == null) throw new JsonicException("Unknown field in filter: " + left.asField());
-            Object lv = record.get(fieldName);
             Object rv = parseToType(f.type(), right.raw(), right);
-            return apply(operator, lv, rv);
+            return applyColumn(operator, record.store(), record.slot(), type.column(fieldName), f.type(), rv);
         }
 
         if (right.isField()) {
             String fieldName = right.asField().toLowerCase();
             FieldDef f = type.field(fieldName);
             if (f == null) throw new JsonicException("Unknown field in filter: " + right.asField());
-            Object rv = record.get(fieldName);
             Object lv = parseToType(f.type(), left.raw(), left);
             // swap sides => invert comparison operators
-            return apply(invert(operator), rv, lv);
+            return applyColumn(invert(operator), record.store(), record.slot(), type.column(fieldName), f.type(), lv);
         }
 
         // literal vs literal
         return apply(operator, left.asBestEffortLiteral(), right.asBestEffortLiteral());
     }
 
+    /**
+     * Resolves fields and parses literals once, with the same rules as {@link #test}, and returns a
+     * comparison specialized to the field's value type.
+     */
+    @Override
+    public SlotPredicate compile(DataType type) {
+        Compiled c = compiled;
+        long version = type.schemaVersion();
+        if (c != null && c.type == type && c.schemaVersion == version) return c.predicate;
+        SlotPredicate p = bindTo(type, type.store());
+        compiled = new Compiled(type, version, p);
+        return p;
+    }
+
+    // bound per view, since each reads its own store
+    @Override
+    public SlotPredicate compile(ReadView view) {
+        return bindTo(view.type(), view.store());
+    }
+
+    private record Compiled(DataType type, long schemaVersion, SlotPredicate predicate) {
+    }
+
+    private SlotPredicate bindTo(DataType type, RecordStore store) {
+        String operator = operator();
+        Operand left = Operand.fromToken(a);
+        Operand right = Operand.fromToken(b);
+
+        if (operator.equals("include")) {
+            if (!left.isField()) throw new JsonicException("include expects a field on the left");
+            FieldDef f = type.field(left.asField());
+            if (f == null) throw new JsonicException("Unknown field in filter: " + left.asField());
+            if (f.type() != ValueType.STRING_LIST)
+                throw new JsonicException("include is only supported for string lists");
+            int column = type.column(f.name());
+            String needle = right.asStringLiteral();
+            return slot -> store.get(slot, column) instanceof List<?> list && list.contains(needle);
+        }
+
+        if (left.isField() && type.field(left.asField()) == null) left = Operand.literal(left.raw());
+        if (right.isField() && type.field(right.asField()) == null) right = Operand.literal(right.raw());
+
+        if (left.isField()) {
+            FieldDef f = type.field(left.asField());
+            return compileColumn(operator, store, type.column(f.name()), f.type(), parseToType(f.type(), right.raw(), right));
+        }
+        if (right.isField()) {
+            FieldDef f = type.field(right.asField());
+            return compileColumn(invert(operator), store, type.column(f.name()), f.type(), parseToType(f.type(), left.raw(), left));
+        }
+        boolean constant = apply(operator, left.asBestEffortLiteral(), right.asBestEffortLiteral());
+        return slot -> constant;
+    }
+
+    public String operator() {
+        return op.text().toLowerCase();
+    }
+
+    /**
+     * Resolves this comparison against a type as "field op value" (operands swapped and operator
+     * inverted when the field is on the right). Returns null when no side names a field of the type
+     * or the literal does not parse as the field's type; such predicates are only ever scanned.
+     */
+    public Bound bind(DataType type) {
+        String operator = operator();
+        Operand left = Operand.fromToken(a);
+        Operand right = Operand.fromToken(b);
+        try {
+            if (operator.equals("include")) {
+                if (!left.isField() || type.field(left.asField()) == null) return null;
+                FieldDef f = type.field(left.asField());
+                if (f.type() != ValueType.STRING_LIST) return null;
+                return new Bound(f, operator, right.asStringLiteral());
+            }
+            // same side resolution as test(): an existing field on the left wins
+            if (left.isField() && type.field(left.asField()) != null) {
+                FieldDef f = type.field(left.asField());
+                if (f.type() == ValueType.STRING_LIST) return null;
+                return new Bound(f, operator, parseToType(f.type(), right.raw(), right));
+            }
+            if (right.isField() && type.field(right.asField()) != null) {
+                FieldDef f = type.field(right.asField());
+                if (f.type() == ValueType.STRING_LIST) return null;
+                return new Bound(f, invert(operator), parseToType(f.type(), left.raw(), left));
+            }
+            return null;
+        } catch (JsonicException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * A comparison resolved against a type: {@code field operator value}, value already typed.
+     */
+    public record Bound(FieldDef field, String operator, Object value) {
+    }
+
+    @Override
+    public String toString() {
+        return (a.type() == FilterParser.TokenType.STRING ? "\"" + a.text() + "\"" : a.text()) + " " + op.text() + " "
+                + (b.type() == FilterParser.TokenType.STRING ? "\"" + b.text() + "\"" : b.text());
+    }
+
     private static Object parseToType(ValueType type, String raw, Operand op) {
         return switch (type) {
             case STRING -> op.asStringLiteral();
@@ -85,6 +191,96 @@ final class PredicateFilter implements Filter {
         };
     }
 
+    // reads the field through the typed store accessors, so columnar types compare unboxed primitives
+    private static boolean applyColumn(String operator, RecordStore s, int slot, int column, ValueType vt, Object literal) {
+        int cmp = switch (vt) {
+            case INT -> Integer.compare(s.getInt(slot, column), (Integer) literal);
+            case DOUBLE -> Double.compare(s.getDouble(slot, column), (Double) literal);
+            case TIME -> Long.compare(s.getTime(slot, column), TimeCodec.bound((LocalDateTime) literal));
+            case BOOL -> Boolean.compare(s.getBool(slot, column), (Boolean) literal);
+            case STRING -> s.getString(slot, column).compareTo((String) literal);
+            case STRING_LIST -> throw new JsonicException("Cannot compare a list directly; use include");
+        };
+        return switch (operator) {
+            case "=" -> cmp == 0;
+            case "!=" -> cmp != 0;
+            case "<" -> cmp < 0;
+            case "<=" -> cmp <= 0;
+            case ">" -> cmp > 0;
+            case ">=" -> cmp >= 0;
+            default -> throw new JsonicException("Unknown operator: " + operator);
+        };
+    }
+
+    private static SlotPredicate compileColumn(String operator, RecordStore s, int c, ValueType vt, Object literal) {
+        return switch (vt) {
+            case INT -> {
+                int v = (Integer) literal;
+                yield switch (operator) {
+                    case "=" -> slot -> s.getInt(slot, c) == v;
+                    case "!=" -> slot -> s.getInt(slot, c) != v;
+                    case "<" -> slot -> s.getInt(slot, c) < v;
+                    case "<=" -> slot -> s.getInt(slot, c) <= v;
+                    case ">" -> slot -> s.getInt(slot, c) > v;
+                    case ">=" -> slot -> s.getInt(slot, c) >= v;
+                    default -> throw new JsonicException("Unknown operator: " + operator);
+                };
+            }
+            case DOUBLE -> {
+                // Double.compare keeps NaN and -0.0 ordering identical to test()
+                double v = (Double) literal;
+                yield switch (operator) {
+                    case "=" -> slot -> Double.compare(s.getDouble(slot, c), v) == 0;
+                    case "!=" -> slot -> Double.compare(s.getDouble(slot, c), v) != 0;
+                    case "<" -> slot -> Double.compare(s.getDouble(slot, c), v) < 0;
+                    case "<=" -> slot -> Double.compare(s.getDouble(slot, c), v) <= 0;
+                    case ">" -> slot -> Double.compare(s.getDouble(slot, c), v) > 0;
+                    case ">=" -> slot -> Double.compare(s.getDouble(slot, c), v) >= 0;
+                    default -> throw new JsonicException("Unknown operator: " + operator);
+                };
+            }
+            case TIME -> {
+                long v = TimeCodec.bound((LocalDateTime) literal);
+                yield switch (operator) {
+                    case "=" -> slot -> s.getTime(slot, c) == v;
+                    case "!=" -> slot -> s.getTime(slot, c) != v;
+                    case "<" -> slot -> s.getTime(slot, c) < v;
+                    case "<=" -> slot -> s.getTime(slot, c) <= v;
+                    case ">" -> slot -> s.getTime(slot, c) > v;
+                    case ">=" -> slot -> s.getTime(slot, c) >= v;
+                    default -> throw new JsonicException("Unknown operator: " + operator);
+                };
+            }
+            case BOOL -> {
+                boolean v = (Boolean) literal;
+                yield switch (operator) {
+                    case "=" -> slot -> s.getBool(slot, c) == v;
+                    case "!=" -> slot -> s.getBool(slot, c) != v;
+                    default -> compareWith(operator, slot -> Boolean.compare(s.getBool(slot, c), v));
+                };
+            }
+            case STRING -> {
+                String v = (String) literal;
+                yield switch (operator) {
+                    case "=" -> slot -> s.stringEquals(slot, c, v);
+                    case "!=" -> slot -> !s.stringEquals(slot, c, v);
+                    default -> compareWith(operator, slot -> s.getString(slot, c).compareTo(v));
+                };
+            }
+            case STRING_LIST -> throw new JsonicException("Cannot compare a list directly; use include");
+        };
+    }
+
+    private static SlotPredicate compareWith(String operator, IntUnaryOperator cmp) {
+        return switch (operator) {
+            case "<" -> slot -> cmp.applyAsInt(slot) < 0;
+            case "<=" -> slot -> cmp.applyAsInt(slot) <= 0;
+            case ">" -> slot -> cmp.applyAsInt(slot) > 0;
+            case ">=" -> slot -> cmp.applyAsInt(slot) >= 0;
+            default -> throw new JsonicException("Unknown operator: " + operator);
+        };
+    }
+
     private static boolean apply(String operator, Object left, Object right) {
         return switch (operator) {
             case "=" -> Objects.equals(left, right);
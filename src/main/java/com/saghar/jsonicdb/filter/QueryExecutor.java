@@ -0,0 +1,131 @@
+package com.saghar.jsonicdb.filter;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.IndexKind;
+import com.saghar.jsonicdb.core.ReadView;
+import com.saghar.jsonicdb.core.ScanSettings;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Resolves a filter to the ascending list of matching slots by running the planner's choice of access
+ * path and checking its residual filter, compiled once per query, on each candidate.
+ * <p>
+ * Against a {@link DataType} it reads the current state under the type's read lock; the slots stay
+ * valid only while the caller holds that lock (or the write lock). Against a {@link ReadView} it
+ * takes the lock only to cost and probe the indexes, and only if it is free and no write has landed
+ * since the view was opened; otherwise, and for scans, it reads the view without locking.
+ */
+public final class QueryExecutor {
+    private QueryExecutor() {
+    }
+
+    public static int[] matchingSlots(DataType type, Filter filter) {
+        return type.read(() -> matchingSlots(type, QueryPlanner.plan(type, filter)));
+    }
+
+    public static int[] matchingSlots(DataType type, QueryPlan plan) {
+        return type.read(() -> {
+            if (plan.access() instanceof AccessPath.FullScan)
+                return scan(type, type.slotCount(), type::isLive, plan.residual(), f -> f.compile(type), () -> true);
+            return check(plan.access().slots(type), plan.residual() == null ? null : plan.residual().compile(type));
+        });
+    }
+
+    public static int[] matchingSlots(ReadView view, Filter filter) {
+        DataType type = view.type();
+        QueryPlan plan = QueryPlanner.plan(view, filter);
+        if (!(plan.access() instanceof AccessPath.FullScan)) {
+            int[] candidates = view.ifCurrent(() -> plan.access().slots(type));
+            if (candidates != null) return check(candidates, plan.residual() == null ? null : plan.residual().compile(view));
+            // the indexes are busy or have moved past the view: scan it with the whole filter instead
+            return scan(type, view.slotLimit(), view::isVisible, filter, f -> f.compile(view), view::unchangedInPlace);
+        }
+        return scan(type, view.slotLimit(), view::isVisible, plan.residual(), f -> f.compile(view), view::unchangedInPlace);
+    }
+
+    /**
+     * The matches that fall inside {@code window}, in its order. Without an order a limited search stops
+     * once it has {@code offset + limit} matches. With one, a limited search reads a range index on the
+     * sort field in order when no other index narrows the filter, and otherwise keeps the best matches
+     * in a bounded heap.
+     */
+    public static int[] matchingSlots(ReadView view, Filter filter, SearchWindow window) {
+        if (window.orderBy() == null) {
+            return window.slice(window.bounded() ? firstMatches(view, filter, window.end()) : matchingSlots(view, filter));
+        }
+        DataType type = view.type();
+        TopK.SlotOrder order = TopK.order(type, view.store(), window.orderBy(), window.descending());
+        if (window.bounded() && type.indexKind(window.orderBy()) == IndexKind.RANGE) {
+            QueryPlan plan = QueryPlanner.plan(view, filter);
+            if (plan.access() instanceof AccessPath.FullScan) {
+                SlotPredicate residual = plan.residual() == null ? null : plan.residual().compile(view);
+                IntPredicate accept = residual == null ? view::isVisible : slot -> view.isVisible(slot) && residual.test(slot);
+                int[] ranked = view.ifCurrent(() -> type.ordered(window.orderBy(), window.descending(), accept, window.end()));
+                if (ranked != null) return window.slice(ranked);
+            }
+        }
+        return window.slice(TopK.first(matchingSlots(view, filter), window.end(), order));
+    }
+
+    // the first n matches in slot order, read sequentially so the scan can stop early
+    private static int[] firstMatches(ReadView view, Filter filter, int n) {
+        DataType type = view.type();
+        QueryPlan plan = QueryPlanner.plan(view, filter);
+        if (!(plan.access() instanceof AccessPath.FullScan)) {
+            int[] candidates = view.ifCurrent(() -> plan.access().slots(type));
+            if (candidates != null) return first(candidates, plan.residual() == null ? null : plan.residual().compile(view), n);
+        } else {
+            filter = plan.residual();
+        }
+        SlotPredicate match = filter == null ? null : filter.compile(view);
+        int[] out = new int[Math.min(n, 16)];
+        int found = 0;
+        for (int slot = 0, end = view.slotLimit(); slot < end && found < n; slot++) {
+            if (!view.isVisible(slot) || match != null && !match.test(slot)) continue;
+            if (found == out.length) out = Arrays.copyOf(out, Math.min(n, found * 2));
+            out[found++] = slot;
+        }
+        return Arrays.copyOf(out, found);
+    }
+
+    private static int[] first(int[] candidates, SlotPredicate residual, int n) {
+        int found = 0;
+        for (int i = 0; i < candidates.length && found < n; i++) {
+            if (residual == null || residual.test(candidates[i])) candidates[found++] = candidates[i];
+        }
+        return Arrays.copyOf(candidates, found);
+    }
+
+    /**
+     * Full scans are split across threads per the type's scan settings. With vectorized settings the
+     * filter runs as a {@link BitmapPlan} over the columns' arrays, which bypasses a view's store; its
+     * result only counts if {@code arraysValid} still holds afterwards, else the scan runs again per slot.
+     */
+    private static int[] scan(DataType type, int end, IntPredicate live, Filter filter,
+                              Function<Filter, SlotPredicate> compile, BooleanSupplier arraysValid) {
+        ScanSettings settings = type.scanSettings();
+        if (filter != null && settings.vectorized()) {
+            BitmapPlan plan = BitmapPlan.of(filter, type, compile);
+            if (plan != null) {
+                int[] slots = settings.scan(end, (from, to) -> plan.select(from, to, live));
+                if (arraysValid.getAsBoolean()) return slots;
+            }
+        }
+        SlotPredicate residual = filter == null ? null : compile.apply(filter);
+        IntPredicate match = residual == null ? live : slot -> live.test(slot) && residual.test(slot);
+        return settings.scan(end, match);
+    }
+
+    private static int[] check(int[] candidates, SlotPredicate residual) {
+        if (residual == null) return candidates;
+        int n = 0;
+        for (int slot : candidates) {
+            if (residual.test(slot)) candidates[n++] = slot;
+        }
+        return Arrays.copyOf(candidates, n);
+    }
+}
@@ -0,0 +1,11 @@
+package com.saghar.jsonicdb.filter;
+
+/**
+ * The planner's choice for one filter: where candidates come from, what is still checked per
+ * candidate (null when the access path is exact), and how many rows it expects to read.
+ */
+public record QueryPlan(AccessPath access, Filter residual, int estimatedRows) {
+    public String explain() {
+        return access + (residual == null ? "" : " -> filter " + residual) + " (~" + estimatedRows + " rows)";
+    }
+}
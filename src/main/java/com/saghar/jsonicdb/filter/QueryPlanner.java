@@ -0,0 +1,196 @@
+package com.saghar.jsonicdb.filter;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.IndexKind;
+import com.saghar.jsonicdb.core.ReadView;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chooses an access path for a filter tree. Index-answerable predicates are costed by the number of
+ * slots their index would return; the cheapest conjunct drives the query (others close to it are
+ * intersected in) and everything else becomes a residual check, ordered most selective first.
+ */
+public final class QueryPlanner {
+    // guesses for predicates no index can count
+    private static final double EQ_SELECTIVITY = 0.1;
+    private static final double NE_SELECTIVITY = 0.9;
+    private static final double RANGE_SELECTIVITY = 0.33;
+    private static final double INCLUDE_SELECTIVITY = 0.2;
+    // an extra indexed conjunct is intersected in while it is at most this many times the driver
+    private static final int INTERSECT_FACTOR = 4;
+
+    private QueryPlanner() {
+    }
+
+    public static QueryPlan plan(DataType type, Filter filter) {
+        int n = type.size();
+        Plan p = analyze(type, filter, n);
+        if (p.path == null || p.cost >= n) return new QueryPlan(new AccessPath.FullScan(), p.ordered, n);
+        return new QueryPlan(p.path, p.residual, p.cost);
+    }
+
+    /**
+     * Plans a search of {@code view}. The index counts are read through {@link ReadView#ifCurrent}, so
+     * a held write lock or a view that is behind never makes the search wait: it scans the view with the
+     * whole filter instead.
+     */
+    public static QueryPlan plan(ReadView view, Filter filter) {
+        QueryPlan plan = view.ifCurrent(() -> plan(view.type(), filter));
+        return plan != null ? plan : new QueryPlan(new AccessPath.FullScan(), filter, view.slotLimit());
+    }
+
+    /**
+     * path: index access or null; cost: rows it yields; residual: check left over for the path's
+     * output (null when exact); ordered: the whole filter reordered for a scan.
+     */
+    private record Plan(AccessPath path, int cost, Filter residual, double selectivity, Filter ordered) {
+    }
+
+    private static Plan analyze(DataType type, Filter f, int n) {
+        if (f instanceof PredicateFilter p) return analyzePredicate(type, p, n);
+        if (f instanceof AndFilter) return analyzeAnd(type, f, n);
+        if (f instanceof OrFilter) return analyzeOr(type, f, n);
+        return new Plan(null, n, f, 1.0, f);
+    }
+
+    private static Plan analyzePredicate(DataType type, PredicateFilter p, int n) {
+        double guess = switch (p.operator()) {
+            case "=" -> EQ_SELECTIVITY;
+            case "!=" -> NE_SELECTIVITY;
+            case "include" -> INCLUDE_SELECTIVITY;
+            default -> RANGE_SELECTIVITY;
+        };
+        PredicateFilter.Bound b = p.bind(type);
+        AccessPath path = b == null ? null : indexPath(type, b);
+        if (path == null) return new Plan(null, n, p, guess, p);
+        int cost = path.estimate(type, n);
+        return new Plan(path, cost, null, n == 0 ? 0 : (double) cost / n, p);
+    }
+
+    private static AccessPath indexPath(DataType type, PredicateFilter.Bound b) {
+        String field = b.field().name();
+        IndexKind kind = type.indexKind(field);
+        return switch (b.operator()) {
+            case "include" -> kind == IndexKind.INVERTED ? new AccessPath.ElementLookup(field, (String) b.value()) : null;
+            case "=" -> {
+                if (type.hasUniqueIndex(field)) yield new AccessPath.UniqueLookup(field, b.value());
+                if (kind == IndexKind.HASH) yield new AccessPath.HashLookup(field, b.value());
+                if (kind == IndexKind.RANGE)
+                    yield new AccessPath.RangeScan(field, b.field().type(), b.value(), true, b.value(), true);
+                yield null;
+            }
+            case "<", "<=" -> kind == IndexKind.RANGE
+                    ? new AccessPath.RangeScan(field, b.field().type(), null, false, b.value(), b.operator().equals("<="))
+                    : null;
+            case ">", ">=" -> kind == IndexKind.RANGE
+                    ? new AccessPath.RangeScan(field, b.field().type(), b.value(), b.operator().equals(">="), null, false)
+                    : null;
+            default -> null;
+        };
+    }
+
+    private static Plan analyzeAnd(DataType type, Filter f, int n) {
+        List<Filter> conjuncts = new ArrayList<>();
+        flatten(f, AndFilter.class, conjuncts);
+        List<Plan> plans = new ArrayList<>();
+        for (Filter c : conjuncts) plans.add(analyze(type, c, n));
+        plans = mergeRanges(type, plans, n);
+
+        double selectivity = 1.0;
+        for (Plan p : plans) selectivity *= p.selectivity;
+        List<Plan> bySelectivity = new ArrayList<>(plans);
+        bySelectivity.sort(Comparator.comparingDouble(Plan::selectivity));
+        Filter ordered = chainAnd(bySelectivity, Plan::ordered);
+
+        List<Plan> indexed = new ArrayList<>();
+        for (Plan p : plans) if (p.path != null) indexed.add(p);
+        if (indexed.isEmpty()) return new Plan(null, n, ordered, selectivity, ordered);
+        indexed.sort(Comparator.comparingInt(Plan::cost));
+
+        Plan driver = indexed.get(0);
+        List<AccessPath> paths = new ArrayList<>();
+        Filter residual = null;
+        for (Plan p : bySelectivity) {
+            boolean chosen = p == driver || (p.path != null && (long) p.cost <= (long) driver.cost * INTERSECT_FACTOR);
+            if (chosen) paths.add(p.path);
+            Filter rest = chosen ? p.residual : p.ordered;
+            if (rest != null) residual = residual == null ? rest : new AndFilter(residual, rest);
+        }
+        AccessPath path = paths.size() == 1 ? paths.get(0) : new AccessPath.Intersect(paths);
+        return new Plan(path, driver.cost, residual, selectivity, ordered);
+    }
+
+    // several bounds on one range-indexed field collapse into a single key range
+    private static List<Plan> mergeRanges(DataType type, List<Plan> plans, int n) {
+        Map<String, List<Plan>> byField = new LinkedHashMap<>();
+        List<Plan> out = new ArrayList<>();
+        for (Plan p : plans) {
+            if (p.path instanceof AccessPath.RangeScan r && p.residual == null)
+                byField.computeIfAbsent(r.field(), k -> new ArrayList<>()).add(p);
+            else out.add(p);
+        }
+        for (List<Plan> group : byField.values()) {
+            if (group.size() == 1) {
+                out.add(group.get(0));
+                continue;
+            }
+            AccessPath.RangeScan merged = (AccessPath.RangeScan) group.get(0).path;
+            for (int i = 1; i < group.size(); i++) merged = merged.tighten((AccessPath.RangeScan) group.get(i).path);
+            int cost = merged.estimate(type, n);
+            out.add(new Plan(merged, cost, null, n == 0 ? 0 : (double) cost / n, chainAnd(group, Plan::ordered)));
+        }
+        return out;
+    }
+
+    private static Plan analyzeOr(DataType type, Filter f, int n) {
+        List<Filter> disjuncts = new ArrayList<>();
+        flatten(f, OrFilter.class, disjuncts);
+        List<Plan> plans = new ArrayList<>();
+        for (Filter d : disjuncts) plans.add(analyze(type, d, n));
+
+        double none = 1.0;
+        for (Plan p : plans) none *= 1 - p.selectivity;
+        // most likely disjunct first so evaluation short-circuits early
+        List<Plan> byLikelihood = new ArrayList<>(plans);
+        byLikelihood.sort(Comparator.comparingDouble(Plan::selectivity).reversed());
+        Filter ordered = byLikelihood.get(0).ordered;
+        for (int i = 1; i < byLikelihood.size(); i++) ordered = new OrFilter(ordered, byLikelihood.get(i).ordered);
+
+        List<AccessPath> paths = new ArrayList<>();
+        long cost = 0;
+        boolean exact = true;
+        for (Plan p : plans) {
+            if (p.path == null) return new Plan(null, n, ordered, 1 - none, ordered);
+            paths.add(p.path);
+            cost += p.cost;
+            exact &= p.residual == null;
+        }
+        return new Plan(new AccessPath.Union(paths), (int) Math.min(cost, n), exact ? null : ordered, 1 - none, ordered);
+    }
+
+    private static void flatten(Filter f, Class<?> kind, List<Filter> out) {
+        if (kind.isInstance(f) && f instanceof AndFilter a) {
+            flatten(a.left(), kind, out);
+            flatten(a.right(), kind, out);
+        } else if (kind.isInstance(f) && f instanceof OrFilter o) {
+            flatten(o.left(), kind, out);
+            flatten(o.right(), kind, out);
+        } else {
+            out.add(f);
+        }
+    }
+
+    private static Filter chainAnd(List<Plan> plans, java.util.function.Function<Plan, Filter> part) {
+        Filter out = null;
+        for (Plan p : plans) {
+            Filter f = part.apply(p);
+            if (f != null) out = out == null ? f : new AndFilter(out, f);
+        }
+        return out;
+    }
+}
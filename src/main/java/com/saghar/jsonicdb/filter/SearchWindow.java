@@ -0,0 +1,37 @@
+package com.saghar.jsonicdb.filter;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.util.Arrays;
+
+/**
+ * Which of a search's matches to return: sorted by {@code orderBy} (null keeps slot order), skipping
+ * {@code offset} of them and keeping at most {@code limit}.
+ */
+public record SearchWindow(String orderBy, boolean descending, int offset, int limit) {
+    public static final SearchWindow ALL = new SearchWindow(null, false, 0, Integer.MAX_VALUE);
+
+    public SearchWindow {
+        if (offset < 0) throw new JsonicException("offset must not be negative: " + offset);
+        if (limit < 0) throw new JsonicException("limit must not be negative: " + limit);
+    }
+
+    public boolean bounded() {
+        return limit != Integer.MAX_VALUE;
+    }
+
+    /**
+     * How many leading matches the window needs: offset plus limit, saturated.
+     */
+    public int end() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+    }
+
+    /**
+     * The part of {@code ranked}, already in result order, that falls inside the window.
+     */
+    public int[] slice(int[] ranked) {
+        int from = Math.min(offset, ranked.length);
+        return Arrays.copyOfRange(ranked, from, Math.min(end(), ranked.length));
+    }
+}
@@ -0,0 +1,10 @@
+package com.saghar.jsonicdb.filter;
+
+/**
+ * A filter bound to one type: fields resolved to columns and literals parsed to the field's type,
+ * so testing a slot reads the store directly and allocates nothing.
+ */
+@FunctionalInterface
+public interface SlotPredicate {
+    boolean test(int slot);
+}
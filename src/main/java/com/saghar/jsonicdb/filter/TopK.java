@@ -0,0 +1,84 @@
+package com.saghar.jsonicdb.filter;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.FieldDef;
+import com.saghar.jsonicdb.core.RecordStore;
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.util.Arrays;
+
+/**
+ * Orders slots by one field's value, ties broken by slot. Keeping the first {@code k} uses a bounded
+ * max-heap, so a limited search costs O(n log k) and holds only k slots however many rows match.
+ */
+final class TopK {
+    @FunctionalInterface
+    interface SlotOrder {
+        int compare(int a, int b);
+    }
+
+    private TopK() {
+    }
+
+    /**
+     * The order of {@code field} as read from {@code store}, reversed entirely when {@code descending}.
+     */
+    static SlotOrder order(DataType type, RecordStore store, String field, boolean descending) {
+        FieldDef def = type.field(field);
+        if (def == null) throw new JsonicException(com.saghar.jsonicdb.util.Errors.fieldNotFound(field));
+        int c = type.column(field);
+        SlotOrder byValue = switch (def.type()) {
+            case INT -> (a, b) -> Integer.compare(store.getInt(a, c), store.getInt(b, c));
+            case DOUBLE -> (a, b) -> Double.compare(store.getDouble(a, c), store.getDouble(b, c));
+            case TIME -> (a, b) -> Long.compare(store.getTime(a, c), store.getTime(b, c));
+            case BOOL -> (a, b) -> Boolean.compare(store.getBool(a, c), store.getBool(b, c));
+            case STRING -> (a, b) -> compareStrings(store.getString(a, c), store.getString(b, c));
+            case STRING_LIST -> throw new JsonicException("Cannot order by list field: " + def.name());
+        };
+        SlotOrder order = (a, b) -> {
+            int cmp = byValue.compare(a, b);
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        };
+        return descending ? (a, b) -> order.compare(b, a) : order;
+    }
+
+    private static int compareStrings(String a, String b) {
+        if (a == null || b == null) return a == null ? (b == null ? 0 : -1) : 1;
+        return a.compareTo(b);
+    }
+
+    /**
+     * The first {@code k} of {@code slots} under {@code order}, sorted.
+     */
+    static int[] first(int[] slots, int k, SlotOrder order) {
+        k = Math.min(k, slots.length);
+        if (k == 0) return new int[0];
+        int[] heap = Arrays.copyOf(slots, k);
+        for (int i = k / 2 - 1; i >= 0; i--) siftDown(heap, i, k, order);
+        // the root is the largest kept slot; anything smaller replaces it
+        for (int i = k; i < slots.length; i++) {
+            if (order.compare(slots[i], heap[0]) < 0) {
+                heap[0] = slots[i];
+                siftDown(heap, 0, k, order);
+            }
+        }
+        for (int n = k - 1; n > 0; n--) {
+            int top = heap[0];
+            heap[0] = heap[n];
+            heap[n] = top;
+            siftDown(heap, 0, n, order);
+        }
+        return heap;
+    }
+
+    private static void siftDown(int[] heap, int i, int n, SlotOrder order) {
+        int v = heap[i];
+        for (int child = 2 * i + 1; child < n; child = 2 * i + 1) {
+            if (child + 1 < n && order.compare(heap[child + 1], heap[child]) > 0) child++;
+            if (order.compare(heap[child], v) <= 0) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = v;
+    }
+}
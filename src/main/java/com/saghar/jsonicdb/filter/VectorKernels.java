@@ -0,0 +1,87 @@
+package com.saghar.jsonicdb.filter;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD comparisons of a primitive column against a constant. Each kernel sets bit {@code slot - from}
+ * of {@code words} for every slot in {@code [from, to)} that satisfies the comparison. Only loaded
+ * when {@link BitmapPlan#VECTOR_API} says the module is present.
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    static void compare(int[] values, int from, int to, String operator, int literal, long[] words) {
+        VectorOperators.Comparison op = comparison(operator);
+        int i = from, bound = from + INTS.loopBound(to - from);
+        for (; i < bound; i += INTS.length()) {
+            set(words, i - from, IntVector.fromArray(INTS, values, i).compare(op, literal).toLong());
+        }
+        for (; i < to; i++) {
+            if (BitmapPlan.holds(operator, Integer.compare(values[i], literal))) set(words, i - from, 1L);
+        }
+    }
+
+    static void compare(long[] values, int from, int to, String operator, long literal, long[] words) {
+        VectorOperators.Comparison op = comparison(operator);
+        int i = from, bound = from + LONGS.loopBound(to - from);
+        for (; i < bound; i += LONGS.length()) {
+            set(words, i - from, LongVector.fromArray(LONGS, values, i).compare(op, literal).toLong());
+        }
+        for (; i < to; i++) {
+            if (BitmapPlan.holds(operator, Long.compare(values[i], literal))) set(words, i - from, 1L);
+        }
+    }
+
+    /**
+     * The literal must be neither NaN nor zero. Lanes holding NaN or a zero are redone with
+     * {@link Double#compare}, whose ordering (NaN above everything, -0.0 below 0.0) differs from
+     * the IEEE comparison the vector instructions use.
+     */
+    static void compare(double[] values, int from, int to, String operator, double literal, long[] words) {
+        VectorOperators.Comparison op = comparison(operator);
+        int i = from, bound = from + DOUBLES.loopBound(to - from);
+        for (; i < bound; i += DOUBLES.length()) {
+            DoubleVector v = DoubleVector.fromArray(DOUBLES, values, i);
+            long bits = v.compare(op, literal).toLong();
+            VectorMask<Double> odd = v.test(VectorOperators.IS_NAN).or(v.compare(VectorOperators.EQ, 0.0));
+            if (odd.anyTrue()) {
+                for (int lane = 0; lane < DOUBLES.length(); lane++) {
+                    if (!odd.laneIsSet(lane)) continue;
+                    if (BitmapPlan.holds(operator, Double.compare(values[i + lane], literal))) bits |= 1L << lane;
+                    else bits &= ~(1L << lane);
+                }
+            }
+            set(words, i - from, bits);
+        }
+        for (; i < to; i++) {
+            if (BitmapPlan.holds(operator, Double.compare(values[i], literal))) set(words, i - from, 1L);
+        }
+    }
+
+    // lane counts divide 64 and vectors start a whole number of lanes past from, so no vector straddles two words
+    private static void set(long[] words, int bit, long bits) {
+        words[bit >>> 6] |= bits << (bit & 63);
+    }
+
+    private static VectorOperators.Comparison comparison(String operator) {
+        return switch (operator) {
+            case "=" -> VectorOperators.EQ;
+            case "!=" -> VectorOperators.NE;
+            case "<" -> VectorOperators.LT;
+            case "<=" -> VectorOperators.LE;
+            case ">" -> VectorOperators.GT;
+            case ">=" -> VectorOperators.GE;
+            default -> throw new IllegalArgumentException(operator);
+        };
+    }
+}
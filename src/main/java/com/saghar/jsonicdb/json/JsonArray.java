@@ -1,16 +1,30 @@
 package com.saghar.jsonicdb.json;
 
-import java.util.Collections;
 import java.util.List;
 
+/**
+ * Either holds its own items, or is a view of an array on a {@link JsonTape} whose items are made
+ * by the first {@link #items()} call.
+ */
 public final class JsonArray implements JsonValue {
-    private final List<JsonValue> items;
+    private List<JsonValue> items; // null until a tape view is first listed
+    private final JsonTape tape;
+    private final int at;
 
     public JsonArray(List<JsonValue> items) {
         this.items = List.copyOf(items);
+        this.tape = null;
+        this.at = -1;
+    }
+
+    JsonArray(JsonTape tape, int at) {
+        this.tape = tape;
+        this.at = at;
     }
 
     public List<JsonValue> items() {
-        return Collections.unmodifiableList(items);
+        List<JsonValue> l = items;
+        if (l == null) items = l = List.of(tape.items(at));
+        return l;
     }
 }
@@ -4,18 +4,34 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Either holds its own map, or is a view of an object on a {@link JsonTape}: then {@link #get} scans
+ * the tape's keys in place, and the map is only built by the first {@link #entries()} call.
+ */
 public final class JsonObject implements JsonValue {
-    private final Map<String, JsonValue> map;
+    private Map<String, JsonValue> map; // unmodifiable; null until a tape view is first listed
+    private final JsonTape tape;
+    private final int at;
 
     public JsonObject(Map<String, JsonValue> map) {
-        this.map = new LinkedHashMap<>(map);
+        this.map = Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        this.tape = null;
+        this.at = -1;
+    }
+
+    JsonObject(JsonTape tape, int at) {
+        this.tape = tape;
+        this.at = at;
     }
 
     public Map<String, JsonValue> entries() {
-        return Collections.unmodifiableMap(map);
+        Map<String, JsonValue> m = map;
+        if (m == null) map = m = Collections.unmodifiableMap(tape.entries(at));
+        return m;
     }
 
     public JsonValue get(String key) {
-        return map.get(key);
+        Map<String, JsonValue> m = map;
+        return m != null ? m.get(key) : tape.get(at, key);
     }
 }
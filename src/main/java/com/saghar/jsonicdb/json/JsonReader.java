@@ -0,0 +1,557 @@
+package com.saghar.jsonicdb.json;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull parser over UTF-8 bytes: each {@link #next()} returns the next token, and the current string,
+ * field name or number is read through accessors without building a {@link JsonValue} tree. Input is
+ * a byte array, a {@link ByteBuffer} or an {@link InputStream} read through one reusable buffer.
+ * Top-level values may follow one another (separated by whitespace, as in newline-delimited JSON);
+ * {@link #next()} returns null once the input is exhausted.
+ * <p>
+ * Numbers are decoded from the bytes as they are scanned. Integers accumulate into a long; a decimal
+ * with at most 15 significant digits and a small exponent is computed exactly from that long and a
+ * power of ten, and only longer ones go through {@link Double#parseDouble}. ASCII strings without
+ * escapes are read straight from the buffer; others are decoded into a reused char array. Like
+ * {@link JsonParser}, object keys may also be bare identifiers.
+ */
+public final class JsonReader {
+    public enum Token {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, FIELD_NAME, STRING, NUMBER, TRUE, FALSE, NULL
+    }
+
+    private static final int DEFAULT_BUFFER = 1 << 16;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    // where to expect the next token
+    private static final int TOP = 0, VALUE = 1, VALUE_OR_END = 2, KEY = 3, KEY_OR_END = 4, AFTER_VALUE = 5;
+
+    private final InputStream in; // null when all input is in buf
+    private final ByteBuffer source; // a non-array buffer copied in chunks, or null
+    private byte[] buf;
+    private int pos, limit;
+    private long consumed; // bytes before buf[0], for error positions
+
+    private boolean[] inObject = new boolean[32];
+    private int depth;
+    private int state = TOP;
+    private Token token;
+
+    // current string or field name: a range of buf when it needed no decoding, else chars
+    private boolean raw;
+    private int rawFrom, rawLength;
+    private char[] chars = new char[64];
+    private int charCount;
+
+    // current number
+    private long mantissa; // up to 19 significant digits
+    private int digits; // significant digits seen (may exceed 19)
+    private int exponent; // power of ten to apply to the mantissa
+    private boolean negative, integral;
+    private char[] numberText = new char[32];
+    private int numberLength;
+
+    public JsonReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public JsonReader(byte[] data, int from, int to) {
+        this.in = null;
+        this.source = null;
+        this.buf = data;
+        this.pos = from;
+        this.limit = to;
+        this.consumed = -from;
+    }
+
+    public JsonReader(ByteBuffer data) {
+        this.in = null;
+        if (data.hasArray()) {
+            this.source = null;
+            this.buf = data.array();
+            this.pos = data.arrayOffset() + data.position();
+            this.limit = data.arrayOffset() + data.limit();
+            this.consumed = -pos;
+        } else {
+            this.source = data.duplicate();
+            this.buf = new byte[Math.min(DEFAULT_BUFFER, Math.max(16, data.remaining()))];
+        }
+    }
+
+    public JsonReader(InputStream in) {
+        this(in, new byte[DEFAULT_BUFFER]);
+    }
+
+    /**
+     * Reads {@code in} through {@code buffer}, which callers may reuse across readers.
+     */
+    public JsonReader(InputStream in, byte[] buffer) {
+        this.in = in;
+        this.source = null;
+        this.buf = buffer;
+    }
+
+    /**
+     * Starts this reader over on another byte range, as a new reader would, keeping its scratch
+     * buffers. Only for readers over a byte array.
+     */
+    public void reset(byte[] data, int from, int to) {
+        if (in != null || source != null) throw new IllegalStateException("not an array reader");
+        buf = data;
+        pos = from;
+        limit = to;
+        consumed = -from;
+        depth = 0;
+        state = TOP;
+        token = null;
+        raw = false;
+    }
+
+    /**
+     * The token now current, or null before the first {@link #next()} and after the input ends.
+     */
+    public Token token() {
+        return token;
+    }
+
+    /**
+     * Nesting depth after the current token: 1 inside a top-level object or array.
+     */
+    public int depth() {
+        return depth;
+    }
+
+    public Token next() {
+        while (true) {
+            int c = skipWhitespace();
+            switch (state) {
+                case TOP -> {
+                    if (c < 0) return token = null;
+                    return token = value(c);
+                }
+                case VALUE -> {
+                    return token = value(require(c));
+                }
+                case VALUE_OR_END -> {
+                    if (c == ']') return token = end(false);
+                    return token = value(require(c));
+                }
+                case KEY_OR_END -> {
+                    if (c == '}') return token = end(true);
+                    return token = key(require(c));
+                }
+                case KEY -> {
+                    return token = key(require(c));
+                }
+                default -> { // AFTER_VALUE, inside a container
+                    boolean object = inObject[depth - 1];
+                    require(c);
+                    if (c == ',') {
+                        pos++;
+                        state = object ? KEY : VALUE;
+                        continue;
+                    }
+                    if (c == (object ? '}' : ']')) return token = end(object);
+                    throw error("expected ',' or '" + (object ? '}' : ']') + "'");
+                }
+            }
+        }
+    }
+
+    /**
+     * Skips the value that starts at the current token: the whole object or array for a start token,
+     * nothing for a scalar.
+     */
+    public void skipValue() {
+        if (token != Token.START_OBJECT && token != Token.START_ARRAY) return;
+        int target = depth - 1;
+        while (depth > target) {
+            if (next() == null) throw error("unexpected end of input");
+        }
+    }
+
+    /**
+     * The current string value or field name.
+     */
+    public String string() {
+        checkText();
+        return raw ? new String(buf, rawFrom, rawLength, StandardCharsets.ISO_8859_1) : new String(chars, 0, charCount);
+    }
+
+    /**
+     * Whether the current string value or field name equals {@code s}, compared without creating a string.
+     */
+    public boolean stringEquals(String s) {
+        checkText();
+        int n = raw ? rawLength : charCount;
+        if (s.length() != n) return false;
+        for (int i = 0; i < n; i++) {
+            char c = raw ? (char) buf[rawFrom + i] : chars[i];
+            if (c != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Length in chars of the current string value or field name.
+     */
+    public int stringLength() {
+        checkText();
+        return raw ? rawLength : charCount;
+    }
+
+    /**
+     * Char {@code i} of the current string value or field name.
+     */
+    public char charAt(int i) {
+        checkText();
+        return raw ? (char) buf[rawFrom + i] : chars[i];
+    }
+
+    /**
+     * Whether the current number has no fraction or exponent.
+     */
+    public boolean isIntegral() {
+        checkNumber();
+        return integral;
+    }
+
+    public long longValue() {
+        checkNumber();
+        if (!integral || digits > 19 || mantissa < 0 && !(negative && mantissa == Long.MIN_VALUE)) {
+            throw error("not a long: " + numberText());
+        }
+        return negative ? -mantissa : mantissa;
+    }
+
+    public int intValue() {
+        long v = longValue();
+        if (v != (int) v) throw error("not an int: " + numberText());
+        return (int) v;
+    }
+
+    public double doubleValue() {
+        checkNumber();
+        if (digits <= 15 && exponent >= -22 && exponent <= 22) {
+            // both operands are exact doubles, so one rounding gives the correctly rounded result
+            double m = mantissa;
+            double v = exponent >= 0 ? m * POW10[exponent] : m / POW10[-exponent];
+            return negative ? -v : v;
+        }
+        return Double.parseDouble(numberText());
+    }
+
+    /**
+     * The current number as written.
+     */
+    public String numberText() {
+        checkNumber();
+        return new String(numberText, 0, numberLength);
+    }
+
+    private void checkText() {
+        if (token != Token.STRING && token != Token.FIELD_NAME) throw new IllegalStateException("not a string: " + token);
+    }
+
+    private void checkNumber() {
+        if (token != Token.NUMBER) throw new IllegalStateException("not a number: " + token);
+    }
+
+    private Token value(int c) {
+        switch (c) {
+            case '{' -> {
+                pos++;
+                push(true);
+                state = KEY_OR_END;
+                return Token.START_OBJECT;
+            }
+            case '[' -> {
+                pos++;
+                push(false);
+                state = VALUE_OR_END;
+                return Token.START_ARRAY;
+            }
+            case '"' -> {
+                pos++;
+                readString();
+                afterValue();
+                return Token.STRING;
+            }
+            case 't' -> {
+                literal("true");
+                afterValue();
+                return Token.TRUE;
+            }
+            case 'f' -> {
+                literal("false");
+                afterValue();
+                return Token.FALSE;
+            }
+            case 'n' -> {
+                literal("null");
+                afterValue();
+                return Token.NULL;
+            }
+            default -> {
+                if (c != '-' && (c < '0' || c > '9')) throw error("unexpected character '" + (char) c + "'");
+                readNumber();
+                afterValue();
+                return Token.NUMBER;
+            }
+        }
+    }
+
+    private Token key(int c) {
+        if (c == '"') {
+            pos++;
+            readString();
+        } else {
+            readBareKey();
+        }
+        if (skipWhitespace() != ':') throw error("expected ':'");
+        pos++;
+        state = VALUE;
+        return Token.FIELD_NAME;
+    }
+
+    private Token end(boolean object) {
+        pos++;
+        depth--;
+        afterValue();
+        return object ? Token.END_OBJECT : Token.END_ARRAY;
+    }
+
+    private void push(boolean object) {
+        if (depth == inObject.length) inObject = Arrays.copyOf(inObject, depth * 2);
+        inObject[depth++] = object;
+    }
+
+    private void afterValue() {
+        state = depth == 0 ? TOP : AFTER_VALUE;
+    }
+
+    private int require(int c) {
+        if (c < 0) throw error("unexpected end of input");
+        return c;
+    }
+
+    private void literal(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (peek() != word.charAt(i)) throw error("invalid literal, expected " + word);
+            pos++;
+        }
+    }
+
+    private void readString() {
+        int from = pos;
+        // fast path: ASCII without escapes, all within the buffer
+        while (pos < limit) {
+            byte b = buf[pos];
+            if (b == '"') {
+                raw = true;
+                rawFrom = from;
+                rawLength = pos - from;
+                pos++;
+                return;
+            }
+            if (b == '\\' || b < 0) break;
+            pos++;
+        }
+        raw = false;
+        charCount = 0;
+        for (int i = from; i < pos; i++) append((char) buf[i]);
+        while (true) {
+            int b = read();
+            if (b < 0) throw error("missing closing quote");
+            if (b == '"') return;
+            if (b == '\\') {
+                escape();
+            } else if (b < 0x80) {
+                append((char) b);
+            } else {
+                utf8(b);
+            }
+        }
+    }
+
+    private void escape() {
+        int e = read();
+        switch (e) {
+            case '"', '\\', '/' -> append((char) e);
+            case 'b' -> append('\b');
+            case 'f' -> append('\f');
+            case 'n' -> append('\n');
+            case 'r' -> append('\r');
+            case 't' -> append('\t');
+            case 'u' -> {
+                int v = 0;
+                for (int i = 0; i < 4; i++) {
+                    int h = Character.digit(read(), 16);
+                    if (h < 0) throw error("invalid unicode escape");
+                    v = v << 4 | h;
+                }
+                append((char) v);
+            }
+            default -> throw error(e < 0 ? "unterminated escape" : "invalid escape \\" + (char) e);
+        }
+    }
+
+    private void utf8(int lead) {
+        int extra, cp;
+        if ((lead & 0xE0) == 0xC0) {
+            extra = 1;
+            cp = lead & 0x1F;
+        } else if ((lead & 0xF0) == 0xE0) {
+            extra = 2;
+            cp = lead & 0x0F;
+        } else if ((lead & 0xF8) == 0xF0) {
+            extra = 3;
+            cp = lead & 0x07;
+        } else {
+            throw error("invalid UTF-8");
+        }
+        for (int i = 0; i < extra; i++) {
+            int b = read();
+            if ((b & 0xC0) != 0x80) throw error("invalid UTF-8");
+            cp = cp << 6 | b & 0x3F;
+        }
+        if (cp < 0x10000) {
+            append((char) cp);
+        } else {
+            append(Character.highSurrogate(cp));
+            append(Character.lowSurrogate(cp));
+        }
+    }
+
+    private void append(char c) {
+        if (charCount == chars.length) chars = Arrays.copyOf(chars, charCount * 2);
+        chars[charCount++] = c;
+    }
+
+    private void readBareKey() {
+        raw = false;
+        charCount = 0;
+        for (int c = peek(); c >= 0 && c < 0x80 && (Character.isLetterOrDigit(c) || c == '_'); c = peek()) {
+            append((char) c);
+            pos++;
+        }
+        if (charCount == 0) throw error("invalid object key");
+    }
+
+    private void readNumber() {
+        mantissa = 0;
+        digits = 0;
+        exponent = 0;
+        integral = true;
+        numberLength = 0;
+        negative = peek() == '-';
+        if (negative) numberChar(read());
+        int intDigits = digitRun(false);
+        if (intDigits == 0) throw error("invalid number");
+        if (peek() == '.') {
+            integral = false;
+            numberChar(read());
+            if (digitRun(true) == 0) throw error("invalid number");
+        }
+        int c = peek();
+        if (c == 'e' || c == 'E') {
+            integral = false;
+            numberChar(read());
+            boolean negExp = peek() == '-';
+            if (negExp || peek() == '+') numberChar(read());
+            int exp = 0, n = 0;
+            for (c = peek(); c >= '0' && c <= '9'; c = peek(), n++) {
+                numberChar(read());
+                if (exp < 100_000) exp = exp * 10 + (c - '0');
+            }
+            if (n == 0) throw error("invalid number");
+            exponent += negExp ? -exp : exp;
+        }
+    }
+
+    // reads a run of digits into the mantissa; fraction digits move the exponent down
+    private int digitRun(boolean fraction) {
+        int n = 0;
+        for (int c = peek(); c >= '0' && c <= '9'; c = peek(), n++) {
+            numberChar(read());
+            int d = c - '0';
+            if (digits == 0 && d == 0) {
+                if (fraction) exponent--; // leading zeros are not significant
+                continue;
+            }
+            if (digits < 19) {
+                mantissa = mantissa * 10 + d;
+                if (fraction) exponent--;
+            } else if (!fraction) {
+                exponent++;
+            }
+            digits++;
+        }
+        return n;
+    }
+
+    private void numberChar(int c) {
+        if (numberLength == numberText.length) numberText = Arrays.copyOf(numberText, numberLength * 2);
+        numberText[numberLength++] = (char) c;
+    }
+
+    private int skipWhitespace() {
+        while (true) {
+            int c = peek();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+            pos++;
+        }
+    }
+
+    private int peek() {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos] & 0xFF;
+    }
+
+    private int read() {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos++] & 0xFF;
+    }
+
+    private boolean fill() {
+        if (in == null && source == null) return false;
+        if (raw) {
+            // a field name is still current while the ':' after it is looked for; move it out of buf first
+            charCount = 0;
+            for (int i = 0; i < rawLength; i++) append((char) buf[rawFrom + i]);
+            raw = false;
+        }
+        consumed += limit;
+        pos = limit = 0;
+        if (source != null) {
+            int n = Math.min(buf.length, source.remaining());
+            source.get(buf, 0, n);
+            limit = n;
+            return n > 0;
+        }
+        try {
+            int n;
+            do {
+                n = in.read(buf, 0, buf.length);
+            } while (n == 0);
+            if (n < 0) return false;
+            limit = n;
+            return true;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private JsonicException error(String what) {
+        return new JsonicException("Invalid JSON at byte " + (consumed + pos) + ": " + what);
+    }
+}
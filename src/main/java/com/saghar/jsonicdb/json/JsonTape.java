@@ -0,0 +1,374 @@
+package com.saghar.jsonicdb.json;
+
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A parsed JSON document kept as a flat tape of longs over its UTF-8 source. Parsing validates the
+ * whole document but creates no value objects; {@link #parse} returns a {@link JsonValue} whose
+ * objects and arrays are views onto the tape, and whose strings and numbers are decoded from the
+ * source bytes only when a view hands them out.
+ * <p>
+ * Each tape entry carries a tag in its top byte. A container's start and end entries hold each
+ * other's index, so skipping a nested value is one step. A string or number takes two entries: its
+ * source offset (with a flag for strings that contain escapes or non-ASCII bytes), then its length in
+ * bytes. {@code true}, {@code false} and {@code null} take one entry.
+ */
+public final class JsonTape {
+    static final int START_OBJECT = '{', END_OBJECT = '}', START_ARRAY = '[', END_ARRAY = ']';
+    static final int STRING = '"', NUMBER = '#', TRUE = 't', FALSE = 'f', NULL = 'n';
+
+    private static final long PAYLOAD = (1L << 56) - 1;
+    private static final long ENCODED = 1L << 55; // string needs decoding, not just widening
+
+    private final byte[] source;
+    private final long[] tape;
+
+    private JsonTape(byte[] source, long[] tape) {
+        this.source = source;
+        this.tape = tape;
+    }
+
+    public static JsonValue parse(String json) {
+        return parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses one JSON value, which may be surrounded by whitespace. The bytes are kept, not copied.
+     */
+    public static JsonValue parse(byte[] utf8) {
+        return new Builder(utf8, null).build().value(0);
+    }
+
+    /**
+     * Parses {@code utf8} by walking its structural index, jumping over whitespace and over strings that
+     * need no decoding instead of reading them. Same result and errors as {@link #parse(byte[])}.
+     */
+    public static JsonValue parse(byte[] utf8, StructuralIndex index) {
+        return new Builder(utf8, index).build().value(0);
+    }
+
+    // -- reading, for the views
+
+    int tag(int at) {
+        return (int) (tape[at] >>> 56);
+    }
+
+    /**
+     * Index of the entry after the value at {@code at}.
+     */
+    int next(int at) {
+        return switch (tag(at)) {
+            case START_OBJECT, START_ARRAY -> (int) (tape[at] & PAYLOAD) + 1;
+            case STRING, NUMBER -> at + 2;
+            default -> at + 1;
+        };
+    }
+
+    /**
+     * The value at {@code at}: a view for a container, a new leaf otherwise.
+     */
+    JsonValue value(int at) {
+        return switch (tag(at)) {
+            case START_OBJECT -> new JsonObject(this, at);
+            case START_ARRAY -> new JsonArray(this, at);
+            case STRING -> new JsonString(string(at));
+            case NUMBER -> new JsonNumber(new String(source, offset(at), (int) tape[at + 1], StandardCharsets.ISO_8859_1));
+            case TRUE -> new JsonBoolean(true);
+            case FALSE -> new JsonBoolean(false);
+            default -> JsonNull.INSTANCE;
+        };
+    }
+
+    String string(int at) {
+        int from = offset(at), length = (int) tape[at + 1];
+        if ((tape[at] & ENCODED) == 0) return new String(source, from, length, StandardCharsets.ISO_8859_1);
+        JsonReader r = new JsonReader(source, from - 1, from + length + 1);
+        r.next();
+        return r.string();
+    }
+
+    // compares without decoding when the string is plain ASCII
+    boolean stringEquals(int at, String s) {
+        if ((tape[at] & ENCODED) != 0) return string(at).equals(s);
+        int from = offset(at), length = (int) tape[at + 1];
+        if (length != s.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (source[from + i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private int offset(int at) {
+        return (int) tape[at];
+    }
+
+    /**
+     * The value of the last field named {@code key} in the object at {@code at}, or null.
+     */
+    JsonValue get(int at, String key) {
+        int end = (int) (tape[at] & PAYLOAD), found = -1;
+        for (int i = at + 1; i < end; i = next(i + 2)) {
+            if (stringEquals(i, key)) found = i + 2;
+        }
+        return found < 0 ? null : value(found);
+    }
+
+    Map<String, JsonValue> entries(int at) {
+        int end = (int) (tape[at] & PAYLOAD);
+        Map<String, JsonValue> map = new LinkedHashMap<>();
+        for (int i = at + 1; i < end; i = next(i + 2)) map.put(string(i), value(i + 2));
+        return map;
+    }
+
+    JsonValue[] items(int at) {
+        int end = (int) (tape[at] & PAYLOAD), n = 0;
+        for (int i = at + 1; i < end; i = next(i)) n++;
+        JsonValue[] items = new JsonValue[n];
+        for (int i = at + 1, k = 0; i < end; i = next(i)) items[k++] = value(i);
+        return items;
+    }
+
+    // -- building
+
+    /**
+     * Validates the bytes and writes the tape in one pass. Object keys may be bare ASCII identifiers,
+     * as in {@link JsonReader}. Malformed UTF-8 inside a string is only reported when the string is read.
+     * Given a structural index, whitespace runs and strings in clean blocks are stepped over by position.
+     */
+    static final class Builder {
+        private static final int DONE = -2;
+
+        private final byte[] src;
+        private final StructuralIndex index; // or null to read every byte
+        private int cursor; // into the index, at or before pos
+        private int pos;
+        private long[] tape;
+        private int size;
+        private int[] open = new int[32]; // tape index of each enclosing container's start
+        private int depth;
+
+        Builder(byte[] src, StructuralIndex index) {
+            this.src = src;
+            this.index = index;
+            this.tape = new long[Math.max(16, src.length / 4)];
+        }
+
+        JsonTape build() {
+            value(skipWhitespace());
+            if (skipWhitespace() >= 0) throw error("unexpected content after the value");
+            return new JsonTape(src, Arrays.copyOf(tape, size));
+        }
+
+        private void value(int c) {
+            while (true) {
+                switch (c) {
+                    case '{' -> {
+                        pos++;
+                        push(START_OBJECT);
+                        if ((c = skipWhitespace()) == '}') {
+                            c = close(END_OBJECT);
+                            if (c == DONE) return;
+                            continue;
+                        }
+                        key(c);
+                        c = skipWhitespace();
+                        continue;
+                    }
+                    case '[' -> {
+                        pos++;
+                        push(START_ARRAY);
+                        if ((c = skipWhitespace()) == ']') {
+                            c = close(END_ARRAY);
+                            if (c == DONE) return;
+                        }
+                        continue;
+                    }
+                    case '"' -> string();
+                    case 't' -> literal("true", TRUE);
+                    case 'f' -> literal("false", FALSE);
+                    case 'n' -> literal("null", NULL);
+                    default -> {
+                        if (c < 0) throw error("unexpected end of input");
+                        if (c != '-' && (c < '0' || c > '9')) throw error("unexpected character '" + (char) c + "'");
+                        number();
+                    }
+                }
+                c = afterValue();
+                if (c == DONE) return;
+            }
+        }
+
+        // after a value: consumes separators and closers; returns the start of the next value, or DONE at the end of the document
+        private int afterValue() {
+            while (depth > 0) {
+                int c = skipWhitespace();
+                boolean object = tag(open[depth - 1]) == START_OBJECT;
+                if (c == ',') {
+                    pos++;
+                    c = skipWhitespace();
+                    if (object) {
+                        key(c);
+                        c = skipWhitespace();
+                    }
+                    return c;
+                }
+                if (c != (object ? '}' : ']')) {
+                    if (c < 0) throw error("unexpected end of input");
+                    throw error("expected ',' or '" + (object ? '}' : ']') + "'");
+                }
+                pos++;
+                pop(object ? END_OBJECT : END_ARRAY);
+            }
+            return DONE;
+        }
+
+        // closes an empty container, then carries on as after a value
+        private int close(int tag) {
+            pos++;
+            pop(tag);
+            return afterValue();
+        }
+
+        private void key(int c) {
+            if (c == '"') {
+                string();
+            } else {
+                int from = pos;
+                while (pos < src.length && src[pos] >= 0 && (Character.isLetterOrDigit(src[pos]) || src[pos] == '_')) pos++;
+                if (pos == from) throw error(c < 0 ? "unexpected end of input" : "invalid object key");
+                append((long) STRING << 56 | from);
+                append(pos - from);
+            }
+            if (skipWhitespace() != ':') throw error("expected ':'");
+            pos++;
+        }
+
+        private void string() {
+            int from = ++pos;
+            if (index != null) {
+                // the next indexed position is the closing quote
+                cursor = index.seek(cursor, from);
+                int close = cursor < index.count() ? index.position(cursor) : -1;
+                if (close >= 0 && !index.dirty(from, close)) {
+                    append((long) STRING << 56 | from);
+                    append(close - from);
+                    pos = close + 1;
+                    return;
+                }
+            }
+            long flags = 0;
+            while (true) {
+                if (pos >= src.length) throw error("missing closing quote");
+                byte b = src[pos];
+                if (b == '"') break;
+                if (b < 0) {
+                    flags = ENCODED;
+                } else if (b == '\\') {
+                    flags = ENCODED;
+                    escape();
+                    continue;
+                } else if (b < 0x20) {
+                    throw error("control character in string");
+                }
+                pos++;
+            }
+            append((long) STRING << 56 | flags | from);
+            append(pos++ - from);
+        }
+
+        private void escape() {
+            pos++;
+            int e = pos < src.length ? src[pos] : -1;
+            switch (e) {
+                case '"', '\\', '/', 'b', 'f', 'n', 'r', 't' -> pos++;
+                case 'u' -> {
+                    for (int i = 1; i <= 4; i++) {
+                        if (pos + i >= src.length || Character.digit(src[pos + i], 16) < 0) throw error("invalid unicode escape");
+                    }
+                    pos += 5;
+                }
+                default -> throw error(e < 0 ? "unterminated escape" : "invalid escape \\" + (char) e);
+            }
+        }
+
+        private void number() {
+            int from = pos;
+            if (src[pos] == '-') pos++;
+            if (digits() == 0) throw error("invalid number");
+            if (pos < src.length && src[pos] == '.') {
+                pos++;
+                if (digits() == 0) throw error("invalid number");
+            }
+            if (pos < src.length && (src[pos] == 'e' || src[pos] == 'E')) {
+                pos++;
+                if (pos < src.length && (src[pos] == '+' || src[pos] == '-')) pos++;
+                if (digits() == 0) throw error("invalid number");
+            }
+            append((long) NUMBER << 56 | from);
+            append(pos - from);
+        }
+
+        private int digits() {
+            int from = pos;
+            while (pos < src.length && src[pos] >= '0' && src[pos] <= '9') pos++;
+            return pos - from;
+        }
+
+        private void literal(String word, int tag) {
+            if (pos + word.length() > src.length) throw error("invalid literal, expected " + word);
+            for (int i = 0; i < word.length(); i++) {
+                if (src[pos + i] != word.charAt(i)) throw error("invalid literal, expected " + word);
+            }
+            pos += word.length();
+            append((long) tag << 56);
+        }
+
+        private void push(int tag) {
+            if (depth == open.length) open = Arrays.copyOf(open, depth * 2);
+            open[depth++] = size;
+            append((long) tag << 56);
+        }
+
+        private void pop(int tag) {
+            int start = open[--depth];
+            tape[start] |= size; // the start points at the end entry
+            append((long) tag << 56 | start);
+        }
+
+        private int tag(int at) {
+            return (int) (tape[at] >>> 56);
+        }
+
+        private void append(long entry) {
+            if (size == tape.length) tape = Arrays.copyOf(tape, size * 2);
+            tape[size++] = entry;
+        }
+
+        private int skipWhitespace() {
+            if (index != null && pos < src.length && blank(src[pos])) {
+                // whitespace runs to the next indexed token
+                cursor = index.seek(cursor, pos);
+                pos = cursor < index.count() ? index.position(cursor) : src.length;
+            }
+            while (pos < src.length) {
+                byte b = src[pos];
+                if (!blank(b)) return b & 0xFF;
+                pos++;
+            }
+            return -1;
+        }
+
+        private static boolean blank(byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+        }
+
+        private JsonicException error(String what) {
+            return new JsonicException("Invalid JSON at byte " + pos + ": " + what);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.saghar.jsonicdb.json;
+
+import java.util.Arrays;
+
+/**
+ * Stage one of a two-stage parse: the positions, in order, of the structural characters
+ * {@code { } [ ] , :} outside strings, of both quotes of each string, and of the first byte of each
+ * other run of non-whitespace (numbers, literals, bare keys, or garbage for the second stage to
+ * reject). Every byte outside strings that is not listed is whitespace or follows a listed byte in
+ * the same run, so the second stage ({@link JsonTape#parse(byte[], StructuralIndex)}) moves from token
+ * to token without looking at whitespace. The index also flags each 64-byte block holding a string
+ * byte that is a backslash, a control character or non-ASCII; a string in unflagged blocks is taken
+ * as it stands, without reading its bytes again.
+ * <p>
+ * The input is classified 64 bytes at a time into bit masks of quotes, backslashes, whitespace,
+ * structural characters and bytes below 0x20 (signed, so non-ASCII bytes too), with the Vector API
+ * when the module is present and a byte loop otherwise. The rest is word arithmetic shared by both:
+ * backslash runs of odd length escape the next byte, a prefix XOR of the unescaped quotes marks the
+ * bytes inside strings, and the state of an open string or escape carries from one block to the next.
+ * <p>
+ * Experimental: no command parses through the index, since the single-pass {@link JsonTape#parse(byte[])}
+ * is faster on the documents measured so far.
+ */
+public final class StructuralIndex {
+    static final boolean VECTOR_API = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    static final int BLOCK = 64;
+    private static final long ODD_BITS = 0xAAAAAAAAAAAAAAAAL;
+
+    private final int[] positions;
+    private final int count;
+    private final long[] dirty; // bit b: block b holds a string byte that needs checking or decoding
+
+    private StructuralIndex(int[] positions, int count, long[] dirty) {
+        this.positions = positions;
+        this.count = count;
+        this.dirty = dirty;
+    }
+
+    public static StructuralIndex of(byte[] src) {
+        return of(src, VECTOR_API);
+    }
+
+    /**
+     * Indexes {@code src}, classifying bytes with the Vector API if {@code vectorized} and the module
+     * is present, else with the byte loop; both give the same index.
+     */
+    public static StructuralIndex of(byte[] src, boolean vectorized) {
+        boolean vector = vectorized && VECTOR_API;
+        int[] positions = new int[Math.max(16, src.length / 8)];
+        int count = 0;
+        long[] dirty = new long[(src.length / BLOCK >> 6) + 1];
+        long[] masks = new long[5]; // quotes, backslashes, whitespace, structural, below 0x20
+        boolean inString = false, escaped = false, inRun = false;
+        for (int base = 0; base < src.length; base += BLOCK) {
+            if (vector && base + BLOCK <= src.length) StructuralKernels.classify(src, base, masks);
+            else classify(src, base, masks);
+            long quotes = masks[0], backslashes = masks[1], space = masks[2], ops = masks[3], low = masks[4];
+
+            long escapes = escapedBytes(backslashes, escaped);
+            escaped = escapedOut(backslashes, escaped);
+            long real = quotes & ~escapes;
+            // bit i set when byte i is inside a string: the opening quote included, the closing one not
+            long strings = prefixXor(real) ^ (inString ? -1L : 0L);
+            inString = strings < 0;
+            if (((backslashes | low) & strings) != 0) dirty[base / BLOCK >> 6] |= 1L << (base / BLOCK);
+
+            long runs = ~(quotes | space | ops) & ~strings; // bytes of numbers, literals and bare keys
+            long starts = runs & ~(runs << 1 | (inRun ? 1L : 0L));
+            inRun = runs < 0;
+            long bits = (ops & ~strings) | real | starts;
+
+            if (count + Long.bitCount(bits) > positions.length) positions = Arrays.copyOf(positions, positions.length * 2 + BLOCK);
+            for (; bits != 0; bits &= bits - 1) positions[count++] = base + Long.numberOfTrailingZeros(bits);
+        }
+        return new StructuralIndex(positions, count, dirty);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int position(int i) {
+        return positions[i];
+    }
+
+    /**
+     * Index of the first listed position at or after {@code pos}, searching from {@code from}; count() if none.
+     */
+    int seek(int from, int pos) {
+        while (from < count && positions[from] < pos) from++;
+        return from;
+    }
+
+    /**
+     * Whether the bytes from {@code from} up to {@code to} may hold a backslash, a control character
+     * or a non-ASCII byte, judged by whole blocks.
+     */
+    boolean dirty(int from, int to) {
+        for (int b = from / BLOCK, last = to / BLOCK; b <= last; b++) {
+            if ((dirty[b >> 6] & 1L << b) != 0) return true;
+        }
+        return false;
+    }
+
+    // the byte loop behind the vector kernel; bytes past the end count as whitespace
+    static void classify(byte[] src, int base, long[] masks) {
+        long quotes = 0, backslashes = 0, space = 0, ops = 0, low = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            long bit = 1L << i;
+            if (base + i >= src.length) {
+                space |= -bit; // this bit and every later one
+                break;
+            }
+            if (src[base + i] < 0x20) low |= bit;
+            switch (src[base + i]) {
+                case '"' -> quotes |= bit;
+                case '\\' -> backslashes |= bit;
+                case ' ', '\t', '\n', '\r' -> space |= bit;
+                case '{', '}', '[', ']', ',', ':' -> ops |= bit;
+                default -> {
+                }
+            }
+        }
+        masks[0] = quotes;
+        masks[1] = backslashes;
+        masks[2] = space;
+        masks[3] = ops;
+        masks[4] = low;
+    }
+
+    /**
+     * The bytes escaped by a backslash: the byte after each odd-length run of backslashes, where
+     * {@code carry} says the block's first byte is escaped by a run ending the previous block. A run
+     * starting on an even bit ends on an odd one exactly when its length is odd, and subtracting the
+     * run starts from the odd bits lets the borrow mark those ends without a loop over the run.
+     */
+    static long escapedBytes(long backslashes, boolean carry) {
+        long in = carry ? 1L : 0L;
+        if (backslashes == 0) return in;
+        long potential = backslashes & ~in; // an escaped backslash starts no escape
+        long codes = ((potential << 1 | ODD_BITS) - potential) ^ ODD_BITS;
+        return codes ^ (backslashes | in);
+    }
+
+    // whether the block's last byte is an unescaped backslash, escaping the next block's first
+    static boolean escapedOut(long backslashes, boolean carry) {
+        if (backslashes == 0) return false;
+        long in = carry ? 1L : 0L;
+        long potential = backslashes & ~in;
+        long codes = ((potential << 1 | ODD_BITS) - potential) ^ ODD_BITS;
+        return (codes & backslashes) < 0;
+    }
+
+    static long prefixXor(long x) {
+        x ^= x << 1;
+        x ^= x << 2;
+        x ^= x << 4;
+        x ^= x << 8;
+        x ^= x << 16;
+        x ^= x << 32;
+        return x;
+    }
+}
@@ -0,0 +1,55 @@
+package com.saghar.jsonicdb.json;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector classification of one 64-byte block for {@link StructuralIndex}. Only loaded when
+ * {@link StructuralIndex#VECTOR_API} says the module is present.
+ * <p>
+ * Compare masks are packed into bits with vector arithmetic rather than {@link VectorMask#toLong()},
+ * which JDK 17 does not compile to a single instruction: the mask becomes 0/1 bytes, each group of
+ * eight bytes is read as a long, and multiplying by {@code 0x0102040810204080} gathers the eight
+ * bytes' low bits into the long's top byte. Shifting each lane's byte into place and OR-ing the lanes
+ * gives the mask's bits.
+ */
+final class StructuralKernels {
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = VectorSpecies.of(long.class, BYTES.vectorShape());
+    private static final ByteVector ZERO = ByteVector.zero(BYTES);
+    private static final LongVector PLACES = LongVector.zero(LONGS).addIndex(8); // 0, 8, 16, ...
+
+    private StructuralKernels() {
+    }
+
+    // the whole block must lie within src
+    static void classify(byte[] src, int base, long[] masks) {
+        long quotes = 0, backslashes = 0, space = 0, ops = 0, low = 0;
+        for (int i = 0; i < StructuralIndex.BLOCK; i += BYTES.length()) {
+            ByteVector v = ByteVector.fromArray(BYTES, src, base + i);
+            quotes |= bits(v.eq((byte) '"')) << i;
+            backslashes |= bits(v.eq((byte) '\\')) << i;
+            space |= bits(v.eq((byte) ' ').or(v.eq((byte) '\n')).or(v.eq((byte) '\r')).or(v.eq((byte) '\t'))) << i;
+            // { and } differ from [ and ] only in bit 5, so one OR folds the brackets onto the braces
+            ByteVector folded = v.or((byte) 0x20);
+            ops |= bits(folded.eq((byte) '{').or(folded.eq((byte) '}')).or(v.eq((byte) ',')).or(v.eq((byte) ':'))) << i;
+            low |= bits(v.lt((byte) 0x20)) << i;
+        }
+        masks[0] = quotes;
+        masks[1] = backslashes;
+        masks[2] = space;
+        masks[3] = ops;
+        masks[4] = low;
+    }
+
+    private static long bits(VectorMask<Byte> mask) {
+        LongVector bytes = ZERO.blend((byte) 1, mask).reinterpretAsLongs();
+        return bytes.mul(0x0102040810204080L)
+                .lanewise(VectorOperators.LSHR, 56)
+                .lanewise(VectorOperators.LSHL, PLACES)
+                .reduceLanes(VectorOperators.OR);
+    }
+}
@@ -2,9 +2,24 @@ package com.saghar.jsonicdb.parser;
 
 import com.saghar.jsonicdb.core.Database;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public interface Command {
     /**
      * Executes the command and returns a user-facing message.
      */
     String execute(Database db);
+
+    /**
+     * Executes the command and writes its message to {@code out}, ending with a line separator;
+     * nothing is written for a blank message. Commands with large results override this to write
+     * them as they are produced.
+     */
+    default void execute(Database db, Writer out) throws IOException {
+        String result = execute(db);
+        if (result == null || result.isBlank()) return;
+        out.write(result);
+        out.write(System.lineSeparator());
+    }
 }
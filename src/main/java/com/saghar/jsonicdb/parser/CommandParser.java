@@ -1,13 +1,62 @@
 package com.saghar.jsonicdb.parser;
 
-import com.saghar.jsonicdb.json.JsonParser;
+import com.saghar.jsonicdb.filter.Aggregate;
+import com.saghar.jsonicdb.filter.Filter;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.filter.SearchWindow;
+import com.saghar.jsonicdb.json.JsonTape;
 import com.saghar.jsonicdb.json.JsonValue;
 import com.saghar.jsonicdb.util.Checks;
 import com.saghar.jsonicdb.util.JsonicException;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public final class CommandParser {
+    private static final Pattern GROUP_BY = Pattern.compile("(?i)\\s*\\bgroup\\s+by\\s+");
+    private static final Pattern LOAD = Pattern.compile("(?i)(\\S+)\\s+from\\s+(['\"])(.+)\\2");
+    private static final Pattern AGGREGATE = Pattern.compile("(?i)(count|sum|avg|min|max)\\s*(?:\\(\\s*(distinct\\s+)?([^()\\s]+)\\s*\\))?");
+
+    private final StatementCache cache; // may be null
+    private final Function<String, Filter> filters;
+
+    public CommandParser() {
+        this(null);
+    }
+
+    /**
+     * A parser that reuses commands and filter trees from {@code cache} for repeated statement text.
+     * Only search, delete and aggregate commands are cached whole: create, insert, update and load
+     * carry payloads that rarely repeat and would crowd the reusable statements out, though the
+     * filter of an update is still cached.
+     */
+    public CommandParser(StatementCache cache) {
+        this.cache = cache;
+        this.filters = cache == null ? expr -> new FilterParser().parse(expr) : cache::filter;
+    }
+
+    public StatementCache cache() {
+        return cache;
+    }
 
     public Command parse(String line) {
+        return cache == null || !repeatable(line) ? parseUncached(line) : cache.command(line, this::parseUncached);
+    }
+
+    private static boolean repeatable(String line) {
+        String t = line.stripLeading();
+        for (String action : new String[]{"search", "delete", "aggregate"}) {
+            if (t.regionMatches(true, 0, action, 0, action.length())
+                    && (t.length() == action.length() || Character.isWhitespace(t.charAt(action.length())))) return true;
+        }
+        return false;
+    }
+
+    private Command parseUncached(String line) {
         String trimmed = line.trim();
         int sp = trimmed.indexOf(' ');
         String action = (sp == -1 ? trimmed : trimmed.substring(0, sp)).toLowerCase();
@@ -17,6 +66,8 @@ public final class CommandParser {
             case "create" -> parseCreate(rest);
             case "insert" -> parseInsert(rest);
             case "search" -> parseSearch(rest);
+            case "aggregate" -> parseAggregate(rest);
+            case "load" -> parseLoad(rest);
             case "update" -> parseUpdate(rest);
             case "delete" -> parseDelete(rest);
             default -> throw new JsonicException(com.saghar.jsonicdb.util.Errors.invalidCommand(action));
@@ -35,16 +86,128 @@ public final class CommandParser {
         String type = readFirstToken(rest);
         Checks.require(!type.isBlank(), "Invalid insert syntax");
         String payload = rest.substring(type.length()).trim();
-        JsonValue v = parseJson(payload, "insert");
-        return new com.saghar.jsonicdb.parser.commands.InsertCommand(type, v);
+        // a JSON array inserts a batch of rows; the JSON is decoded against the schema when run
+        Checks.require(payload.startsWith("{") || payload.startsWith("["), "Invalid insert syntax: expected JSON object");
+        return new com.saghar.jsonicdb.parser.commands.InsertCommand(type, payload);
     }
 
     private Command parseSearch(String rest) {
         String type = readFirstToken(rest);
         Checks.require(!type.isBlank(), "Invalid search syntax");
         String afterType = rest.substring(type.length()).trim();
-        String filter = extractOptionalParenExpr(afterType);
-        return new com.saghar.jsonicdb.parser.commands.SearchCommand(type, filter);
+        List<String> projection = null;
+        if (afterType.startsWith("[")) {
+            int end = afterType.indexOf(']');
+            Checks.require(end > 0, "Invalid search syntax: missing ']'");
+            projection = new ArrayList<>();
+            for (String f : afterType.substring(1, end).split(",", -1)) {
+                String field = f.trim();
+                Checks.require(!field.isEmpty() && field.chars().noneMatch(Character::isWhitespace), "Invalid search syntax: bad projected field");
+                projection.add(field);
+            }
+            afterType = afterType.substring(end + 1).trim();
+        }
+        String filter = null;
+        String clauses = afterType;
+        if (afterType.startsWith("(")) {
+            int end = findMatchingParen(afterType, 0);
+            filter = afterType.substring(1, end).trim();
+            clauses = afterType.substring(end + 1).trim();
+        }
+        SearchWindow window = parseWindow(clauses);
+        return new com.saghar.jsonicdb.parser.commands.SearchCommand(type, filter, filters, window, projection);
+    }
+
+    // [order by <field> [asc|desc]] then limit <n> and offset <m>, each at most once, in either order
+    private static SearchWindow parseWindow(String clauses) {
+        if (clauses.isEmpty()) return SearchWindow.ALL;
+        String[] t = clauses.split("\\s+");
+        String first = t[0].toLowerCase();
+        if (!first.equals("order") && !first.equals("limit") && !first.equals("offset")) {
+            throw new JsonicException(com.saghar.jsonicdb.util.Errors.invalidFilter(""));
+        }
+        String orderBy = null;
+        boolean descending = false;
+        Integer limit = null, offset = null;
+        int i = 0;
+        if (first.equals("order")) {
+            Checks.require(t.length >= 3 && t[1].equalsIgnoreCase("by"), "Invalid search syntax: expected order by <field>");
+            orderBy = t[2];
+            i = 3;
+            if (i < t.length && (t[i].equalsIgnoreCase("asc") || t[i].equalsIgnoreCase("desc"))) {
+                descending = t[i++].equalsIgnoreCase("desc");
+            }
+        }
+        while (i < t.length) {
+            String clause = t[i].toLowerCase();
+            Checks.require(clause.equals("limit") && limit == null || clause.equals("offset") && offset == null,
+                    "Invalid search syntax: unexpected '" + t[i] + "'");
+            Checks.require(i + 1 < t.length, "Invalid search syntax: " + clause + " needs a number");
+            int n = parseCount(t[i + 1], clause);
+            if (clause.equals("limit")) limit = n;
+            else offset = n;
+            i += 2;
+        }
+        return new SearchWindow(orderBy, descending, offset == null ? 0 : offset, limit == null ? Integer.MAX_VALUE : limit);
+    }
+
+    private static int parseCount(String token, String clause) {
+        try {
+            int n = Integer.parseInt(token);
+            Checks.require(n >= 0, "Invalid search syntax: " + clause + " must not be negative");
+            return n;
+        } catch (NumberFormatException ex) {
+            throw new JsonicException("Invalid search syntax: " + clause + " needs a number");
+        }
+    }
+
+    // load <Type> from '<file>' (or "<file>")
+    private Command parseLoad(String rest) {
+        Matcher m = LOAD.matcher(rest.trim());
+        Checks.require(m.matches(), "Invalid load syntax: expected load <Type> from '<file>'");
+        return new com.saghar.jsonicdb.parser.commands.LoadCommand(m.group(1), Path.of(m.group(3)));
+    }
+
+    // aggregate <Type> [(filter)] <agg>, <agg>... [group by <field>, <field>...]
+    private Command parseAggregate(String rest) {
+        String type = readFirstToken(rest);
+        Checks.require(!type.isBlank(), "Invalid aggregate syntax");
+        String remaining = rest.substring(type.length()).trim();
+        String filter = null;
+        if (remaining.startsWith("(")) {
+            int end = findMatchingParen(remaining, 0);
+            filter = remaining.substring(1, end).trim();
+            remaining = remaining.substring(end + 1).trim();
+        }
+        List<String> groupBy = new ArrayList<>();
+        Matcher g = GROUP_BY.matcher(remaining);
+        if (g.find()) {
+            for (String f : remaining.substring(g.end()).split(",", -1)) {
+                String field = f.trim();
+                Checks.require(!field.isEmpty() && field.chars().noneMatch(Character::isWhitespace), "Invalid aggregate syntax: bad group by field");
+                groupBy.add(field);
+            }
+            remaining = remaining.substring(0, g.start());
+        }
+        Checks.require(!remaining.isBlank(), "Invalid aggregate syntax: expected an aggregate such as count or sum(<field>)");
+        List<Aggregate> aggregates = new ArrayList<>();
+        for (String term : remaining.split(",", -1)) aggregates.add(parseAggregateTerm(term.trim()));
+        return new com.saghar.jsonicdb.parser.commands.AggregateCommand(type, filter, aggregates, groupBy, filters);
+    }
+
+    private static Aggregate parseAggregateTerm(String term) {
+        Matcher m = AGGREGATE.matcher(term);
+        Checks.require(m.matches(), "Invalid aggregate syntax: '" + term + "'");
+        String fn = m.group(1).toLowerCase();
+        boolean distinct = m.group(2) != null;
+        String field = m.group(3);
+        if (fn.equals("count")) {
+            if (distinct) return new Aggregate(Aggregate.Function.COUNT_DISTINCT, field);
+            Checks.require(field == null || field.equals("*"), "Invalid aggregate syntax: use count, count(*) or count(distinct <field>)");
+            return new Aggregate(Aggregate.Function.COUNT, null);
+        }
+        Checks.require(field != null && !distinct && !field.equals("*"), "Invalid aggregate syntax: " + fn + " needs a field");
+        return new Aggregate(Aggregate.Function.valueOf(fn.toUpperCase()), field);
     }
 
     private Command parseDelete(String rest) {
@@ -52,7 +215,7 @@ public final class CommandParser {
         Checks.require(!type.isBlank(), "Invalid delete syntax");
         String afterType = rest.substring(type.length()).trim();
         String filter = extractOptionalParenExpr(afterType);
-        return new com.saghar.jsonicdb.parser.commands.DeleteCommand(type, filter);
+        return new com.saghar.jsonicdb.parser.commands.DeleteCommand(type, filter, filters);
     }
 
     private Command parseUpdate(String rest) {
@@ -71,14 +234,18 @@ public final class CommandParser {
             remaining = remaining.substring(end + 1).trim();
         }
 
-        JsonValue updates = parseJson(remaining, "update");
-        return new com.saghar.jsonicdb.parser.commands.UpdateCommand(type, filter, updates);
+        Checks.require(remaining.startsWith("{"), "Invalid update syntax: expected JSON object");
+        return new com.saghar.jsonicdb.parser.commands.UpdateCommand(type, filter, remaining, filters);
     }
 
     private static JsonValue parseJson(String payload, String cmd) {
         Checks.require(payload.startsWith("{"), "Invalid " + cmd + " syntax: expected JSON object");
+        return parseJsonValue(payload);
+    }
+
+    private static JsonValue parseJsonValue(String payload) {
         try {
-            return JsonParser.parse(payload);
+            return JsonTape.parse(payload);
         } catch (JsonicException ex) {
             throw new JsonicException(com.saghar.jsonicdb.util.Errors.invalidJsonFormat());
         }
@@ -0,0 +1,125 @@
+package com.saghar.jsonicdb.parser;
+
+import com.saghar.jsonicdb.filter.Filter;
+import com.saghar.jsonicdb.filter.FilterParser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU of parsed commands and filter trees, keyed by statement text with whitespace runs
+ * outside quotes collapsed. Cached values are immutable and shared; filter leaves keep their compiled
+ * form per type and recompile once that type's schema version moves (see {@code Filter#compile}).
+ * Safe for concurrent use.
+ */
+public final class StatementCache {
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private final Lru<Command> commands;
+    private final Lru<Filter> filters;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StatementCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StatementCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.commands = new Lru<>(capacity);
+        this.filters = new Lru<>(capacity);
+    }
+
+    public Command command(String text, Function<String, Command> parser) {
+        return lookup(commands, normalize(text), parser);
+    }
+
+    public Filter filter(String expr) {
+        return lookup(filters, normalize(expr), e -> new FilterParser().parse(e));
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return commands.size() + filters.size();
+    }
+
+    public synchronized void clear() {
+        commands.clear();
+        filters.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCache(size=" + size() + ", hits=" + hits() + ", misses=" + misses() + ")";
+    }
+
+    private <V> V lookup(Lru<V> lru, String key, Function<String, V> parse) {
+        V v;
+        synchronized (this) {
+            v = lru.get(key);
+        }
+        if (v != null) {
+            hits.increment();
+            return v;
+        }
+        misses.increment();
+        // parse outside the lock; a racing duplicate parse is harmless. Failures are not cached.
+        v = parse.apply(key);
+        synchronized (this) {
+            lru.put(key, v);
+        }
+        return v;
+    }
+
+    /**
+     * Trims and collapses whitespace runs to one space, leaving quoted text (with backslash escapes)
+     * untouched so literals keep their exact spelling.
+     */
+    static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                sb.append(c);
+                if (c == '\\' && i + 1 < text.length()) sb.append(text.charAt(++i));
+                else if (c == quote) quote = 0;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) sb.append(' ');
+            pendingSpace = false;
+            sb.append(c);
+            if (c == '"' || c == '\'') quote = c;
+        }
+        return sb.toString();
+    }
+
+    @SuppressWarnings("serial") // never serialized
+    private static final class Lru<V> extends LinkedHashMap<String, V> {
+        private final int capacity;
+
+        Lru(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
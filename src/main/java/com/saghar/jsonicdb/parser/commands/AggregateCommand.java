@@ -0,0 +1,62 @@
+package com.saghar.jsonicdb.parser.commands;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.ReadView;
+import com.saghar.jsonicdb.core.TableWriter;
+import com.saghar.jsonicdb.filter.Aggregate;
+import com.saghar.jsonicdb.filter.Aggregator;
+import com.saghar.jsonicdb.filter.Filter;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.parser.Command;
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Function;
+
+public final class AggregateCommand implements Command {
+    private final String typeName;
+    private final String filterExpr; // may be null
+    private final List<Aggregate> aggregates;
+    private final List<String> groupBy;
+    private final Function<String, Filter> filters;
+
+    public AggregateCommand(String typeName, String filterExpr, List<Aggregate> aggregates, List<String> groupBy) {
+        this(typeName, filterExpr, aggregates, groupBy, expr -> new FilterParser().parse(expr));
+    }
+
+    public AggregateCommand(String typeName, String filterExpr, List<Aggregate> aggregates, List<String> groupBy,
+                            Function<String, Filter> filters) {
+        this.typeName = typeName;
+        this.filterExpr = (filterExpr == null || filterExpr.isBlank()) ? null : filterExpr;
+        this.aggregates = List.copyOf(aggregates);
+        this.groupBy = List.copyOf(groupBy);
+        this.filters = filters;
+    }
+
+    @Override
+    public String execute(Database db) {
+        DataType dt = db.getType(typeName);
+        if (dt == null) throw new JsonicException(com.saghar.jsonicdb.util.Errors.typeNotFound(typeName));
+
+        Filter filter = (filterExpr == null) ? Filter.alwaysTrue() : filters.apply(filterExpr);
+        Aggregator.Result result;
+        try (ReadView view = dt.openView()) {
+            result = Aggregator.run(view, filter, groupBy, aggregates);
+        }
+        if (result.rows().isEmpty()) return "No results found.";
+        StringWriter out = new StringWriter();
+        try {
+            out.write("Aggregate results (" + result.rows().size() + "):\n");
+            TableWriter table = new TableWriter(result.columns(), out);
+            table.header();
+            for (Object[] row : result.rows()) table.row(row);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toString();
+    }
+}
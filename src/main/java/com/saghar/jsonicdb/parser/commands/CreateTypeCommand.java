@@ -3,12 +3,17 @@ package com.saghar.jsonicdb.parser.commands;
 import com.saghar.jsonicdb.core.DataType;
 import com.saghar.jsonicdb.core.Database;
 import com.saghar.jsonicdb.core.FieldDef;
+import com.saghar.jsonicdb.core.IndexKind;
 import com.saghar.jsonicdb.core.ValueType;
 import com.saghar.jsonicdb.json.*;
 import com.saghar.jsonicdb.parser.Command;
 import com.saghar.jsonicdb.util.JsonicException;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class CreateTypeCommand implements Command {
     private final String typeName;
@@ -24,8 +29,10 @@ public final class CreateTypeCommand implements Command {
         if (!(payload instanceof JsonObject obj))
             throw new JsonicException(com.saghar.jsonicdb.util.Errors.invalidSyntax("create"));
         if (obj.entries().isEmpty()) throw new JsonicException(com.saghar.jsonicdb.util.Errors.fieldsEmpty());
-        DataType dt = db.createType(typeName);
 
+        // every field is built and checked first, so a bad schema leaves no type behind
+        List<FieldDef> defs = new ArrayList<>();
+        Set<String> names = new HashSet<>();
         for (Map.Entry<String, JsonValue> e : obj.entries().entrySet()) {
             String fieldName = e.getKey();
             if (!(e.getValue() instanceof JsonObject props)) {
@@ -34,11 +41,16 @@ public final class CreateTypeCommand implements Command {
             String typeSpec = readString(props, "type", "string");
             boolean required = readBoolean(props, "required", false);
             boolean unique = readBoolean(props, "unique", false);
+            IndexKind index = IndexKind.fromSpec(readString(props, "index", "none"));
 
-            FieldDef def = new FieldDef(fieldName, ValueType.fromSpec(typeSpec), required, unique);
-            dt.addField(def);
+            FieldDef def = new FieldDef(fieldName, ValueType.fromSpec(typeSpec), required, unique, index);
+            if (!names.add(fieldName.trim().toLowerCase()))
+                throw new JsonicException(com.saghar.jsonicdb.util.Errors.duplicateField(fieldName));
+            defs.add(def);
         }
 
+        DataType dt = db.createType(typeName, defs);
+
         return "Type '" + typeName + "' created (" + dt.fields().size() + " fields).";
     }
 
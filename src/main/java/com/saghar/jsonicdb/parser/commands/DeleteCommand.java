@@ -4,16 +4,25 @@ import com.saghar.jsonicdb.core.DataType;
 import com.saghar.jsonicdb.core.Database;
 import com.saghar.jsonicdb.filter.Filter;
 import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.filter.QueryExecutor;
 import com.saghar.jsonicdb.parser.Command;
 import com.saghar.jsonicdb.util.JsonicException;
 
+import java.util.function.Function;
+
 public final class DeleteCommand implements Command {
     private final String typeName;
     private final String filterExpr; // may be null
+    private final Function<String, Filter> filters;
 
     public DeleteCommand(String typeName, String filterExpr) {
+        this(typeName, filterExpr, expr -> new FilterParser().parse(expr));
+    }
+
+    public DeleteCommand(String typeName, String filterExpr, Function<String, Filter> filters) {
         this.typeName = typeName;
         this.filterExpr = (filterExpr == null || filterExpr.isBlank()) ? null : filterExpr;
+        this.filters = filters;
     }
 
     @Override
@@ -21,8 +30,9 @@ public final class DeleteCommand implements Command {
         DataType dt = db.getType(typeName);
         if (dt == null) throw new JsonicException(com.saghar.jsonicdb.util.Errors.typeNotFound(typeName));
 
-        Filter filter = (filterExpr == null) ? Filter.alwaysTrue() : new FilterParser().parse(filterExpr);
-        int deleted = dt.deleteWhere(r -> filter.test(dt, r));
+        Filter filter = (filterExpr == null) ? Filter.alwaysTrue() : filters.apply(filterExpr);
+        // match and delete under one write lock so the matched slots cannot move in between
+        int deleted = dt.write(() -> dt.deleteSlots(QueryExecutor.matchingSlots(dt, filter)));
         return deleted + " instances deleted.";
     }
 }
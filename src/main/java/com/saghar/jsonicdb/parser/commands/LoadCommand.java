@@ -0,0 +1,187 @@
+package com.saghar.jsonicdb.parser.commands;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.RowDecoder;
+import com.saghar.jsonicdb.json.JsonReader;
+import com.saghar.jsonicdb.parser.Command;
+import com.saghar.jsonicdb.util.JsonicException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads newline-delimited JSON objects from a file into a type. The calling thread reads the file's
+ * bytes in chunks of lines, only looking for line breaks; worker threads (as many as the type's scan
+ * parallelism) decode each line straight into a row with the type's {@link RowDecoder}; a single committer inserts the converted chunks in file order, each one as an all-or-nothing
+ * {@link DataType#insertAll batch}. At most a few chunks are in flight, so memory stays bounded
+ * whatever the file's size.
+ * <p>
+ * The first bad line stops the load; the chunks committed before it stay.
+ */
+public final class LoadCommand implements Command {
+    static final int CHUNK_LINES = 4096;
+    private static final int READ_BUFFER = 1 << 18;
+
+    private final String typeName;
+    private final Path file;
+
+    public LoadCommand(String typeName, Path file) {
+        this.typeName = typeName;
+        this.file = file;
+    }
+
+    private record Chunk(long firstLine, long lastLine, List<Object[]> rows) {
+    }
+
+    private static final Chunk END = new Chunk(0, 0, List.of());
+
+    @Override
+    public String execute(Database db) {
+        DataType dt = db.getType(typeName);
+        if (dt == null) throw new JsonicException(com.saghar.jsonicdb.util.Errors.typeNotFound(typeName));
+
+        int workers = dt.scanSettings().parallelism();
+        ExecutorService converters = Executors.newFixedThreadPool(workers, LoadCommand::daemon);
+        ExecutorService committer = Executors.newSingleThreadExecutor(LoadCommand::daemon);
+        // converted chunks in file order, then END
+        BlockingQueue<Future<Chunk>> ready = new ArrayBlockingQueue<>(2 * workers);
+        AtomicLong loaded = new AtomicLong();
+        try {
+            Future<Long> commits = committer.submit(() -> commit(dt, ready, loaded));
+            JsonicException readFailure = null;
+            try {
+                read(dt, converters, ready, commits);
+            } catch (JsonicException ex) {
+                readFailure = ex; // reported once the chunks read before it are committed
+            }
+            try {
+                commits.get();
+                if (readFailure != null) throw stopped(loaded, readFailure.getMessage());
+            } catch (ExecutionException ex) {
+                throw ex.getCause() instanceof RuntimeException r ? r : new JsonicException(String.valueOf(ex.getCause()));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new JsonicException("Load interrupted after " + loaded.get() + " rows");
+            }
+        } finally {
+            converters.shutdownNow();
+            committer.shutdownNow();
+        }
+        return "Loaded " + loaded.get() + " instances into '" + dt.name() + "'.";
+    }
+
+    private void read(DataType dt, ExecutorService converters, BlockingQueue<Future<Chunk>> ready, Future<Long> commits) {
+        try (InputStream in = Files.newInputStream(file)) {
+            // data[0, size) holds the lines of the chunk being gathered; ends[i] is the offset of line i's '\n'
+            byte[] data = new byte[READ_BUFFER];
+            int size = 0, scanned = 0, lines = 0;
+            int[] ends = new int[CHUNK_LINES];
+            long first = 1;
+            for (int n; (n = in.read(data, size, data.length - size)) >= 0; ) {
+                size += n;
+                while (scanned < size) {
+                    if (data[scanned++] != '\n') continue;
+                    ends[lines++] = scanned - 1;
+                    if (lines < CHUNK_LINES) continue;
+                    // the chunk keeps the array; the bytes after its last line start a new one
+                    int rest = size - scanned;
+                    byte[] next = new byte[Math.max(READ_BUFFER, rest * 2)];
+                    System.arraycopy(data, scanned, next, 0, rest);
+                    if (!submit(dt, converters, ready, commits, first, data, ends, lines)) return;
+                    first += lines;
+                    data = next;
+                    size = rest;
+                    scanned = 0;
+                    lines = 0;
+                    ends = new int[CHUNK_LINES];
+                }
+                if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            }
+            if (size > (lines == 0 ? 0 : ends[lines - 1] + 1)) ends[lines++] = size; // a last line without '\n'
+            if (lines > 0) submit(dt, converters, ready, commits, first, data, ends, lines);
+        } catch (IOException ex) {
+            throw new JsonicException("Cannot read " + file + ": " + ex.getMessage());
+        } finally {
+            // the end marker; the committer may already have stopped, in which case nobody waits for it
+            offer(ready, CompletableFuture.completedFuture(END), commits);
+        }
+    }
+
+    private static boolean submit(DataType dt, ExecutorService converters, BlockingQueue<Future<Chunk>> ready, Future<Long> commits,
+                                  long first, byte[] data, int[] ends, int lines) {
+        return offer(ready, converters.submit(() -> convert(dt, first, data, ends, lines)), commits);
+    }
+
+    // waits for room in the queue, unless the committer has stopped
+    private static boolean offer(BlockingQueue<Future<Chunk>> ready, Future<Chunk> chunk, Future<?> commits) {
+        try {
+            while (!ready.offer(chunk, 50, TimeUnit.MILLISECONDS)) {
+                if (commits.isDone()) return false;
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Chunk convert(DataType dt, long firstLine, byte[] data, int[] ends, int lines) {
+        RowDecoder decoder = dt.decoder();
+        JsonReader reader = new JsonReader(data, 0, 0);
+        List<Object[]> rows = new ArrayList<>(lines);
+        for (int i = 0, from = 0; i < lines; from = ends[i++] + 1) {
+            reader.reset(data, from, ends[i]);
+            try {
+                Object[] row = decoder.decode(reader);
+                if (row == null) continue; // a blank line
+                if (reader.next() != null) throw new JsonicException(com.saghar.jsonicdb.util.Errors.invalidJsonFormat());
+                rows.add(row);
+            } catch (JsonicException ex) {
+                throw new JsonicException("line " + (firstLine + i) + ": " + ex.getMessage());
+            }
+        }
+        return new Chunk(firstLine, firstLine + lines - 1, rows);
+    }
+
+    private static long commit(DataType dt, BlockingQueue<Future<Chunk>> ready, AtomicLong loaded) throws InterruptedException {
+        while (true) {
+            Chunk chunk;
+            try {
+                chunk = ready.take().get();
+            } catch (ExecutionException ex) {
+                throw stopped(loaded, ex.getCause().getMessage());
+            }
+            if (chunk == END) return loaded.get();
+            try {
+                loaded.addAndGet(dt.insertRows(chunk.rows()));
+            } catch (JsonicException ex) {
+                throw stopped(loaded, "lines " + chunk.firstLine() + "-" + chunk.lastLine() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    private static JsonicException stopped(AtomicLong loaded, String why) {
+        return new JsonicException("Load stopped after " + loaded.get() + " rows: " + why);
+    }
+
+    private static Thread daemon(Runnable r) {
+        Thread t = new Thread(r, "jsonic-load");
+        t.setDaemon(true);
+        return t;
+    }
+}
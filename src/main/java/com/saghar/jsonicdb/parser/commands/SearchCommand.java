@@ -1,37 +1,102 @@
 package com.saghar.jsonicdb.parser.commands;
 
-import com.saghar.jsonicdb.core.DataRecord;
 import com.saghar.jsonicdb.core.DataType;
 import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.ReadView;
+import com.saghar.jsonicdb.core.TableWriter;
 import com.saghar.jsonicdb.filter.Filter;
 import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.filter.QueryExecutor;
+import com.saghar.jsonicdb.filter.SearchWindow;
 import com.saghar.jsonicdb.parser.Command;
 import com.saghar.jsonicdb.util.JsonicException;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 public final class SearchCommand implements Command {
     private final String typeName;
     private final String filterExpr; // may be null
+    private final Function<String, Filter> filters;
+    private final SearchWindow window;
+    private final List<String> projection; // null = every field
 
     public SearchCommand(String typeName, String filterExpr) {
+        this(typeName, filterExpr, expr -> new FilterParser().parse(expr));
+    }
+
+    public SearchCommand(String typeName, String filterExpr, Function<String, Filter> filters) {
+        this(typeName, filterExpr, filters, SearchWindow.ALL);
+    }
+
+    public SearchCommand(String typeName, String filterExpr, Function<String, Filter> filters, SearchWindow window) {
+        this(typeName, filterExpr, filters, window, null);
+    }
+
+    public SearchCommand(String typeName, String filterExpr, Function<String, Filter> filters, SearchWindow window,
+                         List<String> projection) {
         this.typeName = typeName;
         this.filterExpr = (filterExpr == null || filterExpr.isBlank()) ? null : filterExpr;
+        this.filters = filters;
+        this.window = window;
+        this.projection = projection == null ? null : List.copyOf(projection);
     }
 
     @Override
     public String execute(Database db) {
+        StringWriter out = new StringWriter();
+        try {
+            write(db, out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Streams the table: the matching slots are collected first (the header carries their count),
+     * then each row is formatted straight from the view's store into {@code out}. Only the projected
+     * columns are read for output.
+     */
+    @Override
+    public void execute(Database db, Writer out) throws IOException {
+        write(db, out);
+        out.write(System.lineSeparator());
+    }
+
+    private void write(Database db, Writer out) throws IOException {
         DataType dt = db.getType(typeName);
         if (dt == null) throw new JsonicException(com.saghar.jsonicdb.util.Errors.typeNotFound(typeName));
 
-        Filter filter = (filterExpr == null) ? Filter.alwaysTrue() : new FilterParser().parse(filterExpr);
-        List<DataRecord> results = new ArrayList<>();
-        for (DataRecord r : dt.records()) {
-            if (filter.test(dt, r)) results.add(r);
+        Filter filter = (filterExpr == null) ? Filter.alwaysTrue() : filters.apply(filterExpr);
+        try (ReadView view = dt.openView()) {
+            int[] columns = columns(dt, view);
+            int[] slots = QueryExecutor.matchingSlots(view, filter, window);
+            if (slots.length == 0) {
+                out.write("No results found.");
+                return;
+            }
+            out.write("Search results (" + slots.length + "):\n");
+            TableWriter table = new TableWriter(dt, columns, out);
+            table.header();
+            for (int slot : slots) table.row(view.store(), slot);
         }
+    }
 
-        if (results.isEmpty()) return "No results found.";
-        return "Search results (" + results.size() + "):\n" + dt.formatTable(results);
+    private int[] columns(DataType dt, ReadView view) {
+        if (projection == null) return IntStream.range(0, view.columns()).toArray();
+        int[] columns = new int[projection.size()];
+        for (int i = 0; i < columns.length; i++) {
+            int c = dt.column(projection.get(i));
+            // a field added after the view was opened is not part of what the view sees
+            if (c < 0 || c >= view.columns()) throw new JsonicException(com.saghar.jsonicdb.util.Errors.fieldNotFound(projection.get(i)));
+            columns[i] = c;
+        }
+        return columns;
     }
 }
@@ -0,0 +1,132 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.ReadView;
+import com.saghar.jsonicdb.core.ScanSettings;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.filter.Aggregate;
+import com.saghar.jsonicdb.filter.Aggregator;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbAggregateTest {
+
+    private static final int ROWS = 20_000;
+
+    private static Database populate(StorageMode mode, ScanSettings settings) {
+        Database db = new Database(mode);
+        CommandParser p = new CommandParser();
+        db.setScanSettings(settings);
+        p.parse("create Sale {\"id\":{\"type\":\"int\",\"required\":true},\"region\":{\"type\":\"string\"},"
+                + "\"qty\":{\"type\":\"int\",\"index\":\"range\"},\"price\":{\"type\":\"double\"},\"vip\":{\"type\":\"bool\"}}").execute(db);
+        DataType t = db.getType("sale");
+        for (int i = 0; i < ROWS; i++) {
+            t.insert(Map.of("id", i, "region", "r" + (i % 7), "qty", i % 11, "price", (i % 23) * 1.5, "vip", i % 3 == 0));
+        }
+        return db;
+    }
+
+    private static final List<Aggregate> AGGS = List.of(
+            new Aggregate(Aggregate.Function.COUNT, null),
+            new Aggregate(Aggregate.Function.SUM, "qty"),
+            new Aggregate(Aggregate.Function.AVG, "price"),
+            new Aggregate(Aggregate.Function.MIN, "price"),
+            new Aggregate(Aggregate.Function.MAX, "qty"),
+            new Aggregate(Aggregate.Function.COUNT_DISTINCT, "qty"));
+
+    @Test
+    void groupedAggregates_matchABruteForceComputation() {
+        for (StorageMode mode : StorageMode.values()) {
+            for (ScanSettings settings : new ScanSettings[]{ScanSettings.SEQUENTIAL, new ScanSettings(4, 0)}) {
+                DataType t = populate(mode, settings).getType("sale");
+                for (String expr : new String[]{"id >= 0", "qty > 6", "price < 10.0 AND vip = true"}) {
+                    Aggregator.Result r;
+                    try (ReadView view = t.openView()) {
+                        r = Aggregator.run(view, new FilterParser().parse(expr), List.of("region", "vip"), AGGS);
+                    }
+                    assertEquals(List.of("region", "vip", "count", "sum(qty)", "avg(price)", "min(price)", "max(qty)", "count(distinct qty)"), r.columns());
+
+                    // key -> {count, sum qty, sum price, min price, max qty}
+                    Map<String, double[]> expected = new TreeMap<>();
+                    Map<String, Set<Integer>> distinct = new TreeMap<>();
+                    for (int i = 0; i < ROWS; i++) {
+                        int qty = i % 11;
+                        double price = (i % 23) * 1.5;
+                        boolean vip = i % 3 == 0;
+                        boolean match = switch (expr) {
+                            case "qty > 6" -> qty > 6;
+                            case "id >= 0" -> true;
+                            default -> price < 10.0 && vip;
+                        };
+                        if (!match) continue;
+                        String key = "r" + (i % 7) + "|" + vip;
+                        double[] e = expected.computeIfAbsent(key, k -> new double[]{0, 0, 0, Double.MAX_VALUE, Integer.MIN_VALUE});
+                        e[0]++;
+                        e[1] += qty;
+                        e[2] += price;
+                        e[3] = Math.min(e[3], price);
+                        e[4] = Math.max(e[4], qty);
+                        distinct.computeIfAbsent(key, k -> new HashSet<>()).add(qty);
+                    }
+                    assertEquals(expected.size(), r.rows().size(), mode + " " + expr);
+                    for (Object[] row : r.rows()) {
+                        String key = row[0] + "|" + row[1];
+                        double[] e = expected.get(key);
+                        assertNotNull(e, key);
+                        assertEquals((long) e[0], row[2]);
+                        assertEquals((long) e[1], row[3]);
+                        assertEquals(e[2] / e[0], (Double) row[4], 1e-9);
+                        assertEquals(e[3], row[5]);
+                        assertEquals((int) e[4], row[6]);
+                        assertEquals((long) distinct.get(key).size(), row[7]);
+                    }
+                    for (int i = 1; i < r.rows().size(); i++) {
+                        String prev = (String) r.rows().get(i - 1)[0], cur = (String) r.rows().get(i)[0];
+                        assertTrue(prev.compareTo(cur) < 0 || prev.equals(cur) && !(Boolean) r.rows().get(i - 1)[1]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void aggregateCommand_printsATable() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        p.parse("create P {\"id\":{\"type\":\"int\",\"required\":true},\"city\":{\"type\":\"string\"},\"age\":{\"type\":\"int\"}}").execute(db);
+        p.parse("insert P {\"id\":1,\"city\":\"Rasht\",\"age\":30}").execute(db);
+        p.parse("insert P {\"id\":2,\"city\":\"Tabriz\",\"age\":40}").execute(db);
+        p.parse("insert P {\"id\":3,\"city\":\"Rasht\",\"age\":50}").execute(db);
+
+        String out = p.parse("aggregate P count, avg(age), count(distinct city)").execute(db);
+        assertTrue(out.startsWith("Aggregate results (1):"), out);
+        assertTrue(out.contains("| 3 "), out);
+        assertTrue(out.contains("| 40.0 "), out);
+
+        String grouped = p.parse("aggregate P (age >= 40) count(*), sum(age) group by city").execute(db);
+        String[] lines = grouped.split("\n");
+        assertEquals("Aggregate results (2):", lines[0]);
+        assertTrue(lines[3].startsWith("| Rasht      | 1          | 50 "), grouped);
+        assertTrue(lines[4].startsWith("| Tabriz     | 1          | 40 "), grouped);
+
+        assertTrue(p.parse("aggregate P (age > 99) count, min(age)").execute(db).contains("| 0          | null"));
+        assertEquals("No results found.", p.parse("aggregate P (age > 99) count group by city").execute(db));
+
+        assertThrows(JsonicException.class, () -> p.parse("aggregate P").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("aggregate P sum(city)").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("aggregate P median(age)").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("aggregate P count group by nope").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("aggregate Nope count").execute(db));
+    }
+}
@@ -0,0 +1,83 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.Durability;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbBatchInsertTest {
+
+    private static void create(Database db) {
+        CommandParser p = new CommandParser();
+        p.parse("create Item {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true},\"name\":{\"type\":\"string\",\"index\":true},"
+                + "\"price\":{\"type\":\"double\",\"index\":\"range\"}}").execute(db);
+    }
+
+    private static String batch(int from, int to) {
+        StringBuilder sb = new StringBuilder("insert Item [");
+        for (int i = from; i < to; i++) {
+            if (i > from) sb.append(", ");
+            sb.append("{\"id\":").append(i).append(",\"name\":\"n").append(i % 5).append("\",\"price\":").append(i * 0.25).append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    @Test
+    void batch_insertsEveryRow_andIndexesThem() {
+        CommandParser p = new CommandParser();
+        for (StorageMode mode : StorageMode.values()) {
+            Database db = new Database(mode);
+            create(db);
+            assertEquals("5000 instances inserted into 'Item'.", p.parse(batch(0, 5000)).execute(db));
+            assertEquals(5000, db.getType("item").size());
+            assertTrue(p.parse("search Item (id = 4321)").execute(db).contains("| 4321 "));
+            assertTrue(p.parse("search Item (name = \"n3\")").execute(db).startsWith("Search results (1000):"));
+            assertTrue(p.parse("search Item (price >= 1000.0)").execute(db).startsWith("Search results (1000):"));
+            assertEquals("0 instances inserted into 'Item'.", p.parse("insert Item []").execute(db));
+        }
+    }
+
+    @Test
+    void failingBatch_insertsNothing() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        create(db);
+        p.parse(batch(0, 10)).execute(db);
+        long version = db.getType("item").version();
+
+        // duplicate within the batch, against an existing row, a missing required field, a bad value
+        assertThrows(JsonicException.class, () -> p.parse("insert Item [{\"id\":100},{\"id\":101},{\"id\":100}]").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("insert Item [{\"id\":100},{\"id\":3}]").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("insert Item [{\"id\":100},{\"name\":\"x\"}]").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("insert Item [{\"id\":100},{\"id\":\"x\"}]").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("insert Item [{\"id\":100}, 7]").execute(db));
+
+        assertEquals(10, db.getType("item").size());
+        assertEquals(version, db.getType("item").version());
+        assertEquals("No results found.", p.parse("search Item (id = 100)").execute(db));
+    }
+
+    @Test
+    void batch_isReplayedFromTheLog(@TempDir Path dir) {
+        CommandParser p = new CommandParser();
+        Path log = dir.resolve("db.wal");
+        String expected;
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            create(db);
+            p.parse(batch(0, 300)).execute(db);
+            p.parse("delete Item (id < 20)").execute(db);
+            p.parse(batch(300, 400)).execute(db);
+            expected = p.parse("search Item (price > 50.0)").execute(db) + db.getType("item").slotCount();
+        }
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            assertEquals(expected, p.parse("search Item (price > 50.0)").execute(db) + db.getType("item").slotCount());
+        }
+    }
+}
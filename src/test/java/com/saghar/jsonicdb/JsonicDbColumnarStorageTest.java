@@ -0,0 +1,93 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataRecord;
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbColumnarStorageTest {
+
+    private static final String SCHEMA = "create Item {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true}," +
+            "\"name\":{\"type\":\"string\"}," +
+            "\"price\":{\"type\":\"double\"}," +
+            "\"active\":{\"type\":\"bool\"}," +
+            "\"at\":{\"type\":\"time\"}," +
+            "\"tags\":{\"type\":\"arr_string\"}}";
+
+    @Test
+    void columnarStore_roundTripsEveryValueType() {
+        Database db = new Database(StorageMode.COLUMNAR);
+        CommandParser p = new CommandParser();
+        p.parse(SCHEMA).execute(db);
+
+        p.parse("insert Item {\"id\":1,\"name\":\"Café\",\"price\":2.5,\"active\":true," +
+                "\"at\":\"2025-03-01T08:30:00.123456789\",\"tags\":[\"a\",\"b\"]}").execute(db);
+        p.parse("insert Item {\"id\":2}").execute(db);
+
+        DataType item = db.getType("item");
+        assertEquals(StorageMode.COLUMNAR, item.storage());
+        DataRecord r1 = item.records().get(0);
+        assertEquals(1, r1.get("id"));
+        assertEquals("Café", r1.get("name"));
+        assertEquals(2.5, r1.get("price"));
+        assertEquals(true, r1.get("active"));
+        assertEquals(LocalDateTime.parse("2025-03-01T08:30:00.123456789"), r1.get("at"));
+        assertEquals(List.of("a", "b"), r1.get("tags"));
+
+        DataRecord r2 = item.records().get(1);
+        assertEquals("", r2.get("name"));
+        assertEquals(false, r2.get("active"));
+        assertEquals(LocalDateTime.of(1970, 1, 1, 0, 0), r2.get("at"));
+    }
+
+    @Test
+    void columnarStore_filtersUpdatesAndDeletesLikeRowStore() {
+        for (StorageMode mode : StorageMode.values()) {
+            Database db = new Database(mode);
+            CommandParser p = new CommandParser();
+            p.parse(SCHEMA).execute(db);
+            for (int i = 1; i <= 50; i++) {
+                p.parse("insert Item {\"id\":" + i + ",\"name\":\"n" + i + "\",\"price\":" + (i * 0.5) +
+                        ",\"active\":" + (i % 2 == 0) + ",\"at\":\"2025-01-01T00:00:" + String.format("%02d", i % 60) + "\"}").execute(db);
+            }
+
+            assertTrue(p.parse("search Item (price > 20.0 AND active = true)").execute(db).contains("Search results (5)"), mode.name());
+            assertTrue(p.parse("search Item (at >= \"2025-01-01T00:00:45\")").execute(db).contains("Search results (6)"), mode.name());
+
+            assertEquals("10 instances updated.", p.parse("update Item (id <= 10) {\"name\":\"renamed\"}").execute(db));
+            assertTrue(p.parse("search Item (name = \"renamed\")").execute(db).contains("Search results (10)"), mode.name());
+
+            assertEquals("25 instances deleted.", p.parse("delete Item (active = false)").execute(db));
+            DataType item = db.getType("item");
+            assertEquals(25, item.size());
+            assertEquals(2, item.records().get(0).get("id"));
+            assertEquals("renamed", item.records().get(0).get("name"));
+            assertEquals("n50", item.records().get(24).get("name"));
+
+            // unique index must follow the compacted slots
+            assertThrows(RuntimeException.class, () -> p.parse("insert Item {\"id\":50}").execute(db));
+            p.parse("insert Item {\"id\":1}").execute(db);
+            assertTrue(p.parse("search Item (id = 1)").execute(db).contains("Search results (1)"), mode.name());
+        }
+    }
+
+    @Test
+    void formatTable_isIdenticalAcrossStorageModes() {
+        String[] out = new String[2];
+        for (StorageMode mode : StorageMode.values()) {
+            Database db = new Database(mode);
+            CommandParser p = new CommandParser();
+            p.parse(SCHEMA).execute(db);
+            p.parse("insert Item {\"id\":7,\"name\":\"x\",\"price\":1.25,\"active\":true,\"at\":\"2024-01-01T12:30:00\",\"tags\":[\"t\"]}").execute(db);
+            out[mode.ordinal()] = p.parse("search Item").execute(db);
+        }
+        assertEquals(out[0], out[1]);
+    }
+}
@@ -0,0 +1,66 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.filter.Filter;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.filter.SlotPredicate;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbCompiledFilterTest {
+
+    private static final String[] FILTERS = {
+            "age > 30", "30 >= age", "age != 31", "score = 2.5", "score < -0.0", "-0.0 <= score",
+            "active = true", "active != false", "active > false",
+            "name = \"Zoë\"", "name != \"Zoë\"", "name = \"Zo\"", "name >= \"b\"", "name = \"𝄞 clef\"",
+            "at < \"2024-06-01T00:00:00\"", "at = \"2024-01-01T10:00:00\"",
+            "tags include \"x\"", "(tags include \"y\" OR age < 25) AND active = true",
+            "1 < 2", "\"a\" = \"b\"", "unknown = unknown",
+    };
+
+    private static DataType people(StorageMode mode) {
+        Database db = new Database(mode);
+        CommandParser p = new CommandParser();
+        p.parse("create P {\"name\":{\"type\":\"string\"},\"age\":{\"type\":\"int\"},\"score\":{\"type\":\"double\"}," +
+                "\"active\":{\"type\":\"bool\"},\"at\":{\"type\":\"time\"},\"tags\":{\"type\":\"arr_string\"}}").execute(db);
+        String[] names = {"Zoë", "Zo", "bob", "𝄞 clef", "", "alice"};
+        for (int i = 0; i < 60; i++) {
+            p.parse("insert P {\"name\":\"" + names[i % names.length] + "\",\"age\":" + (18 + i % 30) +
+                    ",\"score\":" + ((i % 7) - 3) * 1.25 + ",\"active\":" + (i % 3 == 0) +
+                    ",\"at\":\"2024-" + String.format("%02d", 1 + i % 12) + "-01T10:00:00\"" +
+                    ",\"tags\":[\"" + (i % 2 == 0 ? "x" : "y") + "\"]}").execute(db);
+        }
+        return db.getType("p");
+    }
+
+    @Test
+    void compiledPredicates_agreeWithRecordEvaluation_inBothStorageModes() {
+        for (StorageMode mode : StorageMode.values()) {
+            DataType t = people(mode);
+            for (String f : FILTERS) {
+                Filter filter = new FilterParser().parse(f);
+                SlotPredicate compiled = filter.compile(t);
+                int matches = 0;
+                for (int slot = 0; slot < t.size(); slot++) {
+                    boolean expected = filter.test(t, t.record(slot));
+                    assertEquals(expected, compiled.test(slot), mode + ": " + f + " @ " + slot);
+                    if (expected) matches++;
+                }
+                if (f.startsWith("name = \"Zo")) assertEquals(10, matches, mode + ": " + f);
+            }
+        }
+    }
+
+    @Test
+    void compile_reportsBadFiltersOnce_beforeAnyRowIsRead() {
+        DataType t = people(StorageMode.COLUMNAR);
+        assertThrows(JsonicException.class, () -> new FilterParser().parse("age include \"x\"").compile(t));
+        assertThrows(JsonicException.class, () -> new FilterParser().parse("age > \"old\"").compile(t));
+        assertThrows(JsonicException.class, () -> new FilterParser().parse("tags = \"x\"").compile(t));
+    }
+}
@@ -0,0 +1,170 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.Durability;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.parser.StatementCache;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbConcurrencyTest {
+
+    private static void create(Database db, String type) {
+        CommandParser p = new CommandParser();
+        p.parse("create " + type + " {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true},\"name\":{\"type\":\"string\",\"index\":true}," +
+                "\"n\":{\"type\":\"int\",\"index\":\"range\"},\"tags\":{\"type\":\"arr_string\",\"index\":true}}").execute(db);
+    }
+
+    private static void runAll(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void writersAndReadersOnSeveralTypes_leaveConsistentStores() throws Exception {
+        CommandParser p = new CommandParser(new StatementCache());
+        for (StorageMode mode : StorageMode.values()) {
+            Database db = new Database(mode);
+            create(db, "A");
+            create(db, "B");
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (String type : List.of("A", "B")) {
+                for (int w = 0; w < 3; w++) {
+                    int writer = w;
+                    tasks.add(() -> {
+                        for (int i = writer; i < 600; i += 3) {
+                            p.parse("insert " + type + " {\"id\":" + i + ",\"name\":\"n" + (i % 5) + "\",\"n\":" + i + ",\"tags\":[\"t" + (i % 2) + "\"]}").execute(db);
+                            if (i % 10 == 9 && i >= 15) p.parse("delete " + type + " (n = " + (i - 15) + ")").execute(db);
+                            if (i % 7 == 0) p.parse("update " + type + " (id = " + i + ") {\"name\":\"seven\"}").execute(db);
+                        }
+                        return null;
+                    });
+                }
+                tasks.add(() -> {
+                    for (int i = 0; i < 150; i++) {
+                        String out = p.parse("search " + type + " (name = \"n1\" AND n >= 100 OR tags include \"t0\")").execute(db);
+                        assertTrue(out.equals("No results found.") || out.startsWith("Search results ("));
+                    }
+                    return null;
+                });
+            }
+            runAll(tasks);
+
+            for (String type : List.of("a", "b")) {
+                // ids 4, 14, .. 584 were deleted by the writer that inserted them
+                assertEquals(541, db.getType(type).size());
+                assertTrue(p.parse("search " + type + " (id = 14)").execute(db).equals("No results found."));
+                assertTrue(p.parse("search " + type + " (name = \"seven\")").execute(db).contains("Search results (77)"));
+                assertTrue(p.parse("search " + type + " (n >= 0)").execute(db).contains("Search results (541)"));
+            }
+        }
+    }
+
+    @Test
+    void racingInsertsOfOneUniqueValue_letExactlyOneWin() throws Exception {
+        Database db = new Database();
+        CommandParser p = new CommandParser(new StatementCache());
+        create(db, "A");
+        AtomicInteger failures = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        p.parse("insert A {\"id\":" + i + "}").execute(db);
+                    } catch (JsonicException ex) {
+                        failures.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+        assertEquals(200, db.getType("a").size());
+        assertEquals(7 * 200, failures.get());
+    }
+
+    @Test
+    void racingCreatesOfOneType_letExactlyOneWin() throws Exception {
+        Database db = new Database();
+        AtomicInteger created = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(() -> {
+                try {
+                    db.createType("Shared");
+                    created.incrementAndGet();
+                } catch (JsonicException expected) {
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+        assertEquals(1, created.get());
+        assertNotNull(db.getType("shared"));
+    }
+
+    @Test
+    void aTypeBeingCreated_isNeverSeenWithPartOfItsSchema() throws Exception {
+        Database db = new Database();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            for (int i = 0; i < 300; i++) create(db, "T" + i);
+            return null;
+        });
+        tasks.add(() -> {
+            for (int i = 0; i < 300; i++) {
+                DataType t;
+                while ((t = db.getType("t" + i)) == null) Thread.onSpinWait();
+                assertEquals(4, t.fields().size(), "T" + i);
+            }
+            return null;
+        });
+        runAll(tasks);
+    }
+
+    @Test
+    void concurrentDurableWriters_allSurviveAReopen(@TempDir Path dir) throws Exception {
+        CommandParser p = new CommandParser(new StatementCache());
+        Path log = dir.resolve("db.wal");
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            create(db, "A");
+            create(db, "B");
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int writer = t;
+                tasks.add(() -> {
+                    for (int i = writer; i < 400; i += 4) p.parse("insert " + (i % 2 == 0 ? "A" : "B") + " {\"id\":" + i + "}").execute(db);
+                    return null;
+                });
+            }
+            tasks.add(() -> {
+                for (int i = 0; i < 5; i++) db.checkpoint();
+                return null;
+            });
+            runAll(tasks);
+        }
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            assertEquals(200, db.getType("a").size());
+            assertEquals(200, db.getType("b").size());
+        }
+    }
+}
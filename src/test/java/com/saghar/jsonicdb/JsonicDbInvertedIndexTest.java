@@ -0,0 +1,56 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.parser.CommandParser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbInvertedIndexTest {
+
+    private static Database devDb(CommandParser p) {
+        Database db = new Database();
+        p.parse("create Dev {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true}," +
+                "\"skills\":{\"type\":\"arr_string\",\"index\":true}}").execute(db);
+        p.parse("insert Dev {\"id\":1,\"skills\":[\"Java\",\"C++\",\"Java\"]}").execute(db);
+        p.parse("insert Dev {\"id\":2,\"skills\":[\"Python\"]}").execute(db);
+        p.parse("insert Dev {\"id\":3,\"skills\":[\"Java\",\"Python\"]}").execute(db);
+        p.parse("insert Dev {\"id\":4}").execute(db);
+        return db;
+    }
+
+    @Test
+    void include_andOrCombinations_resolveThroughPostingLists() {
+        CommandParser p = new CommandParser();
+        Database db = devDb(p);
+        DataType dev = db.getType("dev");
+
+        assertArrayEquals(new int[]{0, 2}, new FilterParser().parse("skills include \"Java\"").candidates(dev));
+        assertArrayEquals(new int[]{2}, new FilterParser().parse("skills include \"Java\" AND skills include \"Python\"").candidates(dev));
+        assertArrayEquals(new int[]{0, 1, 2}, new FilterParser().parse("skills include \"C++\" OR skills include \"Python\"").candidates(dev));
+        assertArrayEquals(new int[0], new FilterParser().parse("skills include \"Rust\"").candidates(dev));
+
+        assertTrue(p.parse("search Dev (skills include \"Java\" AND skills include \"Python\")").execute(db).contains("Search results (1)"));
+        assertTrue(p.parse("search Dev ((skills include \"C++\" OR skills include \"Python\") AND id != 3)").execute(db)
+                .contains("Search results (2)"));
+    }
+
+    @Test
+    void invertedIndex_isMaintainedIncrementally() {
+        CommandParser p = new CommandParser();
+        Database db = devDb(p);
+        DataType dev = db.getType("dev");
+
+        p.parse("update Dev (id = 2) {\"skills\":[\"Go\"]}").execute(db);
+        assertArrayEquals(new int[]{2}, new FilterParser().parse("skills include \"Python\"").candidates(dev));
+        assertArrayEquals(new int[]{1}, new FilterParser().parse("skills include \"Go\"").candidates(dev));
+
+        p.parse("delete Dev (skills include \"Java\")").execute(db);
+        assertArrayEquals(new int[0], new FilterParser().parse("skills include \"Java\"").candidates(dev));
+        // the remaining rows were compacted to slots 0..1
+        assertArrayEquals(new int[]{0}, new FilterParser().parse("skills include \"Go\"").candidates(dev));
+        assertTrue(p.parse("search Dev (skills include \"Go\")").execute(db).contains("Search results (1)"));
+    }
+}
@@ -0,0 +1,160 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.json.*;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbJsonReaderTest {
+
+    private static final String[] DOCS = {
+            "{\"id\":1,\"name\":\"Saghar\",\"age\":-40,\"ok\":true,\"none\":null}",
+            "  [1, 2.5, -0.001, 1e3, 6.02E23, [], {}, [[\"x\"]]]  ",
+            "{\"s\":\"tab\\tquote\\\" slash\\/ \\u00e9 \\ud83d\\ude00\",\"utf8\":\"héllo wörld 😀 数据\"}",
+            "{bare_key: \"v\", \"nested\": {\"a\": [true, false, {\"b\": null}]}}",
+            "\"just a string\"",
+            "12345678901234567",
+    };
+
+    // rebuilds the tree the pull events describe, with numbers kept as written
+    private static JsonValue tree(JsonReader r) {
+        return switch (r.token()) {
+            case START_OBJECT -> {
+                Map<String, JsonValue> map = new LinkedHashMap<>();
+                while (r.next() == JsonReader.Token.FIELD_NAME) {
+                    String key = r.string();
+                    r.next();
+                    map.put(key, tree(r));
+                }
+                yield new JsonObject(map);
+            }
+            case START_ARRAY -> {
+                List<JsonValue> items = new ArrayList<>();
+                while (r.next() != JsonReader.Token.END_ARRAY) items.add(tree(r));
+                yield new JsonArray(items);
+            }
+            case STRING -> new JsonString(r.string());
+            case NUMBER -> new JsonNumber(r.numberText());
+            case TRUE -> new JsonBoolean(true);
+            case FALSE -> new JsonBoolean(false);
+            case NULL -> JsonNull.INSTANCE;
+            default -> throw new AssertionError(r.token());
+        };
+    }
+
+    private static List<String> all(JsonReader r) {
+        List<String> out = new ArrayList<>();
+        while (r.next() != null) out.add(render(tree(r)));
+        return out;
+    }
+
+    // a canonical text form, since objects and arrays compare by identity
+    private static String render(JsonValue v) {
+        if (v instanceof JsonObject o) {
+            StringBuilder sb = new StringBuilder("{");
+            o.entries().forEach((k, x) -> sb.append(k).append('=').append(render(x)).append(';'));
+            return sb.append('}').toString();
+        }
+        if (v instanceof JsonArray a) return a.items().stream().map(JsonicDbJsonReaderTest::render).toList().toString();
+        return v.toString();
+    }
+
+    // hands out at most n bytes per read, to split tokens across buffer refills
+    private static InputStream trickle(byte[] data, int n) {
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, n));
+            }
+        };
+    }
+
+    @Test
+    void events_describeTheSameTreeAsJsonParser_forEveryInputKind() {
+        for (String doc : DOCS) {
+            List<String> expected = List.of(render(JsonParser.parse(doc)));
+            byte[] utf8 = doc.getBytes(StandardCharsets.UTF_8);
+            assertEquals(expected, all(new JsonReader(utf8)), doc);
+            assertEquals(expected, all(new JsonReader(ByteBuffer.wrap(utf8))), doc);
+            ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length).put(utf8).flip();
+            assertEquals(expected, all(new JsonReader(direct)), doc);
+            for (int n = 1; n <= 7; n++) {
+                assertEquals(expected, all(new JsonReader(trickle(utf8, n), new byte[n])), doc + " / " + n);
+            }
+        }
+    }
+
+    @Test
+    void consecutiveTopLevelValues_areReadInTurn() {
+        String ndjson = DOCS[0] + "\n" + DOCS[3] + "\r\n\n" + DOCS[1] + "\n";
+        List<String> expected = List.of(render(JsonParser.parse(DOCS[0])), render(JsonParser.parse(DOCS[3])), render(JsonParser.parse(DOCS[1])));
+        assertEquals(expected, all(new JsonReader(trickle(ndjson.getBytes(StandardCharsets.UTF_8), 3), new byte[5])));
+
+        JsonReader r = new JsonReader(ndjson.getBytes(StandardCharsets.UTF_8));
+        assertEquals(JsonReader.Token.START_OBJECT, r.next());
+        r.skipValue();
+        assertEquals(JsonReader.Token.START_OBJECT, r.next());
+        assertEquals(JsonReader.Token.FIELD_NAME, r.next());
+        assertTrue(r.stringEquals("bare_key"));
+        assertFalse(r.stringEquals("bare_kez"));
+    }
+
+    @Test
+    void numbers_decodeInPlace_likeTheJdk() {
+        Random rnd = new Random(3);
+        StringBuilder sb = new StringBuilder("[");
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            String t = switch (i % 5) {
+                case 0 -> Double.toString(rnd.nextDouble() * Math.pow(10, rnd.nextInt(40) - 20));
+                case 1 -> Double.toString(Double.longBitsToDouble(rnd.nextLong() & 0x7FEFFFFFFFFFFFFFL));
+                case 2 -> Long.toString(rnd.nextLong());
+                case 3 -> String.format("%.3f", rnd.nextGaussian() * 1000);
+                default -> rnd.nextInt(1000) + "." + rnd.nextInt(1000) + "e" + (rnd.nextInt(60) - 30);
+            };
+            texts.add(t);
+            sb.append(i == 0 ? "" : ",").append(t);
+        }
+        JsonReader r = new JsonReader(sb.append(']').toString().getBytes(StandardCharsets.UTF_8));
+        r.next();
+        for (String t : texts) {
+            assertEquals(JsonReader.Token.NUMBER, r.next());
+            assertEquals(Double.parseDouble(t), r.doubleValue(), t);
+            if (r.isIntegral()) assertEquals(Long.parseLong(t), r.longValue(), t);
+        }
+        assertEquals(JsonReader.Token.END_ARRAY, r.next());
+        assertNull(r.next());
+
+        JsonReader big = new JsonReader("[9223372036854775807, -9223372036854775808, 9223372036854775808, 2147483648, -0.0]".getBytes());
+        big.next();
+        big.next();
+        assertEquals(Long.MAX_VALUE, big.longValue());
+        big.next();
+        assertEquals(Long.MIN_VALUE, big.longValue());
+        big.next();
+        assertThrows(JsonicException.class, big::longValue);
+        big.next();
+        assertThrows(JsonicException.class, big::intValue);
+        big.next();
+        assertEquals(-0.0, big.doubleValue());
+    }
+
+    @Test
+    void malformedInput_isRejected_withItsPosition() {
+        for (String bad : new String[]{"{\"a\" 1}", "[1 2]", "{\"a\":}", "[1,]", "\"open", "tru", "-", "1.", "1e", "{\"a\":1", "[\"\\x\"]"}) {
+            JsonicException ex = assertThrows(JsonicException.class, () -> all(new JsonReader(bad.getBytes(StandardCharsets.UTF_8))), bad);
+            assertTrue(ex.getMessage().startsWith("Invalid JSON at byte "), ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.json.*;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbJsonTapeTest {
+
+    private static final String[] DOCS = {
+            "{\"id\":1,\"name\":\"Saghar\",\"age\":-40,\"ok\":true,\"none\":null}",
+            "  [1, 2.5, -0.001, 1e3, 6.02E23, [], {}, [[\"x\"]]]  ",
+            "{\"s\":\"tab\\tquote\\\" slash\\/ \\u00e9 \\ud83d\\ude00\",\"utf8\":\"héllo wörld 😀 数据\"}",
+            "{bare_key: \"v\", \"nested\": {\"a\": [true, false, {\"b\": null}]}, \"empty\": {}}",
+            "{\"dup\": 1, \"other\": 2, \"dup\": 3}",
+            "\"just a string\"",
+            "12345678901234567",
+            "[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[1]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]]",
+    };
+
+    // a canonical text form, since objects and arrays compare by identity
+    private static String render(JsonValue v) {
+        if (v instanceof JsonObject o) {
+            StringBuilder sb = new StringBuilder("{");
+            o.entries().forEach((k, x) -> sb.append(k).append('=').append(render(x)).append(';'));
+            return sb.append('}').toString();
+        }
+        if (v instanceof JsonArray a) return a.items().stream().map(JsonicDbJsonTapeTest::render).toList().toString();
+        return v.toString();
+    }
+
+    @Test
+    void tapeViews_describeTheSameTreeAsJsonParser() {
+        for (String doc : DOCS) {
+            assertEquals(render(JsonParser.parse(doc)), render(JsonTape.parse(doc)), doc);
+        }
+    }
+
+    @Test
+    void objectLookups_readTheTapeInPlace() {
+        JsonObject o = (JsonObject) JsonTape.parse(DOCS[3]);
+        assertEquals(new JsonString("v"), o.get("bare_key"));
+        assertNull(o.get("bare_kez"));
+        JsonArray a = (JsonArray) ((JsonObject) o.get("nested")).get("a");
+        assertEquals(List.of(new JsonBoolean(true), new JsonBoolean(false)), a.items().subList(0, 2));
+        assertEquals(JsonNull.INSTANCE, ((JsonObject) a.items().get(2)).get("b"));
+        assertTrue(((JsonObject) o.get("empty")).entries().isEmpty());
+
+        // the last of duplicate keys wins, as with a map
+        JsonObject dup = (JsonObject) JsonTape.parse(DOCS[4]);
+        assertEquals(new JsonNumber("3"), dup.get("dup"));
+        assertEquals(List.of("dup", "other"), List.copyOf(dup.entries().keySet()));
+        assertEquals(new JsonNumber("3"), dup.get("dup"));
+
+        JsonObject escaped = (JsonObject) JsonTape.parse(DOCS[2]);
+        assertEquals(new JsonString("héllo wörld 😀 数据"), escaped.get("utf8"));
+        assertEquals(new JsonString("tab\tquote\" slash/ é 😀"), escaped.get("s"));
+        assertEquals(new JsonNumber("1"), ((JsonObject) JsonTape.parse("{\"k\\u0065y\":1}")).get("key"));
+    }
+
+    @Test
+    void malformedInput_isRejected_withItsPosition() {
+        for (String bad : new String[]{"{\"a\" 1}", "[1 2]", "{\"a\":}", "[1,]", "{\"a\":1,}", "\"open", "tru", "-", "1.", "1e",
+                "{\"a\":1", "[\"\\x\"]", "[1]]", "{} {}", "", "[\"\\u12\"]", "{,}"}) {
+            JsonicException ex = assertThrows(JsonicException.class, () -> JsonTape.parse(bad), bad);
+            assertTrue(ex.getMessage().startsWith("Invalid JSON at byte "), ex.getMessage());
+        }
+    }
+
+    @Test
+    void createPayloads_parseThroughTheTape() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        p.parse("create P {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true},\"n\\u0061me\":{type:\"string\"}}").execute(db);
+        p.parse("insert P {\"id\":1,\"name\":\"x\"}").execute(db);
+        assertTrue(p.parse("search P (id = 1)").execute(db).contains("| x "));
+        assertThrows(JsonicException.class, () -> p.parse("create Q {\"id\":{\"type\":\"int\"}").execute(db));
+    }
+}
@@ -0,0 +1,88 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.ScanSettings;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbLoadTest {
+
+    private static Database create(StorageMode mode, int threads) {
+        Database db = new Database(mode);
+        CommandParser p = new CommandParser();
+        db.setScanSettings(new ScanSettings(threads, ScanSettings.DEFAULT_THRESHOLD));
+        p.parse("create Item {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true},\"name\":{\"type\":\"string\"},"
+                + "\"at\":{\"type\":\"time\"},\"tags\":{\"type\":\"arr_string\"}}").execute(db);
+        return db;
+    }
+
+    private static Path ndjson(Path dir, int rows, String badLine, int badAt) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            if (i == badAt) sb.append(badLine).append('\n');
+            else sb.append("{\"id\":").append(i).append(",\"name\":\"n").append(i % 9)
+                    .append("\",\"at\":\"2024-01-01T00:00:00\",\"tags\":[\"a\"]}\n");
+            if (i % 1000 == 0) sb.append('\n'); // blank lines are skipped
+        }
+        Path file = dir.resolve("items.ndjson");
+        Files.writeString(file, sb);
+        return file;
+    }
+
+    @Test
+    void load_insertsEveryLine_inFileOrder(@TempDir Path dir) throws IOException {
+        CommandParser p = new CommandParser();
+        Path file = ndjson(dir, 10_000, null, -1);
+        for (StorageMode mode : StorageMode.values()) {
+            for (int threads : new int[]{1, 4}) {
+                Database db = create(mode, threads);
+                assertEquals("Loaded 10000 instances into 'Item'.", p.parse("load Item from '" + file + "'").execute(db));
+                Database expected = create(mode, 1);
+                for (int i = 0; i < 10_000; i++) {
+                    p.parse("insert Item {\"id\":" + i + ",\"name\":\"n" + (i % 9) + "\",\"at\":\"2024-01-01T00:00:00\",\"tags\":[\"a\"]}").execute(expected);
+                }
+                assertEquals(p.parse("search Item (name = \"n4\")").execute(expected), p.parse("search Item (name = \"n4\")").execute(db));
+                assertEquals(p.parse("search Item order by id desc limit 3").execute(expected), p.parse("search Item order by id desc limit 3").execute(db));
+            }
+        }
+    }
+
+    @Test
+    void badLine_stopsTheLoad_keepingEarlierChunks(@TempDir Path dir) throws IOException {
+        CommandParser p = new CommandParser();
+        Path file = ndjson(dir, 10_000, "{\"id\":\"oops\"}", 9_000);
+        Database db = create(StorageMode.COLUMNAR, 4);
+        JsonicException ex = assertThrows(JsonicException.class, () -> p.parse("load Item from \"" + file + "\"").execute(db));
+        assertTrue(ex.getMessage().contains("line 9010"), ex.getMessage());
+        // whole chunks only: the rows before the chunk holding the bad line, and nothing after it
+        int size = db.getType("item").size();
+        assertTrue(size > 0 && size < 9_000, "loaded " + size);
+        assertTrue(p.parse("search Item [id] order by id desc limit 1").execute(db).contains("| " + (size - 1) + " "));
+
+        Database dup = create(StorageMode.ROW, 2);
+        p.parse("insert Item {\"id\":5000}").execute(dup);
+        assertThrows(JsonicException.class, () -> p.parse("load Item from '" + ndjson(dir, 6000, null, -1) + "'").execute(dup));
+        int loaded = dup.getType("item").size() - 1;
+        assertTrue(loaded > 0 && loaded < 5000, "loaded " + loaded);
+        assertTrue(p.parse("search Item [id] (id < 5000) order by id desc limit 1").execute(dup).contains("| " + (loaded - 1) + " "));
+    }
+
+    @Test
+    void missingFileOrBadSyntax_areRejected(@TempDir Path dir) {
+        Database db = create(StorageMode.ROW, 1);
+        CommandParser p = new CommandParser();
+        assertThrows(JsonicException.class, () -> p.parse("load Item from '" + dir.resolve("nope") + "'").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("load Item '" + dir + "'").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("load Nope from 'x'").execute(db));
+        assertEquals(0, db.getType("item").size());
+    }
+}
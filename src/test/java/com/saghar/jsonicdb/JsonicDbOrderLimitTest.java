@@ -0,0 +1,105 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.ReadView;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.filter.Filter;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.filter.QueryExecutor;
+import com.saghar.jsonicdb.filter.SearchWindow;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbOrderLimitTest {
+
+    private static Database populate(StorageMode mode, boolean rangeIndex) {
+        Database db = new Database(mode);
+        CommandParser p = new CommandParser();
+        p.parse("create Item {\"id\":{\"type\":\"int\",\"required\":true},\"score\":{\"type\":\"int\""
+                + (rangeIndex ? ",\"index\":\"range\"" : "") + "},\"name\":{\"type\":\"string\"}}").execute(db);
+        DataType t = db.getType("item");
+        Random rnd = new Random(7);
+        for (int i = 0; i < 2_000; i++) t.insert(Map.of("id", i, "score", rnd.nextInt(100), "name", "n" + rnd.nextInt(50)));
+        p.parse("delete Item (id < 40)").execute(db);
+        return db;
+    }
+
+    // the window computed the slow way: every match, fully sorted by (value, slot)
+    private static int[] expected(DataType t, Filter filter, String field, boolean desc, int offset, int limit) {
+        int c = t.column(field);
+        List<Integer> slots = new ArrayList<>();
+        for (int s : QueryExecutor.matchingSlots(t, filter)) slots.add(s);
+        Comparator<Integer> cmp = Comparator.<Integer, Comparable<Object>>comparing(s -> (Comparable<Object>) t.store().get(s, c))
+                .thenComparing(s -> s);
+        slots.sort(desc ? cmp.reversed() : cmp);
+        return slots.stream().skip(offset).limit(limit).mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    void orderedWindows_matchAFullSort_withAndWithoutARangeIndex() {
+        for (StorageMode mode : StorageMode.values()) {
+            for (boolean indexed : new boolean[]{false, true}) {
+                DataType t = populate(mode, indexed).getType("item");
+                for (String expr : new String[]{"id > 100", "name = \"n3\"", "score >= 0"}) {
+                    Filter f = new FilterParser().parse(expr);
+                    for (String field : new String[]{"score", "name"}) {
+                        for (boolean desc : new boolean[]{false, true}) {
+                            for (int[] w : new int[][]{{0, 10}, {5, 7}, {0, Integer.MAX_VALUE}, {3000, 5}}) {
+                                try (ReadView view = t.openView()) {
+                                    int[] got = QueryExecutor.matchingSlots(view, f, new SearchWindow(field, desc, w[0], w[1]));
+                                    assertArrayEquals(expected(t, f, field, desc, w[0], w[1]), got, mode + " " + expr + " " + field + " " + desc);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void limitWithoutOrder_keepsSlotOrder() {
+        DataType t = populate(StorageMode.COLUMNAR, false).getType("item");
+        Filter f = new FilterParser().parse("score < 50");
+        int[] all = QueryExecutor.matchingSlots(t, f);
+        try (ReadView view = t.openView()) {
+            assertArrayEquals(java.util.Arrays.copyOfRange(all, 10, 30), QueryExecutor.matchingSlots(view, f, new SearchWindow(null, false, 10, 20)));
+        }
+    }
+
+    @Test
+    void searchCommand_parsesOrderLimitAndOffset() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        p.parse("create P {\"id\":{\"type\":\"int\",\"required\":true},\"age\":{\"type\":\"int\"}}").execute(db);
+        for (int i = 1; i <= 5; i++) p.parse("insert P {\"id\":" + i + ",\"age\":" + (i * 7 % 5) + "}").execute(db);
+
+        String out = p.parse("search P (id > 1) order by age desc limit 2 offset 1").execute(db);
+        assertTrue(out.startsWith("Search results (2):"), out);
+        String[] lines = out.split("\n");
+        assertTrue(lines[3].startsWith("| 4 "), out);
+        assertTrue(lines[4].startsWith("| 3 "), out);
+
+        assertTrue(p.parse("search P limit 3").execute(db).startsWith("Search results (3):"));
+        assertTrue(p.parse("search P OFFSET 4 LIMIT 9").execute(db).startsWith("Search results (1):"));
+        assertEquals("No results found.", p.parse("search P limit 0").execute(db));
+        assertTrue(p.parse("search P order by age").execute(db).startsWith("Search results (5):"));
+
+        assertThrows(JsonicException.class, () -> p.parse("search P order age").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("search P limit -1").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("search P limit 2 limit 3").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("search P limit x").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("search P order by missing").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("search P id = 1").execute(db));
+    }
+}
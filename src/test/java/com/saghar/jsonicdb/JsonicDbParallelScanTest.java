@@ -0,0 +1,72 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.ScanSettings;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.filter.QueryExecutor;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbParallelScanTest {
+
+    private static final int ROWS = 30_000;
+
+    private static Database populate(StorageMode mode, ScanSettings settings) {
+        Database db = new Database(mode);
+        CommandParser p = new CommandParser();
+        db.setScanSettings(settings);
+        p.parse("create Item {\"id\":{\"type\":\"int\",\"required\":true},\"name\":{\"type\":\"string\"},\"price\":{\"type\":\"double\"}}").execute(db);
+        DataType t = db.getType("item");
+        for (int i = 0; i < ROWS; i++) t.insert(Map.of("id", i, "name", "n" + (i % 13), "price", i * 0.5));
+        return db;
+    }
+
+    private static String session(Database db) {
+        CommandParser p = new CommandParser();
+        StringBuilder sb = new StringBuilder();
+        sb.append(p.parse("search Item (name = \"n7\" AND price > 3000.0)").execute(db));
+        sb.append(p.parse("delete Item (id > 100 AND name = \"n3\" OR price < 10.0)").execute(db));
+        sb.append(p.parse("update Item (name = \"n5\") {\"price\":-1.0}").execute(db));
+        sb.append(p.parse("search Item (price < 0.0 OR name = \"n3\")").execute(db));
+        sb.append(db.getType("item").size());
+        return sb.toString();
+    }
+
+    @Test
+    void parallelScans_matchTheSequentialResults_inSlotOrder() {
+        for (StorageMode mode : StorageMode.values()) {
+            String sequential = session(populate(mode, ScanSettings.SEQUENTIAL));
+            String parallel = session(populate(mode, new ScanSettings(4, 0)));
+            assertEquals(sequential, parallel);
+
+            DataType t = populate(mode, new ScanSettings(3, 1000)).getType("item");
+            int[] slots = QueryExecutor.matchingSlots(t, new FilterParser().parse("name = \"n1\""));
+            assertEquals((ROWS + 11) / 13, slots.length);
+            for (int i = 1; i < slots.length; i++) assertTrue(slots[i - 1] < slots[i]);
+        }
+    }
+
+    @Test
+    void failureInAChunk_reachesTheCaller() {
+        ScanSettings settings = new ScanSettings(4, 0);
+        assertThrows(JsonicException.class, () -> settings.scan(ROWS, slot -> {
+            if (slot == ROWS - 7) throw new JsonicException("boom");
+            return true;
+        }));
+        assertEquals(ROWS, settings.scan(ROWS, slot -> true).length);
+        assertEquals(0, settings.scan(0, slot -> true).length);
+    }
+
+    @Test
+    void invalidSettings_areRejected() {
+        assertThrows(JsonicException.class, () -> new ScanSettings(0, 100));
+        assertThrows(JsonicException.class, () -> new ScanSettings(4, -1));
+    }
+}
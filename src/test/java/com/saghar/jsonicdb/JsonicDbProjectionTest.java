@@ -0,0 +1,49 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbProjectionTest {
+
+    private static Database people(StorageMode mode) {
+        Database db = new Database(mode);
+        CommandParser p = new CommandParser();
+        p.parse("create Person {\"id\":{\"type\":\"int\",\"required\":true},\"name\":{\"type\":\"string\"},"
+                + "\"age\":{\"type\":\"int\"},\"description_of_the_person\":{\"type\":\"string\"}}").execute(db);
+        p.parse("insert Person {\"id\":1,\"name\":\"Sara\",\"age\":30,\"description_of_the_person\":\"x\"}").execute(db);
+        p.parse("insert Person {\"id\":2,\"name\":\"Ali\",\"age\":40,\"description_of_the_person\":\"y\"}").execute(db);
+        return db;
+    }
+
+    @Test
+    void projection_printsOnlyTheListedFields_inTheirOrder() {
+        CommandParser p = new CommandParser();
+        for (StorageMode mode : StorageMode.values()) {
+            Database db = people(mode);
+            String out = p.parse("search Person [age, name] (id = 2)").execute(db);
+            String[] lines = out.split("\n");
+            assertEquals("Search results (1):", lines[0]);
+            // the width no longer follows the long field that was left out
+            assertEquals("| age        | name       | ", lines[1]);
+            assertEquals("| 40         | Ali        | ", lines[3]);
+
+            String all = p.parse("search Person [NAME] order by age desc").execute(db);
+            assertTrue(all.contains("| Ali        | \n| Sara       | "), all);
+            assertTrue(p.parse("search Person (id = 1)").execute(db).contains("description_of_the_person"));
+        }
+    }
+
+    @Test
+    void badProjections_areRejected() {
+        Database db = people(StorageMode.ROW);
+        CommandParser p = new CommandParser();
+        assertThrows(JsonicException.class, () -> p.parse("search Person [nope] (id = 1)").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("search Person [name (id = 1)").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("search Person [name,] (id = 1)").execute(db));
+    }
+}
@@ -0,0 +1,93 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.filter.AccessPath;
+import com.saghar.jsonicdb.filter.Filter;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.filter.QueryExecutor;
+import com.saghar.jsonicdb.filter.QueryPlan;
+import com.saghar.jsonicdb.filter.QueryPlanner;
+import com.saghar.jsonicdb.parser.CommandParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbQueryPlannerTest {
+
+    private static DataType orders(Database db, CommandParser p) {
+        p.parse("create Order {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true}," +
+                "\"status\":{\"type\":\"string\",\"index\":true}," +
+                "\"total\":{\"type\":\"int\",\"index\":\"range\"}," +
+                "\"tags\":{\"type\":\"arr_string\",\"index\":true}," +
+                "\"note\":{\"type\":\"string\"}}").execute(db);
+        Random rnd = new Random(7);
+        String[] statuses = {"open", "open", "open", "paid", "shipped", "void"};
+        String[] tags = {"gift", "bulk", "vip", "promo"};
+        for (int i = 0; i < 500; i++) {
+            p.parse("insert Order {\"id\":" + i + ",\"status\":\"" + statuses[rnd.nextInt(statuses.length)] + "\"," +
+                    "\"total\":" + rnd.nextInt(1000) + ",\"tags\":[\"" + tags[rnd.nextInt(4)] + "\"]," +
+                    "\"note\":\"" + (i % 10 == 0 ? "rush" : "") + "\"}").execute(db);
+        }
+        return db.getType("order");
+    }
+
+    private static QueryPlan plan(DataType t, String filter) {
+        return QueryPlanner.plan(t, new FilterParser().parse(filter));
+    }
+
+    @Test
+    void planner_picksTheMostSelectiveIndex_andKeepsTheRestAsResidual() {
+        Database db = new Database();
+        DataType t = orders(db, new CommandParser());
+
+        QueryPlan byId = plan(t, "status = \"open\" AND id = 42 AND note = \"rush\"");
+        assertInstanceOf(AccessPath.UniqueLookup.class, byId.access());
+        assertEquals(1, byId.estimatedRows());
+        assertNotNull(byId.residual());
+
+        QueryPlan range = plan(t, "total >= 100 AND total < 110 AND status = \"open\"");
+        assertInstanceOf(AccessPath.RangeScan.class, range.access());
+        assertTrue(range.explain().startsWith("RangeScan(total in [100, 110))"), range.explain());
+
+        QueryPlan tags = plan(t, "tags include \"vip\" OR tags include \"gift\"");
+        assertInstanceOf(AccessPath.Union.class, tags.access());
+        assertNull(tags.residual());
+
+        // an unindexed disjunct forces a scan; conjuncts are reordered most selective first
+        QueryPlan scan = plan(t, "note != \"\" AND (status = \"void\" OR note = \"rush\")");
+        assertInstanceOf(AccessPath.FullScan.class, scan.access());
+        QueryPlan reordered = plan(t, "note != \"x\" AND note = \"rush\"");
+        assertEquals("(note = \"rush\" AND note != \"x\")", reordered.residual().toString());
+
+        // an index that would return (nearly) everything is not worth it
+        assertInstanceOf(AccessPath.FullScan.class, plan(t, "total >= 0").access());
+    }
+
+    @Test
+    void everyPlan_returnsTheSameRowsAsAFullScan() {
+        Database db = new Database();
+        DataType t = orders(db, new CommandParser());
+        String[] filters = {
+                "id = 7",
+                "id = 7 OR id = 9 OR status = \"void\"",
+                "status = \"paid\" AND total > 500",
+                "total > 200 AND total <= 260 AND total != 230",
+                "500 > total AND tags include \"promo\"",
+                "tags include \"vip\" AND tags include \"bulk\"",
+                "(tags include \"vip\" OR status = \"void\") AND note = \"rush\"",
+                "status = \"open\" AND (total < 50 OR total > 950)",
+                "note = \"rush\" OR total = 3",
+        };
+        for (String f : filters) {
+            Filter filter = new FilterParser().parse(f);
+            int expected = 0;
+            for (int slot = 0; slot < t.size(); slot++) if (filter.test(t, t.record(slot))) expected++;
+            int[] got = QueryExecutor.matchingSlots(t, filter);
+            assertEquals(expected, got.length, f + " via " + QueryPlanner.plan(t, filter).explain());
+            for (int i = 1; i < got.length; i++) assertTrue(got[i - 1] < got[i], f);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.Durability;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbRangeIndexTest {
+
+    @Test
+    void timeRange_visitsOnlyTheMatchingKeys() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        p.parse("create Event {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true}," +
+                "\"at\":{\"type\":\"time\",\"index\":\"range\"}}").execute(db);
+        for (int d = 1; d <= 28; d++) {
+            p.parse("insert Event {\"id\":" + d + ",\"at\":\"2025-02-" + String.format("%02d", d) + "T09:00:00\"}").execute(db);
+        }
+        DataType ev = db.getType("event");
+
+        int[] after = new FilterParser().parse("at > \"2025-02-25T00:00:00\"").candidates(ev);
+        assertArrayEquals(new int[]{24, 25, 26, 27}, after);
+        // literal on the left flips the operator
+        assertEquals(3, new FilterParser().parse("\"2025-02-04T09:00:00\" > at").candidates(ev).length);
+        assertEquals(1, new FilterParser().parse("at = \"2025-02-10T09:00:00\"").candidates(ev).length);
+
+        assertTrue(p.parse("search Event (at >= \"2025-02-25T09:00:00\")").execute(db).contains("Search results (4)"));
+        assertTrue(p.parse("search Event (at > \"2025-02-10T00:00:00\" AND at < \"2025-02-12T00:00:00\")").execute(db)
+                .contains("Search results (2)"));
+    }
+
+    @Test
+    void rangeIndex_agreesWithFullScan_throughSplitsUpdatesAndDeletes() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        p.parse("create M {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true}," +
+                "\"v\":{\"type\":\"int\",\"index\":\"range\"},\"w\":{\"type\":\"double\",\"index\":\"range\"}}").execute(db);
+        Random rnd = new Random(42);
+        for (int i = 0; i < 3000; i++) {
+            p.parse("insert M {\"id\":" + i + ",\"v\":" + (rnd.nextInt(400) - 200) + ",\"w\":" + (rnd.nextInt(2000) - 1000) / 10.0 + "}").execute(db);
+        }
+        p.parse("update M (v > 150) {\"v\":-500}").execute(db);
+        p.parse("delete M (w < -90.0)").execute(db);
+        DataType m = db.getType("m");
+
+        for (String f : new String[]{"v < -150", "v >= 0", "v = -500", "v <= 17", "w > -0.5", "w <= -12.3", "w = 0.0"}) {
+            int[] viaIndex = new FilterParser().parse(f).candidates(m);
+            assertNotNull(viaIndex, f);
+            int expected = 0;
+            var filter = new FilterParser().parse(f);
+            for (int slot = 0; slot < m.slotCount(); slot++) if (m.isLive(slot) && filter.test(m, m.record(slot))) expected++;
+            assertEquals(expected, viaIndex.length, f);
+            for (int slot : viaIndex) assertTrue(filter.test(m, m.record(slot)), f);
+        }
+    }
+
+    @Test
+    void rangeIndex_isRejectedOnNonOrderedTypes() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        assertThrows(JsonicException.class, () -> p.parse("create S {\"name\":{\"type\":\"string\",\"index\":\"range\"}}").execute(db));
+    }
+
+    @Test
+    void badSchema_leavesNoTypeBehind_evenAfterReopening(@TempDir Path dir) {
+        Path log = dir.resolve("db.wal");
+        CommandParser p = new CommandParser();
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            assertThrows(JsonicException.class, () -> p.parse("create S {\"id\":{\"type\":\"int\"},\"name\":{\"type\":\"string\",\"index\":\"range\"}}").execute(db));
+            assertThrows(JsonicException.class, () -> p.parse("create S {\"id\":{\"type\":\"int\"},\"tags\":{\"type\":\"nope\"}}").execute(db));
+            assertThrows(JsonicException.class, () -> p.parse("create S {\"id\":{\"type\":\"int\"},\"ID\":{\"type\":\"int\"}}").execute(db));
+            assertNull(db.getType("s"));
+        }
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            assertNull(db.getType("s"));
+            assertEquals("Type 'S' created (1 fields).", p.parse("create S {\"id\":{\"type\":\"int\",\"index\":\"range\"}}").execute(db));
+        }
+    }
+}
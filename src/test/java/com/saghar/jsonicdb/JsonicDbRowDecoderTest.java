@@ -0,0 +1,120 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.FieldDef;
+import com.saghar.jsonicdb.core.RowDecoder;
+import com.saghar.jsonicdb.core.ValueType;
+import com.saghar.jsonicdb.json.JsonReader;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbRowDecoderTest {
+
+    private static Object[] decode(DataType t, String json) {
+        return t.decoder().decode(new JsonReader(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void decodesTypedValues_byColumn() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        p.parse("create Ev {\"id\":{\"type\":\"int\"},\"score\":{\"type\":\"double\"},\"ok\":{\"type\":\"bool\"},"
+                + "\"name\":{\"type\":\"string\"},\"at\":{\"type\":\"time\"},\"tags\":{\"type\":\"arr_string\"}}").execute(db);
+        DataType t = db.getType("ev");
+
+        Object[] row = decode(t, "{\"TAGS\":[\"a\",\"é\"],\"Name\":\"x\\ny\",\"id\":-7,\"score\":2.5e1,\"ok\":true,"
+                + "\"at\":\"2024-02-03T04:05:06\"}");
+        assertArrayEquals(new Object[]{-7, 25.0, true, "x\ny", LocalDateTime.parse("2024-02-03T04:05:06"), List.of("a", "é")}, row);
+        // fields not mentioned stay null, for defaults on insert or to be left alone on update
+        assertArrayEquals(new Object[]{null, 3.0, null, null, null, null}, decode(t, "{score: 3}"));
+        assertNull(decode(t, "  "));
+
+        assertThrows(JsonicException.class, () -> decode(t, "{\"nope\":1}"));
+        assertThrows(JsonicException.class, () -> decode(t, "{\"id\":1.5}"));
+        assertThrows(JsonicException.class, () -> decode(t, "{\"id\":3000000000}"));
+        assertThrows(JsonicException.class, () -> decode(t, "{\"ok\":1}"));
+        assertThrows(JsonicException.class, () -> decode(t, "{\"at\":\"yesterday\"}"));
+        assertThrows(JsonicException.class, () -> decode(t, "{\"tags\":[\"a\",1]}"));
+        assertThrows(JsonicException.class, () -> decode(t, "{\"name\":null}"));
+        assertThrows(JsonicException.class, () -> decode(t, "[1]"));
+    }
+
+    @Test
+    void manyFields_eachFoundByItsName() {
+        DataType t = new DataType("Wide");
+        for (int i = 0; i < 300; i++) t.addField(new FieldDef("Field_" + i, ValueType.INT, false, false));
+        RowDecoder decoder = t.decoder();
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 299; i >= 0; i--) sb.append(i == 299 ? "" : ",").append("\"fIELD_").append(i).append("\":").append(i);
+        Object[] row = decoder.decode(new JsonReader(sb.append('}').toString().getBytes(StandardCharsets.UTF_8)));
+        for (int i = 0; i < 300; i++) assertEquals(i, row[i]);
+        assertThrows(JsonicException.class, () -> decode(t, "{\"field_300\":1}"));
+        assertThrows(JsonicException.class, () -> decode(t, "{\"field_\":1}"));
+    }
+
+    @Test
+    void namesWithEqualPolynomialHashes_getTheirOwnSlots() {
+        CommandParser p = new CommandParser();
+        // "aan" and "ac0" share h * 31 + c for every starting h
+        Database db = new Database();
+        p.parse("create P {\"aan\":{\"type\":\"int\"},\"ac0\":{\"type\":\"int\"}}").execute(db);
+        p.parse("insert P {\"aan\":1,\"ac0\":2}").execute(db);
+        assertTrue(p.parse("search P (ac0 = 2)").execute(db).startsWith("Search results (1):"));
+
+        // 64 names built from "an" and "c0", all equal under that polynomial
+        DataType t = new DataType("Same");
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < 64; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int b = 0; b < 6; b++) name.append((i >> b & 1) == 0 ? "an" : "c0");
+            t.addField(new FieldDef(name.toString(), ValueType.INT, false, false));
+            sb.append(i == 0 ? "" : ",").append('"').append(name).append("\":").append(i);
+        }
+        Object[] row = decode(t, sb.append('}').toString());
+        for (int i = 0; i < 64; i++) assertEquals(i, row[i]);
+        assertThrows(JsonicException.class, () -> decode(t, "{\"anananananc0c\":1}"));
+    }
+
+    @Test
+    void decoder_followsAddedFields() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        p.parse("create P {\"id\":{\"type\":\"int\",\"required\":true}}").execute(db);
+        DataType t = db.getType("p");
+        Object[] early = decode(t, "{\"id\":1}");
+        t.addField(new FieldDef("score", ValueType.INT, false, false));
+        assertEquals(2, t.decoder().columns());
+        assertArrayEquals(new Object[]{2, 9}, decode(t, "{\"id\":2,\"score\":9}"));
+
+        // a row decoded before the field was added is completed with its default
+        t.insertRow(early);
+        assertTrue(p.parse("search P (id = 1)").execute(db).contains("| 0 "));
+    }
+
+    @Test
+    void insertAndUpdate_goThroughTheDecoder() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        p.parse("create Acc {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true},\"owner\":{\"type\":\"string\",\"default\":\"none\"},"
+                + "\"tier\":{\"type\":\"string\"}}").execute(db);
+        p.parse("insert Acc {\"id\":1,\"tier\":\"gold\"}").execute(db);
+        p.parse("insert Acc [{\"id\":2,\"owner\":\"b\"},{\"ID\":3,\"tier\":\"gold\"}]").execute(db);
+        assertEquals("2 instances updated.", p.parse("update Acc (tier = \"gold\") {\"owner\":\"z\"}").execute(db));
+        assertTrue(p.parse("search Acc (owner = \"z\")").execute(db).startsWith("Search results (2):"));
+        assertTrue(p.parse("search Acc (id = 2)").execute(db).contains("| b "));
+
+        assertThrows(JsonicException.class, () -> p.parse("insert Acc {\"owner\":\"x\"}").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("insert Acc {\"id\":4} {\"id\":5}").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("update Acc (id = 1) {\"id\":2}").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("update Acc {\"owner\":\"x\",}").execute(db));
+        assertEquals(3, db.getType("acc").size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.filter.Filter;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbSecondaryIndexTest {
+
+    private static Database ticketDb(CommandParser p) {
+        Database db = new Database();
+        p.parse("create Ticket {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true}," +
+                        "\"status\":{\"type\":\"string\",\"index\":true}," +
+                        "\"prio\":{\"type\":\"int\",\"index\":true}," +
+                        "\"title\":{\"type\":\"string\"}}")
+                .execute(db);
+        for (int i = 1; i <= 30; i++) {
+            String status = i % 3 == 0 ? "closed" : "open";
+            p.parse("insert Ticket {\"id\":" + i + ",\"status\":\"" + status + "\",\"prio\":" + (i % 5) + "}").execute(db);
+        }
+        return db;
+    }
+
+    @Test
+    void equalityFilters_areAnsweredFromTheIndex() {
+        CommandParser p = new CommandParser();
+        Database db = ticketDb(p);
+        DataType t = db.getType("ticket");
+
+        Filter open = new FilterParser().parse("status = \"open\"");
+        assertArrayEquals(new int[]{0, 1, 3, 4}, java.util.Arrays.copyOf(open.candidates(t), 4));
+        assertEquals(20, open.candidates(t).length);
+
+        // an AND of two indexed predicates intersects their posting lists
+        Filter narrow = new FilterParser().parse("status = \"closed\" AND prio = 0");
+        assertEquals(2, narrow.candidates(t).length);
+        // with one indexed side, the other is re-checked per candidate
+        assertEquals(20, new FilterParser().parse("status = \"open\" AND title = \"\"").candidates(t).length);
+        assertNull(new FilterParser().parse("title = \"x\" OR prio = 1").candidates(t));
+        assertEquals(14, new FilterParser().parse("prio = 1 OR status = \"closed\"").candidates(t).length);
+
+        assertTrue(p.parse("search Ticket (status = \"open\")").execute(db).contains("Search results (20)"));
+        assertTrue(p.parse("search Ticket (status = \"closed\" AND prio = 0)").execute(db).contains("Search results (2)"));
+        assertTrue(p.parse("search Ticket (prio = 1 OR status = \"closed\")").execute(db).contains("Search results (14)"));
+    }
+
+    @Test
+    void index_staysInSync_acrossUpdateAndDelete() {
+        CommandParser p = new CommandParser();
+        Database db = ticketDb(p);
+        DataType t = db.getType("ticket");
+
+        assertEquals("20 instances updated.", p.parse("update Ticket (status = \"open\") {\"status\":\"triaged\"}").execute(db));
+        assertEquals(0, new FilterParser().parse("status = \"open\"").candidates(t).length);
+        assertEquals(20, new FilterParser().parse("status = \"triaged\"").candidates(t).length);
+
+        assertEquals("10 instances deleted.", p.parse("delete Ticket (status = \"closed\")").execute(db));
+        assertEquals(0, new FilterParser().parse("status = \"closed\"").candidates(t).length);
+        // slots were compacted: every posting must point at a live triaged row
+        assertEquals(20, t.lookup("status", "triaged").length);
+        for (int slot : t.lookup("status", "triaged")) {
+            assertEquals("triaged", t.record(slot).get("status"));
+        }
+        assertTrue(p.parse("search Ticket (prio = 0)").execute(db).contains("Search results (4)"));
+    }
+
+    @Test
+    void index_isRejectedForUnknownKinds() {
+        CommandParser p = new CommandParser();
+        Database db = new Database();
+        assertThrows(JsonicException.class, () -> p.parse("create X {\"a\":{\"type\":\"int\",\"index\":\"bogus\"}}").execute(db));
+        assertThrows(JsonicException.class, () -> p.parse("create Y {\"a\":{\"type\":\"int\",\"index\":\"inverted\"}}").execute(db));
+    }
+}
@@ -0,0 +1,123 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataRecord;
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbSetUpdateTest {
+
+    private static DataType accounts(Database db, CommandParser p) {
+        p.parse("create Account {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true}," +
+                "\"owner\":{\"type\":\"string\",\"required\":true},\"tier\":{\"type\":\"string\",\"index\":true}," +
+                "\"balance\":{\"type\":\"double\",\"index\":\"range\"},\"since\":{\"type\":\"time\"}}").execute(db);
+        for (int i = 1; i <= 6; i++) {
+            p.parse("insert Account {\"id\":" + i + ",\"owner\":\"o" + i + "\",\"tier\":\"" + (i <= 3 ? "gold" : "basic") + "\"," +
+                    "\"balance\":" + i * 100.0 + ",\"since\":\"2020-01-0" + i + "T00:00:00\"}").execute(db);
+        }
+        return db.getType("account");
+    }
+
+    @Test
+    void failingUpdates_leaveEveryRowUntouched() {
+        for (StorageMode mode : StorageMode.values()) {
+            Database db = new Database(mode);
+            CommandParser p = new CommandParser();
+            DataType t = accounts(db, p);
+            String before = p.parse("search Account").execute(db);
+
+            // two matched rows cannot both take one unique value
+            assertThrows(JsonicException.class, () -> p.parse("update Account (tier = \"gold\") {\"id\":42}").execute(db));
+            // another row already owns it
+            assertThrows(JsonicException.class, () -> p.parse("update Account (id = 1) {\"owner\":\"x\",\"id\":2}").execute(db));
+            // out of the storable time range: rejected before "owner" is written
+            assertThrows(JsonicException.class,
+                    () -> p.parse("update Account (tier = \"basic\") {\"owner\":\"x\",\"since\":\"2500-01-01T00:00:00\"}").execute(db));
+            Map<String, Object> clearOwner = new HashMap<>();
+            clearOwner.put("balance", 1.0);
+            clearOwner.put("owner", null);
+            assertThrows(JsonicException.class, () -> t.updateSlots(new int[]{0, 1}, clearOwner));
+
+            assertEquals(before, p.parse("search Account").execute(db), mode.name());
+            assertEquals(3, t.lookup("tier", "gold").length);
+        }
+    }
+
+    @Test
+    void update_keepsIndexesConsistent_whenOnlySomeRowsChange() {
+        Database db = new Database(StorageMode.COLUMNAR);
+        CommandParser p = new CommandParser();
+        DataType t = accounts(db, p);
+
+        // rows 1-3 already gold: only 4 and 5 change their tier entry
+        assertEquals("5 instances updated.", p.parse("update Account (id <= 5) {\"tier\":\"gold\",\"balance\":250.0}").execute(db));
+        assertEquals(5, t.lookup("tier", "gold").length);
+        assertEquals(1, t.lookup("tier", "basic").length);
+        assertTrue(p.parse("search Account (balance = 250.0)").execute(db).contains("Search results (5)"));
+        assertTrue(p.parse("search Account (balance > 250.0)").execute(db).contains("Search results (1)"));
+
+        // a row may keep its own unique value
+        assertEquals("1 instances updated.", p.parse("update Account (id = 6) {\"id\":6,\"owner\":\"six\"}").execute(db));
+        assertArrayEquals(new int[]{5}, t.lookup("id", 6));
+        assertEquals("0 instances updated.", p.parse("update Account (id = 99) {\"id\":1}").execute(db));
+    }
+
+    @Test
+    void recordPut_goesThroughTheIndexesAndConstraints() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        DataType t = accounts(db, p);
+        DataRecord r = t.records().get(3);
+
+        r.put("tier", "gold");
+        assertEquals(4, t.lookup("tier", "gold").length);
+        assertTrue(p.parse("search Account (tier = \"gold\" AND id = 4)").execute(db).contains("Search results (1)"));
+        assertThrows(JsonicException.class, () -> r.put("id", 1));
+        assertThrows(JsonicException.class, () -> r.put("owner", null));
+        assertThrows(JsonicException.class, () -> r.put("nope", 1));
+        assertEquals(4, r.get("id"));
+        assertEquals("o4", r.get("owner"));
+    }
+
+    @Test
+    void largeUpdate_onLowCardinalityIndexes_movesEveryPosting() {
+        for (StorageMode mode : StorageMode.values()) {
+            Database db = new Database(mode);
+            CommandParser p = new CommandParser();
+            p.parse("create Doc {\"id\":{\"type\":\"int\",\"unique\":true},\"kind\":{\"type\":\"string\",\"index\":true}," +
+                    "\"n\":{\"type\":\"int\",\"index\":\"range\"},\"tags\":{\"type\":\"arr_string\",\"index\":true}}").execute(db);
+            StringBuilder batch = new StringBuilder("insert Doc [");
+            for (int i = 0; i < 20_000; i++) {
+                batch.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"kind\":\"k").append(i % 4)
+                        .append("\",\"n\":").append(i % 10).append(",\"tags\":[\"t").append(i % 3).append("\"]}");
+            }
+            p.parse(batch.append(']').toString()).execute(db);
+            DataType t = db.getType("doc");
+
+            // k1 rows interleave with the k0 list they merge into; rows already k0 stay put
+            assertEquals("10000 instances updated.",
+                    p.parse("update Doc (kind = \"k0\" OR kind = \"k1\") {\"kind\":\"k0\",\"n\":42,\"tags\":[\"t1\",\"x\"]}").execute(db));
+            int[] k0 = t.lookup("kind", "k0");
+            assertEquals(10_000, k0.length, mode.name());
+            for (int i = 1; i < k0.length; i++) assertTrue(k0[i - 1] < k0[i]);
+            assertEquals(0, t.lookup("kind", "k1").length);
+            assertEquals(5_000, t.lookup("kind", "k2").length);
+            assertEquals(10_000, t.lookupElement("tags", "x").length);
+            // untouched rows (k2, k3) keep t0/t1/t2 in thirds; updated rows all hold t1
+            assertEquals(10_000 + 3_333, t.lookupElement("tags", "t1").length);
+            assertEquals(3_334, t.lookupElement("tags", "t0").length);
+            assertTrue(p.parse("search Doc (n = 42)").execute(db).contains("Search results (10000)"));
+            assertTrue(p.parse("search Doc (n < 10)").execute(db).contains("Search results (10000)"));
+            assertEquals(1, t.lookup("id", 4).length);
+            assertTrue(p.parse("search Doc (tags include \"t0\" AND kind = \"k0\")").execute(db).contains("No results found."));
+        }
+    }
+}
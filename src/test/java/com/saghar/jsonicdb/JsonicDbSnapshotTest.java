@@ -0,0 +1,123 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.Durability;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbSnapshotTest {
+
+    private static void populate(Database db, int from, int to) {
+        CommandParser p = new CommandParser();
+        for (int i = from; i < to; i++) {
+            p.parse("insert Item {\"id\":" + i + ",\"name\":\"n" + (i % 7) + "\",\"price\":" + i * 1.5 +
+                    ",\"at\":\"2024-03-01T10:00:" + String.format("%02d", i % 60) + "\",\"tags\":[\"t" + (i % 4) + "\",\"ü\"],\"ok\":" + (i % 3 == 0) + "}").execute(db);
+        }
+    }
+
+    private static void create(Database db) {
+        CommandParser p = new CommandParser();
+        p.parse("create Item {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true},\"name\":{\"type\":\"string\",\"index\":true}," +
+                "\"price\":{\"type\":\"double\",\"index\":\"range\"},\"at\":{\"type\":\"time\"},\"tags\":{\"type\":\"arr_string\",\"index\":true}," +
+                "\"ok\":{\"type\":\"bool\"}}").execute(db);
+    }
+
+    private static String dump(Database db) {
+        CommandParser p = new CommandParser();
+        return p.parse("search Item").execute(db) + p.parse("search Item (name = \"n3\" AND price < 200.0)").execute(db)
+                + p.parse("search Item (tags include \"t1\")").execute(db) + p.parse("search Item (id = 42)").execute(db)
+                + db.getType("item").slotCount() + "/" + db.getType("item").size();
+    }
+
+    @Test
+    void savedSnapshot_loadsBackIdentically_inBothStorageModes(@TempDir Path dir) {
+        CommandParser p = new CommandParser();
+        for (StorageMode mode : StorageMode.values()) {
+            Database db = new Database(mode);
+            create(db);
+            populate(db, 0, 300);
+            p.parse("update Item (price > 300.0) {\"name\":\"pricey\",\"ok\":true}").execute(db);
+            db.setCompactionThreshold(0.9);
+            p.parse("delete Item (id < 40)").execute(db); // tombstoned, not compacted
+            db.createType("Empty", StorageMode.COLUMNAR);
+
+            Path file = dir.resolve(mode + ".snap");
+            db.saveSnapshot(file);
+            Database loaded = Database.loadSnapshot(file);
+            assertEquals(dump(db), dump(loaded));
+            assertEquals(mode, loaded.getType("item").storage());
+            assertEquals(0, loaded.getType("empty").size());
+
+            // indexes are live again: unique checks and index lookups see the loaded rows
+            assertThrows(JsonicException.class, () -> p.parse("insert Item {\"id\":42}").execute(loaded));
+            p.parse("insert Item {\"id\":5,\"name\":\"back\"}").execute(loaded);
+            assertTrue(p.parse("search Item (id = 5)").execute(loaded).contains("Search results (1)"));
+            assertTrue(p.parse("search Item (name = \"pricey\")").execute(loaded).contains("Search results (99)"));
+        }
+    }
+
+    @Test
+    void checkpoint_trimsTheLog_andReopenReplaysOnlyTheTail(@TempDir Path dir) throws IOException {
+        CommandParser p = new CommandParser();
+        Path log = dir.resolve("db.wal");
+        String expected;
+        long fullLog;
+        try (Database db = Database.open(log, Durability.SYNC, 10, StorageMode.COLUMNAR)) {
+            create(db);
+            populate(db, 0, 200);
+            p.parse("delete Item (id < 30)").execute(db);
+            fullLog = Files.size(log);
+            db.checkpoint();
+            assertTrue(Files.size(log) < 64, "log should be down to its header");
+            assertTrue(Files.exists(dir.resolve("db.wal.snapshot")));
+
+            populate(db, 200, 220);
+            p.parse("update Item (id >= 210) {\"name\":\"late\"}").execute(db);
+            p.parse("delete Item (id = 100)").execute(db);
+            expected = dump(db);
+            assertTrue(Files.size(log) < fullLog);
+        }
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            assertEquals(expected, dump(db));
+            assertEquals(StorageMode.COLUMNAR, db.getType("item").storage());
+            p.parse("insert Item {\"id\":100}").execute(db);
+            db.checkpoint();
+            db.checkpoint();
+            p.parse("delete Item (id = 0 OR id = 100)").execute(db);
+        }
+        try (Database db = Database.open(log, Durability.INTERVAL)) {
+            assertEquals("No results found.", p.parse("search Item (id = 100)").execute(db));
+            assertTrue(p.parse("search Item (name = \"late\")").execute(db).contains("Search results (10)"));
+        }
+    }
+
+    @Test
+    void corruptOrForeignFiles_areRejected(@TempDir Path dir) throws IOException {
+        Database db = new Database();
+        create(db);
+        populate(db, 0, 50);
+        Path file = dir.resolve("db.snap");
+        db.saveSnapshot(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[]{42}), ch.size() / 2);
+        }
+        assertThrows(JsonicException.class, () -> Database.loadSnapshot(file));
+
+        Path other = dir.resolve("other");
+        Files.writeString(other, "definitely not a snapshot of anything");
+        assertThrows(JsonicException.class, () -> Database.loadSnapshot(other));
+        assertThrows(JsonicException.class, db::checkpoint);
+    }
+}
@@ -0,0 +1,92 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.FieldDef;
+import com.saghar.jsonicdb.core.ValueType;
+import com.saghar.jsonicdb.parser.Command;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.parser.StatementCache;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbStatementCacheTest {
+
+    @Test
+    void repeatedStatements_areParsedOnce_andWhitespaceOutsideQuotesIsIgnored() {
+        StatementCache cache = new StatementCache();
+        CommandParser p = new CommandParser(cache);
+        Database db = new Database();
+        p.parse("create P {\"name\":{\"type\":\"string\"},\"age\":{\"type\":\"int\"}}").execute(db);
+        p.parse("insert P {\"name\":\"a  b\",\"age\":30}").execute(db);
+        p.parse("insert P {\"name\":\"a b\",\"age\":40}").execute(db);
+
+        Command first = p.parse("search P (name = \"a  b\")");
+        assertSame(first, p.parse("  search   P\t(name  =  \"a  b\")  "));
+        assertNotSame(first, p.parse("search P (name = \"a b\")"));
+        assertTrue(first.execute(db).contains("Search results (1)"));
+        assertTrue(p.parse("search P (name = \"a b\")").execute(db).contains("Search results (1)"));
+
+        long hits = cache.hits();
+        for (int i = 0; i < 10; i++) p.parse("delete P (age > 45)").execute(db);
+        // one miss for the command and one for its filter, then hits for both
+        assertEquals(hits + 18, cache.hits());
+    }
+
+    @Test
+    void payloadCommands_areNotCached_butUpdateFiltersAre() {
+        StatementCache cache = new StatementCache(4);
+        CommandParser p = new CommandParser(cache);
+        Database db = new Database();
+        p.parse("create P {\"id\":{\"type\":\"int\"},\"age\":{\"type\":\"int\"}}").execute(db);
+        p.parse("search P (id = 1)");
+        for (int i = 0; i < 20; i++) p.parse("insert P {\"id\":" + i + ",\"age\":" + i + "}").execute(db);
+        assertNotSame(p.parse("insert P {\"id\":1}"), p.parse("insert P {\"id\":1}"));
+        assertEquals(1, cache.size());
+
+        long hits = cache.hits();
+        for (int i = 0; i < 10; i++) p.parse("update P (age > 15) {\"age\":" + i + "}").execute(db);
+        // the commands are parsed each time; their filter misses once, then hits
+        assertEquals(hits + 9, cache.hits());
+        assertEquals(2, cache.size());
+        // the search parsed first was not pushed out by the inserts
+        long misses = cache.misses();
+        p.parse("search  P (id = 1)");
+        assertEquals(misses, cache.misses());
+    }
+
+    @Test
+    void cache_isBounded_andDoesNotKeepFailures() {
+        StatementCache cache = new StatementCache(4);
+        CommandParser p = new CommandParser(cache);
+        for (int i = 0; i < 10; i++) p.parse("search P (id = " + i + ")");
+        assertEquals(4, cache.size());
+        assertEquals(10, cache.misses());
+
+        assertThrows(JsonicException.class, () -> p.parse("search P [id"));
+        assertThrows(JsonicException.class, () -> p.parse("search P [id"));
+        assertEquals(12, cache.misses());
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    void cachedFilters_rebindWhenTheSchemaChanges() {
+        CommandParser p = new CommandParser(new StatementCache());
+        Database row = new Database();
+        p.parse("create P {\"age\":{\"type\":\"int\"}}").execute(row);
+        p.parse("insert P {\"age\":7}").execute(row);
+        assertTrue(p.parse("search P (age = 7)").execute(row).contains("Search results (1)"));
+
+        // same statement, a type with a different layout
+        Database other = new Database();
+        p.parse("create P {\"name\":{\"type\":\"string\"},\"age\":{\"type\":\"string\"}}").execute(other);
+        p.parse("insert P {\"name\":\"x\",\"age\":\"7\"}").execute(other);
+        assertTrue(p.parse("search P (age = 7)").execute(other).contains("Search results (1)"));
+
+        // a field added after the filter was compiled becomes visible to it
+        assertEquals("No results found.", p.parse("search P (score = 0)").execute(row));
+        row.getType("p").addField(new FieldDef("score", ValueType.INT, false, false));
+        assertTrue(p.parse("search P (score = 0)").execute(row).contains("Search results (1)"));
+    }
+}
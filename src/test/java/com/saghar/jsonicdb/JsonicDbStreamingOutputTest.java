@@ -0,0 +1,90 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.cli.ConsoleRunner;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.Command;
+import com.saghar.jsonicdb.parser.CommandParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbStreamingOutputTest {
+
+    private static final CommandParser P = new CommandParser();
+    private static final String NL = System.lineSeparator();
+
+    private static Database populate(StorageMode mode, int rows) {
+        Database db = new Database(mode);
+        P.parse("create T {\"n\":{\"type\":\"int\"},\"label\":{\"type\":\"string\"},\"ok\":{\"type\":\"bool\"},\"x\":{\"type\":\"double\"}}").execute(db);
+        for (int i = 0; i < rows; i++)
+            P.parse("insert T {\"n\":" + (i - 2) + ",\"label\":\"row-" + i + "\",\"ok\":" + (i % 2 == 0) + ",\"x\":" + i * 0.5 + "}").execute(db);
+        return db;
+    }
+
+    @Test
+    void table_keepsItsLayout() throws IOException {
+        Database db = populate(StorageMode.COLUMNAR, 2);
+        P.parse("insert T {\"n\":-2147483648,\"label\":\"a label longer than ten\"}").execute(db);
+        String expected = "Search results (3):\n"
+                + "| n          | label      | ok         | x          | \n"
+                + "|------------|------------|------------|------------|\n"
+                + "| -2         | row-0      | true       | 0.0        | \n"
+                + "| -1         | row-1      | false      | 0.5        | \n"
+                + "| -214748364 | a label lo | false      | 0.0        | \n";
+        assertEquals(expected, P.parse("search T").execute(db));
+
+        StringWriter out = new StringWriter();
+        P.parse("search T").execute(db, out);
+        assertEquals(expected + NL, out.toString());
+    }
+
+    @Test
+    void rowsReachTheWriter_beforeTheTableIsComplete() {
+        Database db = populate(StorageMode.ROW, 5000);
+        // a sink that gives up after the first few kilobytes: the rows before it were already written
+        StringBuilder seen = new StringBuilder();
+        Writer limited = new Writer() {
+            @Override
+            public void write(char[] buf, int off, int len) throws IOException {
+                if (seen.length() > 4096) throw new IOException("sink full");
+                seen.append(buf, off, len);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Command search = P.parse("search T (n >= 0)");
+        assertThrows(IOException.class, () -> search.execute(db, limited));
+        assertTrue(seen.toString().startsWith("Search results (4998):\n"));
+        assertTrue(seen.toString().contains("| row-40     |"));
+    }
+
+    @Test
+    void console_printsWhatExecuteReturns() {
+        String[] script = {"search T (n = 0)", "search T (n = 99)", "delete T (n < 0)", "search T"};
+        Database replica = populate(StorageMode.COLUMNAR, 3);
+        StringBuilder expected = new StringBuilder();
+        for (String line : script) expected.append(P.parse(line).execute(replica)).append(NL);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        ConsoleRunner.run(new ByteArrayInputStream(String.join("\n", script).getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(out, true), new PrintStream(err, true), false, populate(StorageMode.COLUMNAR, 3), P);
+        assertEquals(expected.toString(), out.toString());
+        assertEquals("", err.toString());
+    }
+}
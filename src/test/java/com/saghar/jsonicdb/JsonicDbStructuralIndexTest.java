@@ -0,0 +1,162 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.json.*;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbStructuralIndexTest {
+
+    // a canonical text form, since objects and arrays compare by identity
+    private static String render(JsonValue v) {
+        if (v instanceof JsonObject o) {
+            StringBuilder sb = new StringBuilder("{");
+            o.entries().forEach((k, x) -> sb.append(k).append('=').append(render(x)).append(';'));
+            return sb.append('}').toString();
+        }
+        if (v instanceof JsonArray a) return a.items().stream().map(JsonicDbStructuralIndexTest::render).toList().toString();
+        return v.toString();
+    }
+
+    private static List<Integer> positions(StructuralIndex idx) {
+        List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < idx.count(); i++) out.add(idx.position(i));
+        return out;
+    }
+
+    // the positions listed for valid JSON, found one byte at a time
+    private static List<Integer> expected(byte[] src) {
+        List<Integer> out = new ArrayList<>();
+        boolean inString = false, inRun = false;
+        for (int i = 0; i < src.length; i++) {
+            byte b = src[i];
+            if (inString) {
+                if (b == '\\') i++;
+                else if (b == '"') {
+                    inString = false;
+                    out.add(i);
+                }
+                continue;
+            }
+            boolean op = "{}[],:".indexOf(b) >= 0, space = " \t\r\n".indexOf(b) >= 0;
+            if (b == '"') inString = true;
+            if (op || b == '"' || !space && !inRun) out.add(i);
+            inRun = !op && !space && b != '"';
+        }
+        return out;
+    }
+
+    private static void value(Random rnd, StringBuilder sb, int depth) {
+        switch (depth > 4 ? 3 + rnd.nextInt(4) : rnd.nextInt(7)) {
+            case 0, 1 -> {
+                sb.append('{').append(ws(rnd));
+                int n = rnd.nextInt(5);
+                for (int i = 0; i < n; i++) {
+                    if (i > 0) sb.append(',').append(ws(rnd));
+                    if (rnd.nextInt(4) == 0) sb.append("k").append(i);
+                    else string(rnd, sb);
+                    sb.append(ws(rnd)).append(':').append(ws(rnd));
+                    value(rnd, sb, depth + 1);
+                    sb.append(ws(rnd));
+                }
+                sb.append('}');
+            }
+            case 2 -> {
+                sb.append('[');
+                int n = rnd.nextInt(6);
+                for (int i = 0; i < n; i++) {
+                    if (i > 0) sb.append(ws(rnd)).append(',');
+                    sb.append(ws(rnd));
+                    value(rnd, sb, depth + 1);
+                }
+                sb.append(']');
+            }
+            case 3 -> string(rnd, sb);
+            case 4 -> sb.append(rnd.nextInt(3) == 0 ? Double.toString(rnd.nextGaussian() * 1e6) : Long.toString(rnd.nextLong()));
+            default -> sb.append(List.of("true", "false", "null").get(rnd.nextInt(3)));
+        }
+    }
+
+    private static void string(Random rnd, StringBuilder sb) {
+        sb.append('"');
+        int n = rnd.nextInt(rnd.nextInt(8) == 0 ? 150 : 12);
+        for (int i = 0; i < n; i++) {
+            switch (rnd.nextInt(12)) {
+                case 0 -> sb.append("\\\"");
+                case 1 -> sb.append("\\\\".repeat(1 + rnd.nextInt(40)));
+                case 2 -> sb.append("\\u00e9");
+                case 3 -> sb.append("é数");
+                case 4 -> sb.append(" {[,:]} ");
+                default -> sb.append((char) ('a' + rnd.nextInt(26)));
+            }
+        }
+        sb.append('"');
+    }
+
+    private static String ws(Random rnd) {
+        return rnd.nextInt(3) > 0 ? "" : " \n\t\r  ".substring(rnd.nextInt(6));
+    }
+
+    @Test
+    void backslashRuns_acrossBlockBoundaries() {
+        // run lengths from every offset in a block, each run followed by an escaped quote
+        StringBuilder sb = new StringBuilder("[");
+        for (int pad = 0; pad < 64; pad++) {
+            for (int run = 0; run <= 130; run += run < 8 ? 1 : 41) {
+                sb.append(pad == 0 && run == 0 ? "" : ",").append('"').append("x".repeat(pad)).append("\\".repeat(run));
+                sb.append(run % 2 == 0 ? "\\\"x\"" : "\"x\"");
+            }
+        }
+        byte[] doc = sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        List<Integer> expected = expected(doc);
+        assertEquals(expected, positions(StructuralIndex.of(doc, false)));
+        assertEquals(expected, positions(StructuralIndex.of(doc, true)));
+        assertEquals(render(JsonParser.parse(sb.toString())), render(JsonTape.parse(doc, StructuralIndex.of(doc))));
+    }
+
+    @Test
+    void vectorAndScalarIndexes_listEveryTokenStart() {
+        Random rnd = new Random(5);
+        for (int t = 0; t < 400; t++) {
+            StringBuilder sb = new StringBuilder(ws(rnd));
+            value(rnd, sb, 0);
+            byte[] doc = sb.append(ws(rnd)).toString().getBytes(StandardCharsets.UTF_8);
+            List<Integer> expected = expected(doc);
+            assertEquals(expected, positions(StructuralIndex.of(doc, false)), sb.toString());
+            assertEquals(expected, positions(StructuralIndex.of(doc, true)), sb.toString());
+        }
+        // arbitrary bytes, where only the two classifiers need agree
+        for (int t = 0; t < 200; t++) {
+            byte[] junk = new byte[rnd.nextInt(700)];
+            for (int i = 0; i < junk.length; i++) junk[i] = (byte) "\"\\ {}[],:a1\nÿ".charAt(rnd.nextInt(13));
+            assertEquals(positions(StructuralIndex.of(junk, false)), positions(StructuralIndex.of(junk, true)));
+        }
+    }
+
+    @Test
+    void indexedParse_buildsTheSameTree() {
+        Random rnd = new Random(8);
+        for (int t = 0; t < 400; t++) {
+            StringBuilder sb = new StringBuilder(ws(rnd));
+            value(rnd, sb, 0);
+            String doc = sb.append(ws(rnd)).toString();
+            byte[] utf8 = doc.getBytes(StandardCharsets.UTF_8);
+            String expected = render(JsonParser.parse(doc));
+            assertEquals(expected, render(JsonTape.parse(utf8)), doc);
+            assertEquals(expected, render(JsonTape.parse(utf8, StructuralIndex.of(utf8, true))), doc);
+            assertEquals(expected, render(JsonTape.parse(utf8, StructuralIndex.of(utf8, false))), doc);
+        }
+        for (String bad : new String[]{"{\"a\" 1}", "[1 2]", "[1x]", "[truex, 1]", "{\"a\":1}  x", "[\"a\"b]", "[1,\n ]", "  ", "[\\\"a\"]", "{a b:1}"}) {
+            byte[] utf8 = bad.getBytes(StandardCharsets.UTF_8);
+            assertThrows(JsonicException.class, () -> JsonTape.parse(utf8), bad);
+            JsonicException ex = assertThrows(JsonicException.class, () -> JsonTape.parse(utf8, StructuralIndex.of(utf8)), bad);
+            assertTrue(ex.getMessage().startsWith("Invalid JSON at byte "), ex.getMessage());
+        }
+    }
+}
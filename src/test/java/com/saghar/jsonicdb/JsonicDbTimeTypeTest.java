@@ -1,7 +1,9 @@
 package com.saghar.jsonicdb;
 
 import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.StorageMode;
 import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,4 +29,27 @@ public class JsonicDbTimeTypeTest {
         String res2 = p.parse("search Event (at <= \"2025-01-01T12:00:00\")").execute(db);
         assertTrue(res2.contains("Search results (2)"));
     }
+
+    @Test
+    void timesOutsideTheStoredRange_rejectedOnWriteInBothModes() {
+        for (StorageMode mode : StorageMode.values()) {
+            Database db = new Database(mode);
+            CommandParser p = new CommandParser();
+            p.parse("create Event {\"id\":{\"type\":\"int\"},\"at\":{\"type\":\"time\",\"index\":\"range\"}}").execute(db);
+            p.parse("insert Event {\"id\":1,\"at\":\"2025-01-01T10:00:00\"}").execute(db);
+
+            JsonicException ex = assertThrows(JsonicException.class,
+                    () -> p.parse("insert Event {\"id\":2,\"at\":\"3000-01-01T00:00:00\"}").execute(db));
+            assertTrue(ex.getMessage().startsWith("Time out of range"), ex.getMessage());
+            assertThrows(JsonicException.class, () -> p.parse("insert Event [{\"id\":3},{\"id\":4,\"at\":\"1500-01-01T00:00:00\"}]").execute(db));
+            assertThrows(JsonicException.class, () -> p.parse("update Event (id = 1) {\"at\":\"3000-01-01T00:00:00\"}").execute(db));
+            assertEquals(1, db.getType("event").size(), mode.toString());
+
+            // literals outside the range still filter, beyond every stored time
+            assertTrue(p.parse("search Event (at < \"3000-01-01T00:00:00\")").execute(db).contains("Search results (1)"), mode.toString());
+            assertTrue(p.parse("search Event (at > \"1500-01-01T00:00:00\" and id = 1)").execute(db).contains("Search results (1)"), mode.toString());
+            assertTrue(p.parse("search Event (at >= \"3000-01-01T00:00:00\")").execute(db).equals("No results found."), mode.toString());
+            assertTrue(p.parse("search Event (at = \"1500-01-01T00:00:00\")").execute(db).equals("No results found."), mode.toString());
+        }
+    }
 }
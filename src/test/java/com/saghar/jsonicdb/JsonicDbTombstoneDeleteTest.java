@@ -0,0 +1,102 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbTombstoneDeleteTest {
+
+    private static DataType tickets(Database db, CommandParser p, int n) {
+        p.parse("create Ticket {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true}," +
+                "\"status\":{\"type\":\"string\",\"index\":true},\"prio\":{\"type\":\"int\",\"index\":\"range\"}," +
+                "\"tags\":{\"type\":\"arr_string\",\"index\":true}}").execute(db);
+        for (int i = 0; i < n; i++) {
+            p.parse("insert Ticket {\"id\":" + i + ",\"status\":\"" + (i % 2 == 0 ? "open" : "closed") + "\"," +
+                    "\"prio\":" + (i % 5) + ",\"tags\":[\"t" + (i % 3) + "\"]}").execute(db);
+        }
+        return db.getType("ticket");
+    }
+
+    @Test
+    void deletesBelowTheThreshold_leaveTombstonesThatScansAndIndexesSkip() {
+        for (StorageMode mode : StorageMode.values()) {
+            Database db = new Database(mode);
+            CommandParser p = new CommandParser();
+            DataType t = tickets(db, p, 1000);
+
+            // 200 rows (> bulk size) in one statement, then a single one: 20.1% dead stays below 25%
+            assertEquals("200 instances deleted.", p.parse("delete Ticket (id < 200)").execute(db));
+            assertEquals("1 instances deleted.", p.parse("delete Ticket (id = 500)").execute(db));
+            assertEquals(799, t.size());
+            assertEquals(1000, t.slotCount());
+            assertFalse(t.isLive(0));
+
+            assertTrue(p.parse("search Ticket (status = \"open\")").execute(db).contains("Search results (399)"));
+            assertTrue(p.parse("search Ticket (prio = 0 AND status = \"closed\")").execute(db).contains("Search results (80)"));
+            assertTrue(p.parse("search Ticket (tags include \"t0\")").execute(db).contains("Search results (267)"));
+            assertTrue(p.parse("search Ticket (id != 1)").execute(db).contains("Search results (799)"));
+            assertEquals(799, t.records().size());
+            assertEquals(200, t.records().get(0).get("id"));
+
+            // the deleted unique values are free again; new rows append after the tombstones
+            p.parse("insert Ticket {\"id\":5,\"status\":\"open\",\"prio\":9}").execute(db);
+            assertArrayEquals(new int[]{1000}, t.lookup("id", 5));
+            assertThrows(JsonicException.class, () -> p.parse("insert Ticket {\"id\":300}").execute(db));
+            p.parse("update Ticket (prio = 9) {\"status\":\"closed\"}").execute(db);
+            assertTrue(p.parse("search Ticket (status = \"closed\")").execute(db).contains("Search results (401)"));
+        }
+    }
+
+    @Test
+    void reachingTheThreshold_compactsAndRenumbersSlots() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        DataType t = tickets(db, p, 100);
+
+        p.parse("delete Ticket (id < 20)").execute(db);
+        assertEquals(100, t.slotCount());
+        p.parse("delete Ticket (id < 25)").execute(db);
+        assertEquals(75, t.slotCount());
+        assertEquals(75, t.size());
+        assertArrayEquals(new int[]{0}, t.lookup("id", 25));
+        assertTrue(p.parse("search Ticket (prio >= 3)").execute(db).contains("Search results (30)"));
+
+        db.setCompactionThreshold(0);
+        p.parse("delete Ticket (id = 99)").execute(db);
+        assertEquals(74, t.slotCount());
+        assertThrows(JsonicException.class, () -> db.setCompactionThreshold(1.5));
+    }
+
+    @Test
+    void smallBulkDelete_onALargeTable_keepsEveryIndexExact() {
+        Database db = new Database();
+        CommandParser p = new CommandParser();
+        p.parse("create Doc {\"id\":{\"type\":\"int\",\"unique\":true},\"grp\":{\"type\":\"int\",\"index\":true}," +
+                "\"kind\":{\"type\":\"string\",\"index\":true},\"tags\":{\"type\":\"arr_string\",\"index\":true}}").execute(db);
+        StringBuilder batch = new StringBuilder("insert Doc [");
+        for (int i = 0; i < 50_000; i++) {
+            batch.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"grp\":").append(i % 5000)
+                    .append(",\"kind\":\"k").append(i % 2).append("\",\"tags\":[\"t").append(i % 7).append("\",\"u").append(i % 1000).append("\"]}");
+        }
+        p.parse(batch.append(']').toString()).execute(db);
+        DataType t = db.getType("doc");
+
+        // 100 slots: past the bulk size, a fraction of a percent of the table
+        assertEquals("100 instances deleted.", p.parse("delete Doc (id >= 20000 AND id < 20100)").execute(db));
+        assertEquals(49_900, t.size());
+        for (int g : new int[]{0, 99, 100, 4999}) {
+            int[] slots = t.lookup("grp", g);
+            assertEquals(g < 100 ? 9 : 10, slots.length, "grp " + g);
+            for (int slot : slots) assertTrue(t.isLive(slot));
+        }
+        assertEquals(24_950, t.lookup("kind", "k0").length);
+        assertEquals(49, t.lookupElement("tags", "u50").length);
+        assertEquals(50, t.lookupElement("tags", "u150").length);
+        assertTrue(p.parse("search Doc (tags include \"t3\" AND kind = \"k1\")").execute(db).contains("Search results (3565)"));
+    }
+}
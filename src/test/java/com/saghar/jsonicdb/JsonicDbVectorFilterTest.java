@@ -0,0 +1,90 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.ReadView;
+import com.saghar.jsonicdb.core.ScanSettings;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.filter.QueryExecutor;
+import com.saghar.jsonicdb.parser.CommandParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbVectorFilterTest {
+
+    private static final CommandParser P = new CommandParser();
+    private static final int ROWS = 20_000;
+
+    private static final List<String> FILTERS = List.of(
+            "age > 30",
+            "age >= 30 AND score <= 4.5",
+            "age < 10 OR score > 9.0",
+            "score = 0.0",
+            "score < 0.0",
+            "score != 2.5",
+            "40 <= age AND (at > \"2024-01-01T00:00:00\" OR name = \"n3\")",
+            "name = \"n1\" AND age != 7",
+            "age = \"x\" OR score > 1.0",
+            "tags include \"t1\" AND age > 50");
+
+    private static Database populate(StorageMode mode, ScanSettings settings) {
+        Database db = new Database(mode);
+        db.setScanSettings(settings);
+        P.parse("create P {\"age\":{\"type\":\"int\"},\"score\":{\"type\":\"double\"},\"at\":{\"type\":\"time\"}," +
+                "\"name\":{\"type\":\"string\"},\"tags\":{\"type\":\"arr_string\"}}").execute(db);
+        DataType t = db.getType("p");
+        for (int i = 0; i < ROWS; i++) {
+            // zeros of both signs exercise the lanes the kernels redo with Double.compare
+            double score = i % 97 == 0 ? -0.0 : i % 89 == 0 ? 0.0 : (i * 7 % 100) / 10.0 - 0.5;
+            t.insert(Map.of("age", i % 80, "score", score, "at", java.time.LocalDateTime.of(2023, 6, 1, 0, 0).plusHours(i),
+                    "name", "n" + (i % 5), "tags", List.of("t" + (i % 3))));
+        }
+        t.deleteWhere(r -> (Integer) r.get("age") == 33);
+        return db;
+    }
+
+    private static String results(Database db) {
+        DataType t = db.getType("p");
+        StringBuilder sb = new StringBuilder();
+        for (String f : FILTERS) {
+            sb.append(f).append(" -> ");
+            try {
+                int[] slots = QueryExecutor.matchingSlots(t, new FilterParser().parse(f));
+                sb.append(slots.length).append(' ').append(java.util.Arrays.hashCode(slots)).append('\n');
+            } catch (RuntimeException ex) {
+                sb.append(ex.getMessage()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void vectorizedScans_matchTheScalarResults() {
+        String scalar = results(populate(StorageMode.COLUMNAR, ScanSettings.SEQUENTIAL));
+        assertEquals(scalar, results(populate(StorageMode.COLUMNAR, ScanSettings.SEQUENTIAL.withVectorized(true))));
+        assertEquals(scalar, results(populate(StorageMode.COLUMNAR, new ScanSettings(4, 0, true))));
+        // row stores have no primitive columns and keep the scalar path
+        assertEquals(scalar, results(populate(StorageMode.ROW, new ScanSettings(4, 0, true))));
+    }
+
+    @Test
+    void viewsOverwrittenMeanwhile_fallBackToTheirOwnValues() {
+        Database db = populate(StorageMode.COLUMNAR, new ScanSettings(2, 0, true));
+        DataType t = db.getType("p");
+        try (ReadView view = t.openView()) {
+            int before = QueryExecutor.matchingSlots(view, new FilterParser().parse("age > 70")).length;
+            P.parse("update P (age > 70) {\"age\":1}").execute(db);
+            assertEquals(before, QueryExecutor.matchingSlots(view, new FilterParser().parse("age > 70")).length);
+            assertFalse(view.unchangedInPlace());
+        }
+        try (ReadView now = t.openView()) {
+            assertEquals(0, QueryExecutor.matchingSlots(now, new FilterParser().parse("age > 70")).length);
+            assertTrue(now.unchangedInPlace());
+        }
+    }
+}
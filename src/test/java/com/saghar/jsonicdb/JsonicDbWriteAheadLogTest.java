@@ -0,0 +1,148 @@
+package com.saghar.jsonicdb;
+
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.Durability;
+import com.saghar.jsonicdb.core.IndexKind;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+import com.saghar.jsonicdb.util.JsonicException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonicDbWriteAheadLogTest {
+
+    private static void populate(Database db) {
+        CommandParser p = new CommandParser();
+        p.parse("create Item {\"id\":{\"type\":\"int\",\"required\":true,\"unique\":true},\"name\":{\"type\":\"string\",\"index\":true}," +
+                "\"price\":{\"type\":\"double\",\"index\":\"range\"},\"at\":{\"type\":\"time\"},\"tags\":{\"type\":\"arr_string\",\"index\":true}," +
+                "\"ok\":{\"type\":\"bool\"}}").execute(db);
+        db.createType("Empty", StorageMode.COLUMNAR);
+        for (int i = 0; i < 200; i++) {
+            p.parse("insert Item {\"id\":" + i + ",\"name\":\"n" + (i % 7) + "\",\"price\":" + i * 1.5 +
+                    ",\"at\":\"2024-03-01T10:00:" + String.format("%02d", i % 60) + "\",\"tags\":[\"t" + (i % 4) + "\",\"ü\"],\"ok\":" + (i % 2 == 0) + "}").execute(db);
+        }
+        p.parse("update Item (price > 100.0) {\"name\":\"pricey\",\"ok\":true}").execute(db);
+        p.parse("delete Item (id < 10)").execute(db);   // tombstones only
+        p.parse("delete Item (id < 70)").execute(db);   // crosses the threshold: compacts
+        p.parse("delete Item (tags include \"t3\" AND id > 150)").execute(db);
+        p.parse("insert Item {\"id\":5,\"name\":\"back\",\"price\":0.5}").execute(db);
+    }
+
+    private static String dump(Database db) {
+        CommandParser p = new CommandParser();
+        return p.parse("search Item").execute(db) + p.parse("search Item (name = \"pricey\" AND price < 200.0)").execute(db)
+                + p.parse("search Item (tags include \"t1\")").execute(db) + db.getType("item").slotCount();
+    }
+
+    @Test
+    void reopening_replaysEveryMutation_evenWithADifferentCompactionThreshold(@TempDir Path dir) {
+        CommandParser p = new CommandParser();
+        Path log = dir.resolve("db.wal");
+        String expected;
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            populate(db);
+            expected = dump(db);
+        }
+        try (Database db = Database.open(log, Durability.SYNC, 10, StorageMode.ROW)) {
+            db.setCompactionThreshold(1.0);
+            assertEquals(expected, dump(db));
+            assertNotNull(db.getType("empty"));
+            assertEquals(StorageMode.COLUMNAR, db.getType("empty").storage());
+            assertThrows(JsonicException.class, () -> p.parse("insert Item {\"id\":5}").execute(db));
+            p.parse("delete Item (id = 5)").execute(db);
+        }
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            assertEquals("No results found.", p.parse("search Item (id = 5)").execute(db));
+        }
+    }
+
+    @Test
+    void tornTail_isCutOff_andTheLogStaysAppendable(@TempDir Path dir) throws IOException {
+        CommandParser p = new CommandParser();
+        Path log = dir.resolve("db.wal");
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            p.parse("create T {\"id\":{\"type\":\"int\",\"unique\":true}}").execute(db);
+            for (int i = 0; i < 10; i++) p.parse("insert T {\"id\":" + i + "}").execute(db);
+        }
+        // simulate a crash halfway through writing the last record
+        try (FileChannel ch = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 3);
+        }
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            assertTrue(p.parse("search T").execute(db).contains("Search results (9)"));
+            p.parse("insert T {\"id\":100}").execute(db);
+        }
+        // and garbage after the last good record is ignored
+        Files.write(log, new byte[]{0, 0, 0, 5, 1, 2, 3, 4, 9}, StandardOpenOption.APPEND);
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            assertTrue(p.parse("search T").execute(db).contains("Search results (10)"));
+            assertEquals(1, db.getType("t").lookup("id", 100).length);
+        }
+        Files.write(dir.resolve("junk"), "not a log at all".getBytes());
+        assertThrows(JsonicException.class, () -> Database.open(dir.resolve("junk"), Durability.SYNC));
+    }
+
+    @Test
+    void createdType_isLoggedWithItsFields_asOneRecord(@TempDir Path dir) throws IOException {
+        CommandParser p = new CommandParser();
+        Path log = dir.resolve("db.wal");
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            p.parse("create T {\"id\":{\"type\":\"int\",\"unique\":true},\"name\":{\"type\":\"string\",\"index\":true}," +
+                    "\"tags\":{\"type\":\"arr_string\"}}").execute(db);
+        }
+        try (Database db = Database.open(copyOf(log, dir.resolve("whole")), Durability.OFF)) {
+            assertEquals(3, db.getType("t").fields().size());
+            assertTrue(db.getType("t").fieldAt(0).unique());
+            assertEquals(IndexKind.HASH, db.getType("t").fieldAt(1).index());
+        }
+        // a crash inside the create record loses the type, never just some of its fields
+        try (FileChannel ch = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 3);
+        }
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            assertNull(db.getType("t"));
+            p.parse("create T {\"id\":{\"type\":\"int\"}}").execute(db);
+        }
+        try (Database db = Database.open(log, Durability.SYNC)) {
+            assertEquals(1, db.getType("t").fields().size());
+        }
+    }
+
+    @Test
+    void relaxedDurabilityModes_flushOnSyncAndClose(@TempDir Path dir) {
+        CommandParser p = new CommandParser();
+        for (Durability mode : new Durability[]{Durability.INTERVAL, Durability.OFF}) {
+            Path log = dir.resolve(mode + ".wal");
+            Database db = Database.open(log, mode, 60_000, StorageMode.COLUMNAR);
+            p.parse("create T {\"v\":{\"type\":\"int\"}}").execute(db);
+            p.parse("insert T {\"v\":1}").execute(db);
+            db.sync();
+            // a second process reading the log now sees the synced prefix
+            try (Database copy = Database.open(copyOf(log, dir.resolve(mode + ".copy")), Durability.OFF)) {
+                assertTrue(p.parse("search T").execute(copy).contains("Search results (1)"), mode.name());
+            }
+            p.parse("insert T {\"v\":2}").execute(db);
+            db.close();
+            try (Database again = Database.open(log, mode)) {
+                assertTrue(p.parse("search T").execute(again).contains("Search results (2)"), mode.name());
+                assertEquals(StorageMode.COLUMNAR, again.getType("t").storage());
+            }
+        }
+    }
+
+    private static Path copyOf(Path from, Path to) {
+        try {
+            return Files.copy(from, to);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.saghar.jsonicdb.bench;
+
+import com.saghar.jsonicdb.json.JsonArray;
+import com.saghar.jsonicdb.json.JsonObject;
+import com.saghar.jsonicdb.json.JsonParser;
+import com.saghar.jsonicdb.json.JsonTape;
+import com.saghar.jsonicdb.json.JsonValue;
+import com.saghar.jsonicdb.json.StructuralIndex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.ToLongFunction;
+
+/**
+ * Times parsing one large JSON document with {@link JsonParser}, the byte-loop tape builder, and the
+ * tape builder walking a structural index found with the byte loop or the Vector API. "walk" runs
+ * also visit every value, since the tape is lazy and {@code JsonParser} is not. Not a unit test; run
+ * it with the vector module after {@code mvn test-compile}:
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes \
+ *     com.saghar.jsonicdb.bench.JsonParseBenchmark [objects]
+ * </pre>
+ */
+public final class JsonParseBenchmark {
+
+    public static void main(String[] args) {
+        int objects = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String text = document(objects);
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        System.out.printf("%d objects, %.1f MB, vector module %s%n", objects, utf8.length / 1e6,
+                ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() ? "present" : "absent (vector runs are scalar)");
+        System.out.printf("%-34s %10s %10s%n", "parser", "ms", "MB/s");
+        run(utf8, "JsonParser (walk)", b -> walk(JsonParser.parse(text)));
+        run(utf8, "tape, byte loop", b -> JsonTape.parse(b) == null ? 0 : 1);
+        run(utf8, "tape, byte loop (walk)", b -> walk(JsonTape.parse(b)));
+        run(utf8, "structural index, scalar", b -> StructuralIndex.of(b, false).count());
+        run(utf8, "structural index, vector", b -> StructuralIndex.of(b, true).count());
+        run(utf8, "tape over scalar index", b -> JsonTape.parse(b, StructuralIndex.of(b, false)) == null ? 0 : 1);
+        run(utf8, "tape over vector index", b -> JsonTape.parse(b, StructuralIndex.of(b, true)) == null ? 0 : 1);
+        run(utf8, "tape over vector index (walk)", b -> walk(JsonTape.parse(b, StructuralIndex.of(b, true))));
+    }
+
+    // an array of records with short and long strings (a few escaped), numbers, nested arrays and indentation
+    private static String document(int objects) {
+        SplittableRandom rnd = new SplittableRandom(42);
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int i = 0; i < objects; i++) {
+            sb.append(i == 0 ? "" : ",\n").append("  {\n    \"id\": ").append(i)
+                    .append(",\n    \"name\": \"user ").append(rnd.nextInt(100_000))
+                    .append("\",\n    \"score\": ").append(rnd.nextInt(100_000) / 100.0)
+                    .append(",\n    \"active\": ").append(rnd.nextBoolean())
+                    .append(",\n    \"bio\": \"").append("lorem ipsum dolor sit amet ".repeat(1 + rnd.nextInt(4)))
+                    .append(i % 10 == 0 ? "\\\"quoted\\\"" : "")
+                    .append("\",\n    \"tags\": [\"a\", \"b\", \"c").append(rnd.nextInt(10)).append("\"]\n  }");
+        }
+        return sb.append("\n]").toString();
+    }
+
+    private static long walk(JsonValue v) {
+        if (v instanceof JsonObject o) return o.entries().values().stream().mapToLong(JsonParseBenchmark::walk).sum() + 1;
+        if (v instanceof JsonArray a) return a.items().stream().mapToLong(JsonParseBenchmark::walk).sum() + 1;
+        return 1;
+    }
+
+    // median of 9 timed runs after 5 warm-up runs
+    private static void run(byte[] utf8, String name, ToLongFunction<byte[]> parse) {
+        long sink = 0;
+        double[] ms = new double[9];
+        for (int i = -5; i < ms.length; i++) {
+            long start = System.nanoTime();
+            sink += parse.applyAsLong(utf8);
+            if (i >= 0) ms[i] = (System.nanoTime() - start) / 1e6;
+        }
+        if (sink == 42) System.out.println();
+        Arrays.sort(ms);
+        double median = ms[ms.length / 2];
+        System.out.printf("%-34s %10.2f %10.1f%n", name, median, utf8.length / 1e3 / median);
+    }
+}
@@ -0,0 +1,64 @@
+package com.saghar.jsonicdb.bench;
+
+import com.saghar.jsonicdb.core.Database;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.parser.CommandParser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Times {@code load} of growing NDJSON files into a row and a columnar type, to check that the cost per
+ * line stays flat as the store grows. Not a unit test; run it after {@code mvn test-compile}:
+ * <pre>
+ * java -Xmx4g -cp target/classes:target/test-classes com.saghar.jsonicdb.bench.LoadBenchmark [max lines]
+ * </pre>
+ */
+public final class LoadBenchmark {
+    private static final String SCHEMA = "{\"id\":{\"type\":\"int\"},\"name\":{\"type\":\"string\"},"
+            + "\"score\":{\"type\":\"double\"},\"ok\":{\"type\":\"bool\"}}";
+
+    public static void main(String[] args) throws IOException {
+        int max = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        Path file = Files.createTempFile("jsonic-load", ".ndjson");
+        try {
+            System.out.printf("%10s %12s %12s %14s %14s%n", "lines", "row ms", "column ms", "row ns/line", "column ns/line");
+            for (int lines = max / 8; lines <= max; lines *= 2) {
+                write(file, lines);
+                double row = time(file, StorageMode.ROW);
+                double column = time(file, StorageMode.COLUMNAR);
+                System.out.printf("%10d %12.0f %12.0f %14.0f %14.0f%n", lines, row, column,
+                        row * 1e6 / lines, column * 1e6 / lines);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void write(Path file, int lines) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < lines; i++) {
+                w.write("{\"id\":" + i + ",\"name\":\"n" + (i % 1000) + "\",\"score\":" + (i % 997) / 10.0
+                        + ",\"ok\":" + (i % 2 == 0) + "}");
+                w.newLine();
+            }
+        }
+    }
+
+    // best of 3 loads into a fresh database, after one warm-up load
+    private static double time(Path file, StorageMode storage) {
+        CommandParser p = new CommandParser();
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            Database db = new Database(storage);
+            p.parse("create T " + SCHEMA).execute(db);
+            long start = System.nanoTime();
+            p.parse("load T from '" + file + "'").execute(db);
+            double ms = (System.nanoTime() - start) / 1e6;
+            if (i > 0) best = Math.min(best, ms);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,73 @@
+package com.saghar.jsonicdb.bench;
+
+import com.saghar.jsonicdb.core.DataType;
+import com.saghar.jsonicdb.core.ScanSettings;
+import com.saghar.jsonicdb.core.FieldDef;
+import com.saghar.jsonicdb.core.StorageMode;
+import com.saghar.jsonicdb.core.ValueType;
+import com.saghar.jsonicdb.filter.Filter;
+import com.saghar.jsonicdb.filter.FilterParser;
+import com.saghar.jsonicdb.filter.QueryExecutor;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Times full scans of a columnar type with the scalar and the vectorized filter path. Not a unit test;
+ * run it with the vector module after {@code mvn test-compile}:
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes \
+ *     com.saghar.jsonicdb.bench.VectorFilterBenchmark [rows]
+ * </pre>
+ */
+public final class VectorFilterBenchmark {
+    private static final List<String> FILTERS = List.of(
+            "age > 30",
+            "age > 30 AND score <= 4.5",
+            "age < 5 OR score > 9.5",
+            "at >= \"2024-06-01T00:00:00\"",
+            "age > 30 AND name = \"n3\"");
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        DataType t = new DataType("bench", StorageMode.COLUMNAR);
+        t.addField(new FieldDef("age", ValueType.INT, false, false));
+        t.addField(new FieldDef("score", ValueType.DOUBLE, false, false));
+        t.addField(new FieldDef("at", ValueType.TIME, false, false));
+        t.addField(new FieldDef("name", ValueType.STRING, false, false));
+        SplittableRandom rnd = new SplittableRandom(42);
+        LocalDateTime base = LocalDateTime.of(2020, 1, 1, 0, 0);
+        for (int i = 0; i < rows; i++) {
+            t.insert(Map.of("age", rnd.nextInt(100), "score", rnd.nextInt(1000) / 100.0 + 0.001,
+                    "at", base.plusMinutes(rnd.nextInt(5_000_000)), "name", "n" + rnd.nextInt(10)));
+        }
+        System.out.printf("%d rows, vector module %s%n", rows,
+                ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() ? "present" : "absent (both runs are scalar)");
+        System.out.printf("%-32s %12s %12s %8s%n", "filter", "scalar ms", "vector ms", "speedup");
+        for (String f : FILTERS) {
+            Filter filter = new FilterParser().parse(f);
+            double scalar = time(t, filter, ScanSettings.SEQUENTIAL);
+            double vector = time(t, filter, ScanSettings.SEQUENTIAL.withVectorized(true));
+            System.out.printf("%-32s %12.2f %12.2f %7.2fx%n", f, scalar, vector, scalar / vector);
+        }
+    }
+
+    // median of 15 timed runs after 10 warm-up runs
+    private static double time(DataType t, Filter filter, ScanSettings settings) {
+        t.setScanSettings(settings);
+        long sink = 0;
+        for (int i = 0; i < 10; i++) sink += QueryExecutor.matchingSlots(t, filter).length;
+        double[] ms = new double[15];
+        for (int i = 0; i < ms.length; i++) {
+            long start = System.nanoTime();
+            sink += QueryExecutor.matchingSlots(t, filter).length;
+            ms[i] = (System.nanoTime() - start) / 1e6;
+        }
+        if (sink == 42) System.out.println();
+        Arrays.sort(ms);
+        return ms[ms.length / 2];
+    }
+}